@@ -12,4 +12,9 @@ import org.wildfly.swarm.config.runtime.model.AddressTemplate;
 public interface ClassIndex {
     ClassPlan lookup(AddressTemplate address);
     EnumPlan lookup(ClassPlan requester, Property attr);
+
+    /**
+     * @return the fully qualified name of the visitor interface of the subsystem
+     */
+    String getVisitorClassName();
 }
@@ -80,6 +80,14 @@ public class Config {
         return server.get("host").asString();
     }
 
+    /**
+     * Resources with at least this many attributes are generated with slot storage
+     * (see {@link org.wildfly.swarm.config.runtime.AttributeSlots}). Disabled if not configured.
+     */
+    public int getSlotStorageThreshold() {
+        return this.json.getInt("slotStorageThreshold", 0);
+    }
+
     public static Config fromJson(String filename) throws Exception {
         return new Config(
                 Json.parse(
@@ -118,7 +118,7 @@ public class Generator {
         List<SubsystemPlan> subsystems = new ArrayList<>();
 
         ArrayList<SourceFactory> factories = new ArrayList<SourceFactory>() {{
-            add(new ResourceFactory());
+            add(new ResourceFactory(config.getSlotStorageThreshold()));
             add(new ConsumerFactory());
             add(new SupplierFactory());
         }};
@@ -153,6 +153,8 @@ public class Generator {
                             }
                         }
 
+                        write(new VisitorFactory().create(plan));
+
                     } catch (Exception e) {
                         e.printStackTrace();
                         log.log(Level.ERROR, "Failed to process targets", e);
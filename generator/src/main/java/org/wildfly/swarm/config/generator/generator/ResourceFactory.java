@@ -2,15 +2,21 @@ package org.wildfly.swarm.config.generator.generator;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import com.google.common.base.CaseFormat;
+import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
 import org.jboss.forge.roaster.Roaster;
 import org.jboss.forge.roaster.model.source.AnnotationSource;
@@ -24,20 +30,32 @@ import org.wildfly.swarm.config.generator.model.ResourceDescription;
 import org.wildfly.swarm.config.runtime.Address;
 import org.wildfly.swarm.config.runtime.Addresses;
 import org.wildfly.swarm.config.runtime.AttributeDocumentation;
+import org.wildfly.swarm.config.runtime.AttributeSlots;
+import org.wildfly.swarm.config.runtime.Capability;
+import org.wildfly.swarm.config.runtime.ConcurrentKeyedBuilder;
+import org.wildfly.swarm.config.runtime.Freezable;
 import org.wildfly.swarm.config.runtime.Implicit;
 import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.KeyedList;
 import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.PrimitiveBacked;
+import org.wildfly.swarm.config.runtime.Prototype;
 import org.wildfly.swarm.config.runtime.ResourceDocumentation;
 import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
 import org.wildfly.swarm.config.runtime.SingletonResource;
+import org.wildfly.swarm.config.runtime.SlotBacked;
 import org.wildfly.swarm.config.runtime.Subresource;
 import org.wildfly.swarm.config.runtime.SubresourceInfo;
+import org.wildfly.swarm.config.runtime.Visitable;
+import org.wildfly.swarm.config.runtime.invocation.Entities;
 import org.wildfly.swarm.config.runtime.invocation.Types;
 import org.wildfly.swarm.config.runtime.model.AddressTemplate;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ALLOWED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DEPRECATED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.TYPE;
 
 /**
@@ -50,8 +68,37 @@ public class ResourceFactory implements SourceFactory {
 
     private static final Logger log = Logger.getLogger(ResourceFactory.class.getName());
 
+    /**
+     * Guards generated mutators against modifications of frozen resources
+     */
+    private static final String FROZEN_GUARD = "checkNotFrozen();\n";
+
     private final Set<String> names = new HashSet<>();
 
+    /**
+     * State of the class being generated, compared and copied by the structural methods
+     */
+    private final List<Member> members = new ArrayList<>();
+
+    /**
+     * Child resources of the class being generated, kept in the subresource holder
+     */
+    private final List<Member> children = new ArrayList<>();
+
+    private final int slotStorageThreshold;
+
+    public ResourceFactory() {
+        this(0);
+    }
+
+    /**
+     * @param slotStorageThreshold resources with at least this many attributes keep them in {@link AttributeSlots},
+     *                             zero disables slot storage
+     */
+    public ResourceFactory(int slotStorageThreshold) {
+        this.slotStorageThreshold = slotStorageThreshold;
+    }
+
     /**
      * Base template for a resource representation.
      * Covers the resource attributes
@@ -62,11 +109,14 @@ public class ResourceFactory implements SourceFactory {
      */
     public JavaClassSource create(ClassIndex index, ClassPlan plan) {
         this.names.clear();
+        this.members.clear();
+        this.children.clear();
 
         // base class
         JavaClassSource type = Roaster.parse(
                 JavaClassSource.class,
-                "public class " + plan.getClassName() + "<T extends " + plan.getClassName() + "<T>> implements " + Keyed.class.getName() + "{}"
+                "public class " + plan.getClassName() + "<T extends " + plan.getClassName() + "<T>> implements " + Keyed.class.getName() + ", " + Freezable.class.getName() + ", " + Visitable.class.getName()
+                        + (plan.isSingleton() ? "" : ", " + Prototype.class.getName() + "<T>") + "{}"
         );
 
 
@@ -84,11 +134,14 @@ public class ResourceFactory implements SourceFactory {
         addConstructor(type, plan);
         addResourceTypeAnnotation(type, plan);
         addPropertyChangeSupport(type, plan);
+        addFreezeSupport(type, plan);
 
         addChildResources(index, type, plan);
         addSingletonResources(index, type, plan);
 
         if (plan.getSubresourceClass() != null) {
+            addSubresourceStructuralMethods(type, plan.getSubresourceClass());
+            addSubresourceAccept(type, plan.getSubresourceClass());
             type.addNestedType(plan.getSubresourceClass());
         }
 
@@ -100,6 +153,8 @@ public class ResourceFactory implements SourceFactory {
         }
 
         addAttribtues(index, type, plan);
+        addStructuralMethods(type, plan);
+        addAccept(index, type, plan);
 
         return type;
     }
@@ -176,6 +231,17 @@ public class ResourceFactory implements SourceFactory {
             AnnotationSource<JavaClassSource> implicitMeta = type.addAnnotation();
             implicitMeta.setName(Implicit.class.getSimpleName());
         }
+
+        // provided capabilities, used to order operations by their references
+        for (ModelNode capability : plan.getDescription().getCapabilities()) {
+            type.addImport(Capability.class);
+            AnnotationSource<JavaClassSource> capabilityMeta = type.addAnnotation();
+            capabilityMeta.setName(Capability.class.getSimpleName());
+            capabilityMeta.setStringValue(capability.get(NAME).asString());
+            if (capability.hasDefined(ResourceDescription.DYNAMIC) && capability.get(ResourceDescription.DYNAMIC).asBoolean()) {
+                capabilityMeta.setLiteralValue(ResourceDescription.DYNAMIC, "true");
+            }
+        }
     }
 
     protected void addPropertyChangeSupport(JavaClassSource type, ClassPlan plan) {
@@ -202,12 +268,43 @@ public class ResourceFactory implements SourceFactory {
         listenerRemove.setBody("if(this.pcs!=null) this.pcs.removePropertyChangeListener(listener);");
     }
 
+    protected void addFreezeSupport(JavaClassSource type, ClassPlan plan) {
+
+        type.addField()
+                .setName("frozen")
+                .setType("boolean")
+                .setPrivate();
+
+        final MethodSource<JavaClassSource> freeze = type.addMethod();
+        freeze.getJavaDoc().setText("Makes this resource read-only");
+        freeze.setPublic()
+                .setName("freeze")
+                .setReturnTypeVoid()
+                .setBody("this.frozen = true;");
+
+        final MethodSource<JavaClassSource> isFrozen = type.addMethod();
+        isFrozen.setPublic()
+                .setName("isFrozen")
+                .setReturnType("boolean")
+                .setBody("return this.frozen;");
+
+        type.addMethod()
+                .setPrivate()
+                .setName("checkNotFrozen")
+                .setReturnTypeVoid()
+                .setBody("if(this.frozen) throw new IllegalStateException(\"" + plan.getClassName() + " '\" + this.key + \"' is frozen\");");
+    }
+
     protected void addAttribtues(ClassIndex index, JavaClassSource type, ClassPlan plan) {
         ResourceDescription desc = plan.getDescription();
         Inflector inflector = new Inflector();
 
         type.addImport(ModelNodeBinding.class);
 
+        final boolean slotted = slotStorageThreshold > 0 && desc.getAttributes().size() >= slotStorageThreshold;
+        final AtomicInteger ordinals = new AtomicInteger();
+        final List<PrimitiveAttribute> primitives = new ArrayList<>();
+
         desc.getAttributes().forEach(
                 att -> {
                     if (this.names.contains(att.getName())) {
@@ -249,9 +346,30 @@ public class ResourceFactory implements SourceFactory {
 
                             String attributeDescription = att.getValue().get(DESCRIPTION).asString();
 
-                            FieldSource attributeField = type.addField()
+                            final int ordinal = ordinals.getAndIncrement();
+                            final String slot = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, name);
+
+                            // numeric and boolean attributes are kept in primitive fields, unless slotted
+                            final String primitive = slotted ? null : primitiveTypeOf(modelType);
+                            final PrimitiveAttribute primitiveAttribute = primitive != null
+                                    ? new PrimitiveAttribute(ordinal, name, primitive, primitives.size())
+                                    : null;
+                            if (primitiveAttribute != null) {
+                                primitives.add(primitiveAttribute);
+                            }
+
+                            // slotted resources keep the documentation on the ordinal constant
+                            FieldSource attributeField = slotted
+                                    ? type.addField()
+                                    .setName(slot)
+                                    .setType("int")
+                                    .setPrivate()
+                                    .setStatic(true)
+                                    .setFinal(true)
+                                    .setLiteralInitializer(ordinal + ";")
+                                    : type.addField()
                                     .setName(name)
-                                    .setType(attributeType)
+                                    .setType(primitive != null ? primitive : attributeType)
                                     .setPrivate();
 
                             AnnotationSource attributeAnnotation = attributeField.addAnnotation();
@@ -263,7 +381,14 @@ public class ResourceFactory implements SourceFactory {
                             accessor.setPublic()
                                     .setName(name)
                                     .setReturnType(attributeType)
-                                    .setBody("return this." + name + ";");
+                                    .setBody(slotted
+                                            ? "return (" + attributeType + ") this.attributeSlots.get(" + slot + ");"
+                                            : primitiveAttribute != null
+                                            ? "return " + primitiveAttribute.isSet() + " ? " + attributeType + ".valueOf(this." + name + ") : null;"
+                                            : "return this." + name + ";");
+                            if (slotted) {
+                                accessor.addAnnotation("SuppressWarnings").setStringValue("unchecked");
+                            }
 
 
                             final MethodSource<JavaClassSource> mutator = type.addMethod();
@@ -272,15 +397,61 @@ public class ResourceFactory implements SourceFactory {
                             mutator.setPublic()
                                     .setName(name)
                                     .setReturnType("T")
-                                    .setBody("Object oldValue = this." + name + ";\n" +
-                                            "this." + name + " = value;\n" +
+                                    .setBody(FROZEN_GUARD + (slotted
+                                            ? "Object oldValue = this.attributeSlots.set(" + slot + ", value);\n"
+                                            : primitiveAttribute != null
+                                            ? "Object oldValue = this.pcs != null ? " + name + "() : null;\n"
+                                            + "if (value == null) { this." + name + " = " + primitiveAttribute.zero() + "; " + primitiveAttribute.clear() + " }\n"
+                                            + "else { this." + name + " = value; " + primitiveAttribute.mark() + " }\n"
+                                            : "Object oldValue = this." + name + ";\n" + "this." + name + " = value;\n") +
                                             "if(this.pcs!=null) this.pcs.firePropertyChange(\"" + name + "\", oldValue, value);\n" +
                                             "return (T) this;")
                                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
 
+                            final boolean collection = modelType == ModelType.LIST || modelType == ModelType.OBJECT;
+                            if (slotted) {
+                                if (collection) {
+                                    members.add(new Member(Member.Kind.SLOTTED_COLLECTION, slot, attributeType));
+                                }
+                            } else if (primitiveAttribute != null) {
+                                members.add(new Member(Member.Kind.PRIMITIVE, name, primitive));
+                            } else {
+                                members.add(new Member(collection ? Member.Kind.COLLECTION : Member.Kind.VALUE, name, attributeType));
+                            }
+
+                            if (primitiveAttribute != null) {
+                                final MethodSource<JavaClassSource> primitiveAccessor = type.addMethod();
+                                primitiveAccessor.getJavaDoc().setText(attributeDescription);
+                                primitiveAccessor.setPublic()
+                                        .setName(name + "As" + primitiveAttribute.suffix())
+                                        .setReturnType(primitive)
+                                        .setBody("return this." + name + ";");
+
+                                final MethodSource<JavaClassSource> primitiveMutator = type.addMethod();
+                                primitiveMutator.getJavaDoc().setText(attributeDescription);
+                                primitiveMutator.addParameter(primitive, "value");
+                                primitiveMutator.setPublic()
+                                        .setName(name)
+                                        .setReturnType("T")
+                                        .setBody(FROZEN_GUARD
+                                                + "Object oldValue = this.pcs != null ? " + name + "() : null;\n"
+                                                + "this." + name + " = value;\n"
+                                                + primitiveAttribute.mark() + "\n"
+                                                + "if(this.pcs!=null) this.pcs.firePropertyChange(\"" + name + "\", oldValue, value);\n"
+                                                + "return (T) this;")
+                                        .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+                            }
+
                             AnnotationSource<JavaClassSource> bindingMeta = accessor.addAnnotation();
                             bindingMeta.setName(ModelNodeBinding.class.getSimpleName());
                             bindingMeta.setStringValue("detypedName", att.getName());
+                            bindingMeta.setLiteralValue("ordinal", String.valueOf(ordinal));
+                            if (att.getValue().hasDefined(ResourceDescription.CAPABILITY_REFERENCE)) {
+                                bindingMeta.setStringValue("capabilityReference", att.getValue().get(ResourceDescription.CAPABILITY_REFERENCE).asString());
+                            }
+                            if (hasSimpleDefault(modelType, att.getValue())) {
+                                bindingMeta.setStringValue("defaultValue", att.getValue().get(ResourceDescription.DEFAULT).asString());
+                            }
 
                             // If the model type is LIST, then also add an appending mutator
                             if (modelType == ModelType.LIST) {
@@ -295,7 +466,11 @@ public class ResourceFactory implements SourceFactory {
                                 appender.setPublic()
                                         .setName(singularName) // non-trivial to singularize the method name here
                                         .setReturnType("T")
-                                        .setBody(" if ( this." + name + " == null ) { this." + name + " = new java.util.ArrayList<>(); }\nthis." + name + ".add(value);\nreturn (T) this;")
+                                        .setBody(FROZEN_GUARD + (slotted
+                                                ? "if ( " + name + "() == null ) { this.attributeSlots.set(" + slot + ", new java.util.ArrayList<>()); }\n" + name + "().add(value);\n"
+                                                : "if ( this." + name + " == null ) { this." + name + " = new java.util.ArrayList<>(); }\nthis." + name + ".add(value);\n")
+                                                + "if(this.pcs!=null) this.pcs.firePropertyChange(\"" + name + "\", null, " + name + "());\n"
+                                                + "return (T) this;")
                                         .addAnnotation("SuppressWarnings").setStringValue("unchecked");
 
                                 // also produce a var-args version
@@ -320,7 +495,11 @@ public class ResourceFactory implements SourceFactory {
                                 appender.setPublic()
                                         .setName(singularName)
                                         .setReturnType("T")
-                                        .setBody(" if ( this." + name + " == null ) { this." + name + " = new java.util.HashMap<>(); }\nthis." + name + ".put(key, value);\nreturn (T) this;")
+                                        .setBody(FROZEN_GUARD + (slotted
+                                                ? "if ( " + name + "() == null ) { this.attributeSlots.set(" + slot + ", new java.util.HashMap<>()); }\n" + name + "().put(key, value);\n"
+                                                : "if ( this." + name + " == null ) { this." + name + " = new java.util.HashMap<>(); }\nthis." + name + ".put(key, value);\n")
+                                                + "if(this.pcs!=null) this.pcs.firePropertyChange(\"" + name + "\", null, " + name + "());\n"
+                                                + "return (T) this;")
                                         .addAnnotation("SuppressWarnings").setStringValue("unchecked");
                             }
                         } catch (Exception e) {
@@ -329,6 +508,451 @@ public class ResourceFactory implements SourceFactory {
                     } //else System.err.println(att.getValue());
                 }
         );
+
+        if (slotted) {
+            addSlotStorage(type, ordinals.get());
+        }
+        if (!primitives.isEmpty()) {
+            addPrimitiveAccess(type, primitives);
+        }
+    }
+
+    /**
+     * Structural equals, hashCode, the copy constructor and deepCopy over the key, the attributes and the child resources
+     */
+    protected void addStructuralMethods(JavaClassSource type, ClassPlan plan) {
+        type.addImport(Objects.class);
+        type.addImport(Entities.class);
+
+        final String className = plan.getClassName();
+        final boolean hasSubresources = plan.getSubresourceClass() != null;
+
+        StringBuilder equals = new StringBuilder("if (this == o) return true;\n")
+                .append("if (o == null || getClass() != o.getClass()) return false;\n")
+                .append(className).append("<?> that = (").append(className).append("<?>) o;\n")
+                .append("return Objects.equals(this.key, that.key)");
+        StringBuilder hashCode = new StringBuilder("int result = Objects.hashCode(this.key);\n");
+        StringBuilder copy = new StringBuilder("super();\n").append(plan.isSingleton()
+                ? "this.key = \"" + plan.getSingletonName() + "\";\nthis.pcs = new PropertyChangeSupport(this);\n"
+                : "this.key = key;\n");
+        StringBuilder slotCopies = new StringBuilder();
+
+        for (Member member : members) {
+            String field = "this." + member.name;
+            switch (member.kind) {
+                case VALUE:
+                case COLLECTION:
+                case SLOTS:
+                    equals.append("\n&& Objects.equals(").append(field).append(", that.").append(member.name).append(")");
+                    hashCode.append("result = 31 * result + Objects.hashCode(").append(field).append(");\n");
+                    break;
+                case PRIMITIVE:
+                    equals.append("\n&& ").append("double".equals(member.type)
+                            ? "Double.compare(" + field + ", that." + member.name + ") == 0"
+                            : field + " == that." + member.name);
+                    hashCode.append("result = 31 * result + ").append(boxedTypeOf(member.type)).append(".hashCode(").append(field).append(");\n");
+                    break;
+                default:
+                    break;
+            }
+            String source = "prototype." + member.name;
+            switch (member.kind) {
+                case VALUE:
+                case PRIMITIVE:
+                    copy.append(field).append(" = ").append(source).append(";\n");
+                    break;
+                case COLLECTION:
+                    copy.append(field).append(" = (").append(member.type).append(") Entities.copyOf(").append(source).append(");\n");
+                    break;
+                case SLOTS:
+                    copy.append(field).append(".copyFrom(").append(source).append(");\n");
+                    break;
+                case SLOTTED_COLLECTION:
+                    slotCopies.append("this.attributeSlots.set(").append(member.name).append(", Entities.copyOf(prototype.attributeSlots.get(").append(member.name).append(")));\n");
+                    break;
+                default:
+                    break;
+            }
+        }
+        copy.append(slotCopies);
+
+        if (hasSubresources) {
+            equals.append("\n&& subresources().equals(that.subresources())");
+            hashCode.append("result = 31 * result + subresources().hashCode();\n");
+            copy.append("this.subresources = prototype.subresources != null ? prototype.subresources.deepCopy() : null;\n");
+        }
+
+        MethodSource<JavaClassSource> equalsMethod = type.addMethod();
+        equalsMethod.getJavaDoc().setText("Compares the key, the attributes and the child resources. Listeners and the frozen state are not compared.");
+        equalsMethod.setPublic()
+                .setName("equals")
+                .setReturnType("boolean")
+                .setBody(equals.append(";").toString())
+                .addParameter(Object.class, "o");
+        equalsMethod.addAnnotation(Override.class);
+
+        type.addMethod()
+                .setPublic()
+                .setName("hashCode")
+                .setReturnType("int")
+                .setBody(hashCode.append("return result;").toString())
+                .addAnnotation(Override.class);
+
+        MethodSource<JavaClassSource> copyConstructor = type.addMethod();
+        copyConstructor.getJavaDoc()
+                .setText("Copies the attributes and the child resources of a prototype. The copy shares no mutable state with the prototype, it is neither frozen nor observed.");
+        copyConstructor.setConstructor(true)
+                .setPublic()
+                .setBody(copy.toString())
+                .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+        if (!plan.isSingleton()) {
+            copyConstructor.addParameter(String.class, "key");
+        }
+        copyConstructor.addParameter(className + "<?>", "prototype");
+
+        MethodSource<JavaClassSource> deepCopyMethod = type.addMethod();
+        deepCopyMethod.getJavaDoc()
+                .setText("A copy of this resource and its child resources that shares no mutable state with this resource. The copy is neither frozen nor observed.")
+                .addTagValue("@return", "the copy");
+        deepCopyMethod.setPublic()
+                .setName("deepCopy")
+                .setReturnType("T")
+                .setBody("return (T) new " + className + "<>(" + (plan.isSingleton() ? "" : "this.key, ") + "this);")
+                .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+
+        if (!plan.isSingleton()) {
+            MethodSource<JavaClassSource> copyMethod = type.addMethod();
+            copyMethod.getJavaDoc()
+                    .setText("A copy of this resource under another name, see the copy constructor")
+                    .addTagValue("@param", "key the name of the copy")
+                    .addTagValue("@return", "the copy");
+            copyMethod.setPublic()
+                    .setName("copy")
+                    .setReturnType("T")
+                    .setBody("return (T) new " + className + "<>(key, this);")
+                    .addParameter(String.class, "key");
+            copyMethod.addAnnotation("SuppressWarnings").setStringValue("unchecked");
+            copyMethod.addAnnotation(Override.class);
+        }
+    }
+
+    /**
+     * Structural equals, hashCode and deepCopy of the subresource holder. Absent child lists equal empty ones.
+     */
+    protected void addSubresourceStructuralMethods(JavaClassSource type, JavaClassSource subresourceClass) {
+        type.addImport(Objects.class);
+
+        final String holder = subresourceClass.getName();
+        StringBuilder equals = new StringBuilder("if (this == o) return true;\n")
+                .append("if (o == null || getClass() != o.getClass()) return false;\n")
+                .append(holder).append(" that = (").append(holder).append(") o;\n")
+                .append("return true");
+        StringBuilder hashCode = new StringBuilder("int result = 1;\n");
+        StringBuilder deepCopy = new StringBuilder(holder + " copy = new " + holder + "();\n");
+
+        for (Member child : children) {
+            String field = "this." + child.name;
+            if (child.kind == Member.Kind.CHILD_LIST) {
+                equals.append("\n&& ").append(child.name).append("().equals(that.").append(child.name).append("())");
+                hashCode.append("result = 31 * result + ").append(child.name).append("().hashCode();\n");
+                deepCopy.append("if (").append(field).append(" != null) {\n")
+                        .append("copy.").append(child.name).append(" = new ").append(KeyedList.class.getSimpleName()).append("<>(").append(field).append(".size());\n")
+                        .append("for (").append(child.type).append(" item : ").append(field).append(") copy.").append(child.name).append(".add(item.deepCopy());\n")
+                        .append("}\n");
+            } else {
+                equals.append("\n&& Objects.equals(").append(field).append(", that.").append(child.name).append(")");
+                hashCode.append("result = 31 * result + Objects.hashCode(").append(field).append(");\n");
+                deepCopy.append("copy.").append(child.name).append(" = ").append(field).append(" != null ? ").append(field).append(".deepCopy() : null;\n");
+            }
+        }
+
+        MethodSource<JavaClassSource> equalsMethod = subresourceClass.addMethod();
+        equalsMethod.setPublic()
+                .setName("equals")
+                .setReturnType("boolean")
+                .setBody(equals.append(";").toString())
+                .addParameter(Object.class, "o");
+        equalsMethod.addAnnotation(Override.class);
+
+        subresourceClass.addMethod()
+                .setPublic()
+                .setName("hashCode")
+                .setReturnType("int")
+                .setBody(hashCode.append("return result;").toString())
+                .addAnnotation(Override.class);
+
+        MethodSource<JavaClassSource> deepCopyMethod = subresourceClass.addMethod();
+        deepCopyMethod.getJavaDoc().setText("Copies the child resources recursively");
+        deepCopyMethod.setPublic()
+                .setName("deepCopy")
+                .setReturnType(holder)
+                .setBody(deepCopy.append("return copy;").toString())
+                .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+    }
+
+    /**
+     * Walks the resource and its children, with typed callbacks for visitors of the subsystem
+     */
+    protected void addAccept(ClassIndex index, JavaClassSource type, ClassPlan plan) {
+        type.addImport(ResourceVisitor.class);
+        String visitor = index.getVisitorClassName();
+        type.addImport(visitor);
+        visitor = visitor.substring(visitor.lastIndexOf('.') + 1);
+
+        MethodSource<JavaClassSource> accept = type.addMethod();
+        accept.getJavaDoc().setText("Visits this resource and, unless the visitor declines, its child resources");
+        accept.setPublic()
+                .setName("accept")
+                .setReturnTypeVoid()
+                .setBody("if (visitor instanceof " + visitor + ") {\n"
+                        + visitor + " typed = (" + visitor + ") visitor;\n"
+                        + "if (typed.visit(this)) {\n"
+                        + (plan.getSubresourceClass() != null ? "if (this.subresources != null) this.subresources.accept(visitor);\n" : "")
+                        + "typed.leave(this);\n"
+                        + "}\n"
+                        + "} else if (visitor.visitResource(this)) {\n"
+                        + (plan.getSubresourceClass() != null ? "if (this.subresources != null) this.subresources.accept(visitor);\n" : "")
+                        + "visitor.leaveResource(this);\n"
+                        + "}")
+                .addParameter(ResourceVisitor.class.getSimpleName(), "visitor");
+        accept.addAnnotation(Override.class);
+    }
+
+    /**
+     * Visits the child resources, regular resources before singletons. Child lists are iterated, since positional
+     * reads of a {@link KeyedList} are linear while removed elements are not compacted.
+     */
+    protected void addSubresourceAccept(JavaClassSource type, JavaClassSource subresourceClass) {
+        type.addImport(ResourceVisitor.class);
+
+        StringBuilder body = new StringBuilder();
+        for (Member child : children) {
+            String field = "this." + child.name;
+            if (child.kind == Member.Kind.CHILD_LIST) {
+                body.append("if (").append(field).append(" != null) {\n")
+                        .append("for (").append(child.type).append(" item : ").append(field).append(") item.accept(visitor);\n")
+                        .append("}\n");
+            }
+        }
+        for (Member child : children) {
+            if (child.kind == Member.Kind.SINGLETON) {
+                body.append("if (this.").append(child.name).append(" != null) this.").append(child.name).append(".accept(visitor);\n");
+            }
+        }
+
+        subresourceClass.addMethod()
+                .setPublic()
+                .setName("accept")
+                .setReturnTypeVoid()
+                .setBody(body.toString())
+                .addParameter(ResourceVisitor.class.getSimpleName(), "visitor");
+    }
+
+    private static String boxedTypeOf(String primitive) {
+        switch (primitive) {
+            case "int":
+                return "Integer";
+            case "long":
+                return "Long";
+            case "boolean":
+                return "Boolean";
+            default:
+                return "Double";
+        }
+    }
+
+    protected void addPrimitiveAccess(JavaClassSource type, List<PrimitiveAttribute> primitives) {
+        type.addInterface(PrimitiveBacked.class);
+
+        // presence bits
+        for (int i = 0; i < (primitives.size() + 63) / 64; i++) {
+            type.addField()
+                    .setName("presence" + i)
+                    .setType("long")
+                    .setPrivate();
+            members.add(new Member(Member.Kind.PRIMITIVE, "presence" + i, "long"));
+        }
+
+        StringBuilder isSet = new StringBuilder("switch (ordinal) {\n");
+        for (PrimitiveAttribute primitive : primitives) {
+            isSet.append("case ").append(primitive.ordinal).append(": return ").append(primitive.isSet()).append(";\n");
+        }
+        isSet.append("default: return false;\n}");
+        type.addMethod()
+                .setPublic()
+                .setName("isPrimitiveSet")
+                .setReturnType("boolean")
+                .setBody(isSet.toString())
+                .addParameter("int", "ordinal");
+
+        for (String primitiveType : Arrays.asList("int", "long", "boolean", "double")) {
+            StringBuilder getter = new StringBuilder("switch (ordinal) {\n");
+            StringBuilder setter = new StringBuilder("switch (ordinal) {\n");
+            boolean present = false;
+            for (PrimitiveAttribute primitive : primitives) {
+                if (primitive.type.equals(primitiveType)) {
+                    present = true;
+                    getter.append("case ").append(primitive.ordinal).append(": return this.").append(primitive.name).append(";\n");
+                    setter.append("case ").append(primitive.ordinal).append(": ").append(primitive.name).append("(value); return;\n");
+                }
+            }
+            if (!present) {
+                continue;
+            }
+            String failure = "default: throw new IllegalArgumentException(\"No " + primitiveType + " attribute: \" + ordinal);\n}";
+            getter.append(failure);
+            setter.append(failure);
+
+            String suffix = Character.toUpperCase(primitiveType.charAt(0)) + primitiveType.substring(1);
+            type.addMethod()
+                    .setPublic()
+                    .setName("get" + suffix + "Attribute")
+                    .setReturnType(primitiveType)
+                    .setBody(getter.toString())
+                    .addParameter("int", "ordinal");
+            MethodSource<JavaClassSource> setterMethod = type.addMethod()
+                    .setPublic()
+                    .setName("set" + suffix + "Attribute")
+                    .setReturnTypeVoid()
+                    .setBody(setter.toString());
+            setterMethod.addParameter("int", "ordinal");
+            setterMethod.addParameter(primitiveType, "value");
+        }
+    }
+
+    /**
+     * Defaults are recorded for simple attributes, with a constant, non empty value
+     */
+    private static boolean hasSimpleDefault(ModelType modelType, ModelNode attribute) {
+        if (!attribute.hasDefined(ResourceDescription.DEFAULT)) {
+            return false;
+        }
+        ModelNode defaultValue = attribute.get(ResourceDescription.DEFAULT);
+        switch (modelType) {
+            case STRING:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case DOUBLE:
+            case BIG_DECIMAL:
+                return defaultValue.getType() != ModelType.EXPRESSION && !defaultValue.asString().isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    private static String primitiveTypeOf(ModelType modelType) {
+        switch (modelType) {
+            case INT:
+                return "int";
+            case LONG:
+                return "long";
+            case BOOLEAN:
+                return "boolean";
+            case DOUBLE:
+                return "double";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A numeric or boolean attribute kept in a primitive field, with a presence bit
+     */
+    private static class PrimitiveAttribute {
+
+        final int ordinal;
+
+        final String name;
+
+        final String type;
+
+        final String presence;
+
+        final String mask;
+
+        PrimitiveAttribute(int ordinal, String name, String type, int bit) {
+            this.ordinal = ordinal;
+            this.name = name;
+            this.type = type;
+            this.presence = "presence" + (bit / 64);
+            this.mask = "0x" + Long.toHexString(1L << (bit % 64)) + "L";
+        }
+
+        String isSet() {
+            return "(this." + presence + " & " + mask + ") != 0";
+        }
+
+        String mark() {
+            return "this." + presence + " |= " + mask + ";";
+        }
+
+        String clear() {
+            return "this." + presence + " &= ~" + mask + ";";
+        }
+
+        String zero() {
+            return "boolean".equals(type) ? "false" : "0";
+        }
+
+        String suffix() {
+            return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+        }
+    }
+
+    /**
+     * A field of a generated resource or of its subresource holder
+     */
+    private static class Member {
+
+        enum Kind {
+            /** an immutable attribute value */
+            VALUE,
+            /** a list or map attribute */
+            COLLECTION,
+            /** a primitive attribute or presence word */
+            PRIMITIVE,
+            /** the attribute slots of slotted resources */
+            SLOTS,
+            /** a list or map attribute kept in a slot, the name is the ordinal constant */
+            SLOTTED_COLLECTION,
+            /** a list of child resources */
+            CHILD_LIST,
+            /** a singleton child resource */
+            SINGLETON
+        }
+
+        final Kind kind;
+
+        final String name;
+
+        final String type;
+
+        Member(Kind kind, String name, String type) {
+            this.kind = kind;
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    protected void addSlotStorage(JavaClassSource type, int capacity) {
+        type.addImport(AttributeSlots.class);
+        type.addInterface(SlotBacked.class);
+
+        type.addField()
+                .setName("attributeSlots")
+                .setType(AttributeSlots.class.getSimpleName())
+                .setPrivate()
+                .setFinal(true)
+                .setLiteralInitializer("new " + AttributeSlots.class.getSimpleName() + "(" + capacity + ");");
+        members.add(new Member(Member.Kind.SLOTS, "attributeSlots", AttributeSlots.class.getSimpleName()));
+
+        final MethodSource<JavaClassSource> accessor = type.addMethod();
+        accessor.getJavaDoc().setText("The attribute values, indexed by attribute ordinal");
+        accessor.setPublic()
+                .setName("attributeSlots")
+                .setReturnType(AttributeSlots.class.getSimpleName())
+                .setBody("return this.attributeSlots;");
     }
 
 
@@ -375,6 +999,7 @@ public class ResourceFactory implements SourceFactory {
             final String childClassName = childClass.getClassName();
             javaClass.addImport(childClass.getFullyQualifiedClassName());
             final String propType = "java.util.List<" + childClassName + ">";
+            final String keyedPropType = KeyedList.class.getSimpleName() + "<" + childClassName + ">";
             String propName = CaseFormat.UPPER_CAMEL.to(
                     CaseFormat.LOWER_CAMEL,
                     Keywords.escape(childClass.getOriginalClassName())
@@ -389,15 +1014,16 @@ public class ResourceFactory implements SourceFactory {
 
 
             javaClass.addImport(SubresourceInfo.class);
+            javaClass.addImport(KeyedList.class);
 
             // Add a property and an initializer for this subresource to the class
             final String resourceText = resourceMetaDataDescription.getChildDescription(childName).getText();
             FieldSource<JavaClassSource> field = subresourceClass.addField();
 
+            // allocated with the first child
             field.setName(propName)
-                    .setType(propType)
+                    .setType(keyedPropType)
                     .setPrivate()
-                    .setLiteralInitializer("new java.util.ArrayList<>();")
                     .getJavaDoc().setText(resourceText);
 
             AnnotationSource attributeAnnotation = field.addAnnotation();
@@ -409,19 +1035,36 @@ public class ResourceFactory implements SourceFactory {
             // Add an accessor method
             final MethodSource<JavaClassSource> accessor = subresourceClass.addMethod();
             accessor.getJavaDoc()
-                    .setText("Get the list of " + childClassName + " resources")
+                    .setText("Get the list of " + childClassName + " resources. The list is allocated with the first "
+                            + childClassName + " added through the parent, until then it is an unmodifiable empty list.")
                     .addTagValue("@return", "the list of resources");
             accessor.setPublic()
                     .setName(propName)
                     .setReturnType(propType)
-                    .setBody("return this." + propName + ";");
+                    .setBody("return this." + propName + " != null ? this." + propName + " : Collections.emptyList();");
+            javaClass.addImport(Collections.class);
 
             final MethodSource<JavaClassSource> getByKey = subresourceClass.addMethod();
+            getByKey.getJavaDoc()
+                    .setText("Get the " + childClassName + " resource by key")
+                    .addTagValue("@param", "key The key of the " + childClassName + " resource")
+                    .addTagValue("@return", "the resource or null");
             getByKey.addParameter(String.class, "key");
             getByKey.setPublic()
                     .setName(singularName)
                     .setReturnType(childClassName)
-                    .setBody("return this." + propName + ".stream().filter( e->e.getKey().equals(key) ).findFirst().orElse(null);");
+                    .setBody("return this." + propName + " != null ? this." + propName + ".getByKey(key) : null;");
+
+            final MethodSource<JavaClassSource> removeByKey = subresourceClass.addMethod();
+            removeByKey.getJavaDoc()
+                    .setText("Remove the " + childClassName + " resource by key")
+                    .addTagValue("@param", "key The key of the " + childClassName + " resource")
+                    .addTagValue("@return", "the removed resource or null");
+            removeByKey.addParameter(String.class, "key");
+            removeByKey.setPublic()
+                    .setName("remove" + Character.toUpperCase(singularName.charAt(0)) + singularName.substring(1))
+                    .setReturnType(childClassName)
+                    .setBody("return this." + propName + " != null ? this." + propName + ".removeByKey(key) : null;");
 
             // Add a mutator method that takes a list of resources. Mutators are added to the containing class
             final MethodSource<JavaClassSource> listMutator = javaClass.addMethod();
@@ -433,7 +1076,24 @@ public class ResourceFactory implements SourceFactory {
             listMutator.setPublic()
                     .setName(propName)
                     .setReturnType("T")
-                    .setBody("this.subresources." + propName + " = value;\nreturn (T) this;")
+                    .setBody(FROZEN_GUARD + "mutableSubresources()." + propName + " = " + KeyedList.class.getSimpleName() + ".wrap(value);\n"
+                            + childChanged(propName) + "return (T) this;")
+                    .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+
+            // Add a mutator method that takes the resources collected by concurrent contributors
+            javaClass.addImport(ConcurrentKeyedBuilder.class);
+            final MethodSource<JavaClassSource> builderMutator = javaClass.addMethod();
+            builderMutator.getJavaDoc()
+                    .setText("Add the " + childClassName + " objects collected by a builder, ordered by name")
+                    .addTagValue("@param", "builder The builder")
+                    .addTagValue("@return", "this");
+            builderMutator.addParameter(ConcurrentKeyedBuilder.class.getSimpleName() + "<" + childClassName + ">", "builder");
+            builderMutator.setPublic()
+                    .setName("addAll" + Character.toUpperCase(propName.charAt(0)) + propName.substring(1))
+                    .setReturnType("T")
+                    .setBody(FROZEN_GUARD + subresourceClass.getName() + " holder = mutableSubresources();\n"
+                            + "if (holder." + propName + " == null) holder." + propName + " = new " + KeyedList.class.getSimpleName() + "<>(builder.size());\n"
+                            + "builder.appendTo(holder." + propName + ");\n" + childChanged(propName) + "return (T) this;")
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
 
             // Add a mutator method that takes a single resource. Mutators are added to the containing class
@@ -446,7 +1106,9 @@ public class ResourceFactory implements SourceFactory {
             mutator.setPublic()
                     .setName(singularName)
                     .setReturnType("T")
-                    .setBody("this.subresources." + propName + ".add(value);\nreturn (T) this;")
+                    .setBody(FROZEN_GUARD + subresourceClass.getName() + " holder = mutableSubresources();\n"
+                            + "if (holder." + propName + " == null) holder." + propName + " = new " + KeyedList.class.getSimpleName() + "<>();\n"
+                            + "holder." + propName + ".add(value);\n" + childChanged(propName) + "return (T) this;")
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
 
             // Add a mutator method that factories a single resource and applies a supplied configurator. Mutators are added to the containing class
@@ -495,6 +1157,7 @@ public class ResourceFactory implements SourceFactory {
             final AnnotationSource<JavaClassSource> subresourceMeta = accessor.addAnnotation();
             subresourceMeta.setName("Subresource");
 
+            children.add(new Member(Member.Kind.CHILD_LIST, propName, childClassName));
 
         }
 
@@ -559,7 +1222,7 @@ public class ResourceFactory implements SourceFactory {
             mutator.setPublic()
                     .setName(propName)
                     .setReturnType("T")
-                    .setBody("this.subresources." + propName + "=value;\nreturn (T) this;")
+                    .setBody(FROZEN_GUARD + "mutableSubresources()." + propName + "=value;\n" + childChanged(propName) + "return (T) this;")
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
 
             javaClass.addImport(childClass.getFullyQualifiedClassName() + "Consumer");
@@ -576,9 +1239,10 @@ public class ResourceFactory implements SourceFactory {
                     .setName(propName)
                     .setReturnType("T")
                     .setBody(
-                            childClass.getClassName() + "<? extends " + childClass.getClassName() + "> child = new " + childClass.getClassName() + "<>();\n"
+                            FROZEN_GUARD + childClass.getClassName() + "<? extends " + childClass.getClassName() + "> child = new " + childClass.getClassName() + "<>();\n"
                                     + "if ( consumer != null ) { consumer.accept(child); }\n"
-                                    + "this.subresources." + propName + " = child;\n"
+                                    + "mutableSubresources()." + propName + " = child;\n"
+                                    + childChanged(propName)
                                     + "return (T) this;"
                     )
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
@@ -592,8 +1256,9 @@ public class ResourceFactory implements SourceFactory {
                     .setName(propName)
                     .setReturnType("T")
                     .setBody(
-                            childClass.getClassName() + "<? extends " + childClass.getClassName() + "> child = new " + childClass.getClassName() + "<>();\n"
-                                    + "this.subresources." + propName + " = child;\n"
+                            FROZEN_GUARD + childClass.getClassName() + "<? extends " + childClass.getClassName() + "> child = new " + childClass.getClassName() + "<>();\n"
+                                    + "mutableSubresources()." + propName + " = child;\n"
+                                    + childChanged(propName)
                                     + "return (T) this;"
                     )
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
@@ -608,11 +1273,20 @@ public class ResourceFactory implements SourceFactory {
             supplier.setPublic()
                     .setName(propName)
                     .setReturnType("T")
-                    .setBody("this.subresources." + propName + " = supplier.get();\nreturn (T) this;")
+                    .setBody(FROZEN_GUARD + "mutableSubresources()." + propName + " = supplier.get();\n" + childChanged(propName) + "return (T) this;")
                     .addAnnotation("SuppressWarnings").setStringValue("unchecked");
+
+            children.add(new Member(Member.Kind.SINGLETON, propName, childClass.getFullyQualifiedClassName()));
         }
     }
 
+    /**
+     * Notifies listeners about replaced child resources. Modifications of child lists are observable through the list.
+     */
+    private static String childChanged(String propName) {
+        return "if(this.pcs!=null) this.pcs.firePropertyChange(\"" + propName + "\", null, this.subresources." + propName + ");\n";
+    }
+
     private JavaClassSource getOrCreateSubresourceClass(ClassPlan plan, JavaClassSource javaClass) {
 
         JavaClassSource subresourceClass = plan.getSubresourceClass();
@@ -630,17 +1304,40 @@ public class ResourceFactory implements SourceFactory {
         subresourceClass.setPublic();
         subresourceClass.setStatic(true);
 
+        // allocated with the first child, reads fall back to an empty holder
         javaClass.addField()
                 .setPrivate()
                 .setType(subresourceClass.getName())
-                .setName("subresources")
+                .setName("subresources");
+
+        javaClass.addField()
+                .setPrivate()
+                .setStatic(true)
+                .setFinal(true)
+                .setType(subresourceClass.getName())
+                .setName("EMPTY_SUBRESOURCES")
                 .setLiteralInitializer("new " + subresourceClass.getName() + "();");
 
         final MethodSource<JavaClassSource> subresourcesMethod = javaClass.addMethod()
                 .setName("subresources")
                 .setPublic();
+        subresourcesMethod.getJavaDoc().setText("The child resources, a shared empty holder until the first child is added");
         subresourcesMethod.setReturnType(subresourceClass.getName());
-        subresourcesMethod.setBody("return this.subresources;");
+        subresourcesMethod.setBody("return this.subresources != null ? this.subresources : EMPTY_SUBRESOURCES;");
+
+        final MethodSource<JavaClassSource> hasSubresourcesMethod = javaClass.addMethod()
+                .setName("hasSubresources")
+                .setPublic();
+        hasSubresourcesMethod.getJavaDoc().setText("Whether any child resource has been added");
+        hasSubresourcesMethod.setReturnType("boolean");
+        hasSubresourcesMethod.setBody("return this.subresources != null;");
+
+        javaClass.addMethod()
+                .setName("mutableSubresources")
+                .setPrivate()
+                .setReturnType(subresourceClass.getName())
+                .setBody("if (this.subresources == null) this.subresources = new " + subresourceClass.getName() + "();\n"
+                        + "return this.subresources;");
 
         javaClass.addImport("java.util.List");
         javaClass.addImport(Subresource.class);
@@ -30,6 +30,8 @@ public class SubsystemPlan implements ClassIndex {
 
     private Map<AddressTemplate, ClassPlan> index = new HashMap<>();
 
+    private ClassPlan subsystemClass;
+
     SubsystemPlan(ResourceMetaData meta) {
         this.meta = meta;
         plan();
@@ -45,6 +47,11 @@ public class SubsystemPlan implements ClassIndex {
         return this.enumPlans.stream().filter(e -> e.matches(requester, attr)).findFirst().orElse(null);
     }
 
+    @Override
+    public String getVisitorClassName() {
+        return this.subsystemClass.getFullyQualifiedClassName() + "Visitor";
+    }
+
     List<ClassPlan> getClassPlans() {
         return this.classPlans;
     }
@@ -54,7 +61,7 @@ public class SubsystemPlan implements ClassIndex {
     }
 
     void plan() {
-        ClassPlan subsystemClass = new ClassPlan(this.meta);
+        subsystemClass = new ClassPlan(this.meta);
         classPlans.add(subsystemClass);
 
         List<ResourceMetaData> list = new ArrayList<>();
@@ -0,0 +1,43 @@
+package org.wildfly.swarm.config.generator.generator;
+
+import org.jboss.forge.roaster.Roaster;
+import org.jboss.forge.roaster.model.source.JavaInterfaceSource;
+import org.jboss.forge.roaster.model.source.MethodSource;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+
+/**
+ * Creates the visitor interface of a subsystem, with typed callbacks for each resource class.
+ */
+public class VisitorFactory {
+
+    public JavaInterfaceSource create(SubsystemPlan plan) {
+        String visitorClassName = plan.getVisitorClassName();
+        int dot = visitorClassName.lastIndexOf('.');
+
+        JavaInterfaceSource type = Roaster.parse(
+                JavaInterfaceSource.class,
+                "public interface " + visitorClassName.substring(dot + 1) + " extends " + ResourceVisitor.class.getName() + " {}"
+        );
+        type.setPackage(visitorClassName.substring(0, dot));
+        type.getJavaDoc().setText("Typed callbacks for the resources of this subsystem. Unless overridden, they delegate to the untyped callbacks.");
+
+        for (ClassPlan each : plan.getClassPlans()) {
+            String resourceType = each.getFullyQualifiedClassName() + "<?>";
+
+            MethodSource<JavaInterfaceSource> visit = type.addMethod(
+                    "default boolean visit(" + resourceType + " resource) {\n"
+                            + "  return visitResource(resource);\n"
+                            + "}\n");
+            visit.getJavaDoc()
+                    .setText("Called before the children of a " + each.getClassName() + " resource")
+                    .addTagValue("@return", "false to skip the children");
+
+            MethodSource<JavaInterfaceSource> leave = type.addMethod(
+                    "default void leave(" + resourceType + " resource) {\n"
+                            + "  leaveResource(resource);\n"
+                            + "}\n");
+            leave.getJavaDoc().setText("Called after the children of a " + each.getClassName() + " resource");
+        }
+        return type;
+    }
+}
@@ -43,6 +43,10 @@ public class ResourceDescription extends ModelNode {
 
     static final String ACCESS_CONTROL = "access-control";
     static final String NOTIFICATIONS = "notifications";
+    public static final String CAPABILITIES = "capabilities";
+    public static final String CAPABILITY_REFERENCE = "capability-reference";
+    public static final String DYNAMIC = "dynamic";
+    public static final String DEFAULT = "default";
     private boolean isSingleton;
     private String singletonName;
 
@@ -63,6 +67,19 @@ public class ResourceDescription extends ModelNode {
         return hasAttributes() ? get(ATTRIBUTES).asPropertyList() : Collections.EMPTY_LIST;
     }
 
+    public boolean hasCapabilities() {
+        return hasDefined(CAPABILITIES);
+    }
+
+    /**
+     * The capabilities provided by the resource. Each capability carries a <code>name</code>
+     * and a <code>dynamic</code> flag.
+     */
+    @SuppressWarnings("unchecked")
+    public List<ModelNode> getCapabilities() {
+        return hasCapabilities() ? get(CAPABILITIES).asList() : Collections.EMPTY_LIST;
+    }
+
     public boolean hasAccessControl() {
         return hasDefined(ACCESS_CONTROL);
     }
@@ -0,0 +1,72 @@
+package org.wildfly.apigen.test.invocation;
+
+import java.util.Set;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ValueExpression;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.apigen.test.invocation.mail.subsystem.mailSession.MailSession;
+import org.wildfly.swarm.config.runtime.invocation.EntityAdapter;
+
+/**
+ * Verifies the in-place refresh of existing entities
+ */
+public class RefreshTestCase {
+
+    private EntityAdapter<MailSession> entityAdapter;
+
+    private ModelNode payload;
+
+    @Before
+    public void fixture() {
+        entityAdapter = new EntityAdapter<>(MailSession.class);
+        payload = new ModelNode();
+        payload.get("from").set("john.doe");
+        payload.get("debug").set(true);
+        payload.get("jndi-name").set("java:/mail/Test");
+    }
+
+    @Test
+    public void testUnchanged() throws Exception {
+        MailSession mailSession = entityAdapter.fromDMR("TestMail", payload);
+
+        Set<String> changed = entityAdapter.refresh(mailSession, payload.clone());
+
+        Assert.assertTrue(changed.isEmpty());
+        Assert.assertEquals("john.doe", mailSession.from());
+    }
+
+    @Test
+    public void testChangedAttributes() throws Exception {
+        MailSession mailSession = entityAdapter.fromDMR("TestMail", payload);
+
+        ModelNode update = payload.clone();
+        update.get("from").set("mary.doe");
+        update.get("debug").set(false);
+        Set<String> changed = entityAdapter.refresh(mailSession, update);
+
+        Assert.assertEquals(2, changed.size());
+        Assert.assertTrue(changed.contains("from"));
+        Assert.assertTrue(changed.contains("debug"));
+        Assert.assertEquals("mary.doe", mailSession.from());
+        Assert.assertEquals(Boolean.FALSE, mailSession.debug());
+        Assert.assertEquals("java:/mail/Test", mailSession.jndiName());
+    }
+
+    @Test
+    public void testExpressions() throws Exception {
+        MailSession mailSession = entityAdapter.fromDMR("TestMail", payload);
+
+        ModelNode update = payload.clone();
+        update.get("jndi-name").set(new ValueExpression("${mail.jndi.name}"));
+        Assert.assertTrue(entityAdapter.refresh(mailSession, update).contains("jndiName"));
+        Assert.assertEquals("${mail.jndi.name}", mailSession.get("jndiName"));
+        Assert.assertTrue(entityAdapter.refresh(mailSession, update).isEmpty());
+
+        // back to a regular value
+        Assert.assertTrue(entityAdapter.refresh(mailSession, payload).contains("jndiName"));
+        Assert.assertFalse(mailSession.containsKey("jndiName"));
+    }
+}
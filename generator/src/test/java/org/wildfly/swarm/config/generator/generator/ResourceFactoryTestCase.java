@@ -0,0 +1,264 @@
+package org.wildfly.swarm.config.generator.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.forge.roaster.model.JavaType;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.swarm.config.generator.model.ResourceDescription;
+import org.wildfly.swarm.config.runtime.model.AddressTemplate;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ACCESS_TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ATTRIBUTES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CHILDREN;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.MODEL_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.VALUE_TYPE;
+
+/**
+ * Compiles the classes generated for a synthetic subsystem and checks their structural methods.
+ * Unlike the other test cases, it doesn't need a running server.
+ */
+public class ResourceFactoryTestCase {
+
+    @ClassRule
+    public static TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Class<?> subsystem;
+
+    private static Class<?> pool;
+
+    private static Class<?> slottedPool;
+
+    @BeforeClass
+    public static void generate() throws Exception {
+        ClassLoader loader = compile(new ResourceFactory());
+        subsystem = loader.loadClass(className("/subsystem=test"));
+        pool = loader.loadClass(className("/subsystem=test/pool=*"));
+
+        // every attribute of the pool is kept in a slot
+        slottedPool = compile(new ResourceFactory(1)).loadClass(className("/subsystem=test/pool=*"));
+    }
+
+    @Test
+    public void testEqualGraphs() throws Exception {
+        Object one = graph();
+        Object other = graph();
+
+        Assert.assertNotSame(one, other);
+        Assert.assertEquals(one, other);
+        Assert.assertEquals(one.hashCode(), other.hashCode());
+        Assert.assertEquals(call(one, "subresources"), call(other, "subresources"));
+    }
+
+    @Test
+    public void testDifferingChildLists() throws Exception {
+        Object one = graph();
+        Object other = graph();
+        call(other, "pool", pool, newPool("OtherPool"));
+        Assert.assertNotEquals(one, other);
+
+        other = graph();
+        call(pools(other).get(0), "host", String.class, "db3");
+        Assert.assertNotEquals(one, other);
+
+        // absent child lists equal empty ones
+        Object empty = subsystem.getConstructor(String.class).newInstance("test");
+        Object emptied = subsystem.getConstructor(String.class).newInstance("test");
+        call(emptied, "pools", List.class, new ArrayList<>());
+        Assert.assertEquals(empty, emptied);
+        Assert.assertEquals(empty.hashCode(), emptied.hashCode());
+    }
+
+    @Test
+    public void testPrimitivePresence() throws Exception {
+        Object unset = newPool("ExamplePool");
+        Object zero = call(newPool("ExamplePool"), "maxPoolSize", int.class, 0);
+
+        Assert.assertNull(call(unset, "maxPoolSize"));
+        Assert.assertEquals(0, call(zero, "maxPoolSize"));
+        Assert.assertEquals(call(unset, "maxPoolSizeAsInt"), call(zero, "maxPoolSizeAsInt"));
+        Assert.assertNotEquals(unset, zero);
+
+        call(zero, "maxPoolSize", Integer.class, null);
+        Assert.assertEquals(unset, zero);
+        Assert.assertEquals(unset.hashCode(), zero.hashCode());
+    }
+
+    @Test
+    public void testDeepCopyIndependence() throws Exception {
+        Object original = graph();
+        call(original, "freeze");
+        Object copy = call(original, "deepCopy");
+
+        Assert.assertEquals(original, copy);
+        Assert.assertFalse((Boolean) call(copy, "isFrozen"));
+
+        Object copiedPool = pools(copy).get(0);
+        Assert.assertNotSame(pools(original).get(0), copiedPool);
+        call(copiedPool, "host", String.class, "db3");
+        call(copiedPool, "maxPoolSize", int.class, 40);
+        call(copy, "pool", pool, newPool("OtherPool"));
+
+        Assert.assertEquals(graph(), original);
+        Assert.assertEquals(Arrays.asList("db1", "db2"), call(pools(original).get(0), "hosts"));
+        Assert.assertEquals(1, pools(original).size());
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        Object prototype = call(newPool("ExamplePool"), "maxPoolSize", int.class, 20);
+        call(prototype, "host", String.class, "db1");
+
+        Object renamed = call(prototype, "copy", String.class, "OtherPool");
+        Assert.assertEquals("OtherPool", call(renamed, "getKey"));
+        Assert.assertEquals(20, call(renamed, "maxPoolSize"));
+        Assert.assertNotEquals(prototype, renamed);
+        Assert.assertEquals(prototype, call(renamed, "copy", String.class, "ExamplePool"));
+
+        Object copy = pool.getConstructor(String.class, pool).newInstance("ExamplePool", prototype);
+        Assert.assertEquals(prototype, copy);
+        call(copy, "host", String.class, "db2");
+        Assert.assertEquals(Collections.singletonList("db1"), call(prototype, "hosts"));
+        Assert.assertNull(call(copy, "enabled"));
+    }
+
+    @Test
+    public void testSlottedCopy() throws Exception {
+        Constructor<?> constructor = slottedPool.getConstructor(String.class);
+        Object prototype = call(constructor.newInstance("ExamplePool"), "maxPoolSize", Integer.class, 20);
+        call(prototype, "host", String.class, "db1");
+
+        Object copy = call(prototype, "copy", String.class, "ExamplePool");
+        Assert.assertEquals(prototype, copy);
+        Assert.assertEquals(prototype.hashCode(), copy.hashCode());
+
+        call(copy, "host", String.class, "db2");
+        Assert.assertNotEquals(prototype, copy);
+        Assert.assertEquals(Collections.singletonList("db1"), call(prototype, "hosts"));
+    }
+
+    private static Object graph() throws Exception {
+        Object root = subsystem.getConstructor(String.class).newInstance("test");
+        Object example = newPool("ExamplePool");
+        call(example, "jndiName", String.class, "java:/ExamplePool");
+        call(example, "maxPoolSize", int.class, 20);
+        call(example, "enabled", boolean.class, false);
+        call(example, "host", String.class, "db1");
+        call(example, "host", String.class, "db2");
+        return call(root, "pool", pool, example);
+    }
+
+    private static Object newPool(String key) throws Exception {
+        return pool.getConstructor(String.class).newInstance(key);
+    }
+
+    private static List<?> pools(Object root) throws Exception {
+        return (List<?>) call(call(root, "subresources"), "pools");
+    }
+
+    private static Object call(Object target, String name) throws Exception {
+        return target.getClass().getMethod(name).invoke(target);
+    }
+
+    private static Object call(Object target, String name, Class<?> type, Object value) throws Exception {
+        Method method = target.getClass().getMethod(name, type);
+        return method.invoke(target, value);
+    }
+
+    private static String className(String address) throws Exception {
+        return new SubsystemPlan(new ResourceMetaData(AddressTemplate.of("/subsystem=test"), description()))
+                .lookup(AddressTemplate.of(address))
+                .getFullyQualifiedClassName();
+    }
+
+    /**
+     * Generates the classes of the subsystem like the {@link Generator} and compiles them
+     */
+    private static ClassLoader compile(ResourceFactory resourceFactory) throws Exception {
+        SubsystemPlan plan = new SubsystemPlan(new ResourceMetaData(AddressTemplate.of("/subsystem=test"), description()));
+        List<SourceFactory> factories = Arrays.asList(resourceFactory, new ConsumerFactory(), new SupplierFactory());
+
+        Path sources = tmp.newFolder().toPath();
+        List<File> files = new ArrayList<>();
+        for (EnumPlan enumPlan : plan.getEnumPlans()) {
+            files.add(write(sources, new EnumFactory().create(plan, enumPlan)));
+        }
+        for (ClassPlan classPlan : plan.getClassPlans()) {
+            for (SourceFactory factory : factories) {
+                files.add(write(sources, factory.create(plan, classPlan)));
+            }
+        }
+        files.add(write(sources, new VisitorFactory().create(plan)));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull("No system java compiler", compiler);
+        File classes = tmp.newFolder();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.getPath()),
+                    null, fileManager.getJavaFileObjectsFromFiles(files)).call();
+            Assert.assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+        }
+        return new URLClassLoader(new URL[]{classes.toURI().toURL()}, ResourceFactoryTestCase.class.getClassLoader());
+    }
+
+    private static File write(Path sources, JavaType<?> type) throws IOException {
+        Path dir = sources.resolve(type.getPackage().replace('.', File.separatorChar));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(type.getName() + ".java");
+        Files.write(file, type.toString().getBytes("UTF-8"));
+        return file.toFile();
+    }
+
+    /**
+     * A subsystem with a list of pools, which have string, numeric, boolean and list attributes
+     */
+    private static ResourceDescription description() {
+        ModelNode pool = new ModelNode();
+        pool.get(DESCRIPTION).set("A pool");
+        attribute(pool, "jndi-name", ModelType.STRING);
+        attribute(pool, "max-pool-size", ModelType.INT);
+        attribute(pool, "enabled", ModelType.BOOLEAN);
+        attribute(pool, "hosts", ModelType.LIST).get(VALUE_TYPE).set(ModelType.STRING);
+
+        ModelNode subsystem = new ModelNode();
+        subsystem.get(DESCRIPTION).set("The test subsystem");
+        subsystem.get(ATTRIBUTES).setEmptyObject();
+        subsystem.get(CHILDREN, "pool", DESCRIPTION).set("The pools");
+        subsystem.get(CHILDREN, "pool", MODEL_DESCRIPTION, "*").set(pool);
+        return new ResourceDescription(subsystem);
+    }
+
+    private static ModelNode attribute(ModelNode resource, String name, ModelType type) {
+        ModelNode attribute = resource.get(ATTRIBUTES, name);
+        attribute.get(TYPE).set(type);
+        attribute.get(DESCRIPTION).set("The " + name);
+        attribute.get(ACCESS_TYPE).set("read-write");
+        return attribute;
+    }
+}
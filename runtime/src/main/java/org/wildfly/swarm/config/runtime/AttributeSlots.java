@@ -0,0 +1,158 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Sparse attribute storage for resources with many attributes.
+ * <p>
+ * Values are addressed by attribute ordinal (see {@link ModelNodeBinding#ordinal()}). Only attributes that have
+ * been set occupy a slot: a presence bitmap tracks the set ordinals, the values are kept densely packed in ordinal
+ * order. The value array grows by half its length when full, hence setting many attributes in a row doesn't copy
+ * it every time. Setting an attribute to <code>null</code> clears it.
+ */
+public final class AttributeSlots {
+
+    private static final Object[] EMPTY = {};
+
+    private final long[] presence;
+
+    private Object[] values = EMPTY;
+
+    private int size;
+
+    public AttributeSlots(int capacity) {
+        this.presence = new long[(capacity + 63) >>> 6];
+    }
+
+    public boolean isSet(int ordinal) {
+        return (presence[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public Object get(int ordinal) {
+        return isSet(ordinal) ? values[rank(ordinal)] : null;
+    }
+
+    /**
+     * @param ordinal the attribute ordinal
+     * @param value the new value, null clears the slot
+     * @return the previous value
+     */
+    public Object set(int ordinal, Object value) {
+        if (value == null) {
+            return clear(ordinal);
+        }
+        int rank = rank(ordinal);
+        if (isSet(ordinal)) {
+            Object previous = values[rank];
+            values[rank] = value;
+            return previous;
+        }
+        if (size == values.length) {
+            int capacity = Math.min(Math.max(4, size + (size >> 1)), presence.length << 6);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(values, rank, values, rank + 1, size - rank);
+        values[rank] = value;
+        size++;
+        presence[ordinal >>> 6] |= 1L << ordinal;
+        return null;
+    }
+
+    /**
+     * @param ordinal the attribute ordinal
+     * @return the previous value
+     */
+    public Object clear(int ordinal) {
+        if (!isSet(ordinal)) {
+            return null;
+        }
+        int rank = rank(ordinal);
+        Object previous = values[rank];
+        System.arraycopy(values, rank + 1, values, rank, size - rank - 1);
+        values[--size] = null;
+        presence[ordinal >>> 6] &= ~(1L << ordinal);
+        return previous;
+    }
+
+    /**
+     * @return the number of attributes set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterates the set ordinals: <code>for (int i = slots.nextSetSlot(0); i &gt;= 0; i = slots.nextSetSlot(i + 1))</code>
+     *
+     * @param from the ordinal to start from, inclusive
+     * @return the next set ordinal or -1
+     */
+    public int nextSetSlot(int from) {
+        int word = from >>> 6;
+        if (word >= presence.length) {
+            return -1;
+        }
+        long bits = presence[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == presence.length) {
+                return -1;
+            }
+            bits = presence[word];
+        }
+    }
+
+    /**
+     * Replaces the values of this storage with the values of another one. The values themselves are not copied.
+     *
+     * @param source a storage of the same capacity
+     */
+    public void copyFrom(AttributeSlots source) {
+        if (source.presence.length != presence.length) {
+            throw new IllegalArgumentException("Capacity mismatch: " + source.presence.length + " != " + presence.length);
+        }
+        System.arraycopy(source.presence, 0, presence, 0, presence.length);
+        values = source.size == 0 ? EMPTY : Arrays.copyOf(source.values, source.size);
+        size = source.size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AttributeSlots)) {
+            return false;
+        }
+        AttributeSlots that = (AttributeSlots) o;
+        if (!Arrays.equals(presence, that.presence)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!values[i].equals(that.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(presence);
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + values[i].hashCode();
+        }
+        return hash;
+    }
+
+    private int rank(int ordinal) {
+        int word = ordinal >>> 6;
+        int rank = 0;
+        for (int i = 0; i < word; i++) {
+            rank += Long.bitCount(presence[i]);
+        }
+        return rank + Long.bitCount(presence[word] & ((1L << ordinal) - 1));
+    }
+}
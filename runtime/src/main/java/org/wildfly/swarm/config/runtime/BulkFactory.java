@@ -0,0 +1,67 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Creates many resources that differ from a prototype in their name and a few attributes, i.e. data sources
+ * per tenant:
+ *
+ * <pre>
+ * KeyedList&lt;DataSource&gt; dataSources = BulkFactory.create(prototype, tenants.stream()
+ *         .map(tenant -&gt; BulkFactory.variant(tenant + "DS", ds -&gt; ds.jndiName("java:/" + tenant))), tenants.size());
+ * datasources.dataSources(dataSources);
+ * </pre>
+ *
+ * Copies are created through the generated copy constructors. They have no listeners, hence applying the
+ * overrides fires no events, and the result is presized.
+ */
+public final class BulkFactory {
+
+    private BulkFactory() {
+    }
+
+    /**
+     * @param prototype the resource to copy
+     * @param variants the overrides by resource name, applied to the copies in iteration order
+     * @return the copies
+     */
+    public static <T extends Keyed> KeyedList<T> create(Prototype<T> prototype, Map<String, ? extends Consumer<? super T>> variants) {
+        KeyedList<T> result = new KeyedList<>(variants.size());
+        for (Map.Entry<String, ? extends Consumer<? super T>> variant : variants.entrySet()) {
+            result.add(copy(prototype, variant.getKey(), variant.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * @param prototype the resource to copy
+     * @param variants the resource names and their overrides
+     * @param expectedSize the expected number of variants, used to presize the result
+     * @return the copies
+     */
+    public static <T extends Keyed> KeyedList<T> create(Prototype<T> prototype, Stream<Map.Entry<String, Consumer<? super T>>> variants, int expectedSize) {
+        KeyedList<T> result = new KeyedList<>(expectedSize);
+        variants.forEachOrdered(variant -> result.add(copy(prototype, variant.getKey(), variant.getValue())));
+        return result;
+    }
+
+    /**
+     * @param key the resource name
+     * @param overrides the modifications of the copy, may be null
+     * @return a variant for {@link #create(Prototype, Stream, int)}
+     */
+    public static <T> Map.Entry<String, Consumer<? super T>> variant(String key, Consumer<? super T> overrides) {
+        return new AbstractMap.SimpleImmutableEntry<>(key, overrides);
+    }
+
+    private static <T> T copy(Prototype<T> prototype, String key, Consumer<? super T> overrides) {
+        T copy = prototype.copy(key);
+        if (overrides != null) {
+            overrides.accept(copy);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,33 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Depicts a capability provided by the resources a config class represents.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Repeatable(Capabilities.class)
+public @interface Capability {
+
+    /**
+     * The capability name
+     *
+     * @return
+     */
+    String value();
+
+    /**
+     * Dynamic capabilities are qualified by the resource name,
+     * i.e. <code>org.wildfly.data-source.ExampleDS</code>
+     *
+     * @return
+     */
+    boolean dynamic() default false;
+}
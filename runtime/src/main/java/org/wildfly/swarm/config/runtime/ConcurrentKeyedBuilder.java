@@ -0,0 +1,92 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Collects resources of one type from several threads, i.e. drivers contributed to the datasources
+ * subsystem by modules that initialize in parallel:
+ *
+ * <pre>
+ * ConcurrentKeyedBuilder&lt;JDBCDriver&gt; drivers = new ConcurrentKeyedBuilder&lt;&gt;();
+ * // on any thread
+ * drivers.add(new JDBCDriver("h2").driverModuleName("com.h2database.h2"));
+ * // once all contributors are done
+ * datasources.addAllJdbcDrivers(drivers);
+ * </pre>
+ *
+ * Additions don't block each other. The resources are finalized in the order of their names, independent of the
+ * order in which the contributors ran, hence the resulting model is the same for every boot.
+ *
+ * @param <T> the resource type
+ */
+public class ConcurrentKeyedBuilder<T extends Keyed> {
+
+    private final ConcurrentSkipListMap<String, T> resources = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param value the resource
+     * @return this
+     * @throws IllegalArgumentException if another resource of the same name has been added
+     */
+    public ConcurrentKeyedBuilder<T> add(T value) {
+        T previous = resources.putIfAbsent(value.getKey(), value);
+        if (previous != null && previous != value) {
+            throw new IllegalArgumentException("Duplicate resource name: " + value.getKey());
+        }
+        return this;
+    }
+
+    /**
+     * @see #add(Keyed)
+     */
+    public ConcurrentKeyedBuilder<T> addAll(Collection<? extends T> values) {
+        for (T value : values) {
+            add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the resource of the given name, creating it if absent. Contributors that configure the same resource
+     * receive the same instance, but must coordinate changes to it themselves.
+     *
+     * @param key the resource name
+     * @param factory creates the resource, i.e. <code>JDBCDriver::new</code>
+     * @return the resource
+     */
+    public T getOrCreate(String key, Function<String, ? extends T> factory) {
+        return resources.computeIfAbsent(key, factory);
+    }
+
+    public boolean containsKey(String key) {
+        return resources.containsKey(key);
+    }
+
+    /**
+     * @return the number of resources added so far
+     */
+    public int size() {
+        return resources.size();
+    }
+
+    /**
+     * @return the resources ordered by name
+     */
+    public KeyedList<T> build() {
+        KeyedList<T> result = new KeyedList<>(resources.size());
+        appendTo(result);
+        return result;
+    }
+
+    /**
+     * Adds the resources ordered by name. Resources that exist in the target are replaced in place,
+     * listeners of the target are notified once.
+     *
+     * @param target the list to add to
+     */
+    public void appendTo(KeyedList<T> target) {
+        target.addAll(resources.values());
+    }
+}
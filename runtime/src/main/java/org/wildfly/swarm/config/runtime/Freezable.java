@@ -0,0 +1,15 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Resources that can be made read-only.
+ * Once frozen, all mutators of a resource fail with an {@link IllegalStateException}.
+ */
+public interface Freezable {
+
+    /**
+     * Makes this resource read-only. Does not affect child resources.
+     */
+    void freeze();
+
+    boolean isFrozen();
+}
@@ -0,0 +1,436 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion ordered list of resources, indexed by resource name.
+ * <p>
+ * Lookup, replacement and removal by key are constant time operations. Removal by key leaves a
+ * tombstone behind that is compacted with the next positional modification, hence removing many elements
+ * in a row does not shift the list repeatedly. Reads never compact, so a list that is no longer modified
+ * may be read concurrently. Positional reads are linear while tombstones remain, hence the list is no
+ * {@link java.util.RandomAccess} list and should be iterated rather than read by index.
+ * <p>
+ * Resource names are unique: unlike {@link List#add(Object)}, adding a resource with a name that already
+ * exists replaces the existing resource in place and the size remains unchanged.
+ *
+ * @param <T> the resource type
+ */
+public class KeyedList<T extends Keyed> extends AbstractList<T> implements Freezable {
+
+    private final ArrayList<T> elements;
+
+    private final HashMap<String, Integer> positions;
+
+    private int tombstones;
+
+    private boolean frozen;
+
+    private List<ChangeListener<? super T>> listeners;
+
+    public KeyedList() {
+        this(10);
+    }
+
+    public KeyedList(int initialCapacity) {
+        this.elements = new ArrayList<>(initialCapacity);
+        this.positions = new HashMap<>(Math.max(16, (int) (initialCapacity / .75f) + 1));
+    }
+
+    public KeyedList(Collection<? extends T> values) {
+        this(values.size());
+        addAll(values);
+    }
+
+    /**
+     * Turns a list into a keyed list
+     *
+     * @param values a list of resources
+     * @return the list itself if it already is a keyed list, a keyed copy otherwise
+     */
+    public static <T extends Keyed> KeyedList<T> wrap(List<T> values) {
+        if (values instanceof KeyedList) {
+            return (KeyedList<T>) values;
+        }
+        return values != null ? new KeyedList<>(values) : new KeyedList<>();
+    }
+
+    /**
+     * @param key the resource name
+     * @return the resource or null
+     */
+    public T getByKey(String key) {
+        Integer position = positions.get(key);
+        return position != null ? elements.get(position) : null;
+    }
+
+    public boolean containsKey(String key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * Replaces the resource of the same name
+     *
+     * @param value the new resource
+     * @return the previous resource or null if there was none, in which case the list remains unchanged
+     */
+    public T replace(T value) {
+        checkNotFrozen();
+        Integer position = positions.get(value.getKey());
+        if (position == null) {
+            return null;
+        }
+        T previous = elements.set(position, value);
+        changed(previous, value);
+        return previous;
+    }
+
+    /**
+     * @param key the resource name
+     * @return the removed resource or null
+     */
+    public T removeByKey(String key) {
+        checkNotFrozen();
+        Integer position = positions.remove(key);
+        if (position == null) {
+            return null;
+        }
+        T previous = elements.set(position, null);
+        tombstones++;
+        modCount++;
+        changed(previous, null);
+        return previous;
+    }
+
+    /**
+     * Appends a resource, or replaces the resource of the same name in place
+     *
+     * @param value the resource
+     * @return false if the resource itself is already contained
+     */
+    @Override
+    public boolean add(T value) {
+        checkNotFrozen();
+        String key = value.getKey();
+        Integer position = positions.get(key);
+        T previous = null;
+        if (position != null) {
+            previous = elements.set(position, value);
+            if (previous == value) {
+                return false;
+            }
+        } else {
+            if (tombstones > elements.size() / 2) {
+                compact();
+            }
+            positions.put(key, elements.size());
+            elements.add(value);
+            modCount++;
+        }
+        changed(previous, value);
+        return true;
+    }
+
+    /**
+     * Appends resources, or replaces resources of the same name in place. Listeners are notified once.
+     *
+     * @param values the resources
+     * @return whether the list changed
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> values) {
+        checkNotFrozen();
+        if (tombstones > elements.size() / 2) {
+            compact();
+        }
+        elements.ensureCapacity(elements.size() + values.size());
+        List<T> removed = listeners != null ? new ArrayList<>() : null;
+        List<T> added = listeners != null ? new ArrayList<>(values.size()) : null;
+        boolean modified = false;
+        for (T value : values) {
+            String key = value.getKey();
+            Integer position = positions.get(key);
+            if (position != null) {
+                T previous = elements.set(position, value);
+                if (previous == value) {
+                    continue;
+                }
+                if (removed != null) {
+                    removed.add(previous);
+                }
+            } else {
+                positions.put(key, elements.size());
+                elements.add(value);
+                modCount++;
+            }
+            if (added != null) {
+                added.add(value);
+            }
+            modified = true;
+        }
+        if (modified && listeners != null) {
+            notifyListeners(removed, added);
+        }
+        return modified;
+    }
+
+    @Override
+    public void add(int index, T value) {
+        checkNotFrozen();
+        if (positions.containsKey(value.getKey())) {
+            add(value);
+            return;
+        }
+        compact();
+        elements.add(index, value);
+        reindex(index);
+        modCount++;
+        changed(null, value);
+    }
+
+    @Override
+    public T get(int index) {
+        if (tombstones == 0) {
+            return elements.get(index);
+        }
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int remaining = index;
+        for (int i = 0; ; i++) {
+            T element = elements.get(i);
+            if (element != null && remaining-- == 0) {
+                return element;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public T set(int index, T value) {
+        checkNotFrozen();
+        compact();
+        Integer position = positions.get(value.getKey());
+        if (position != null && position != index) {
+            throw new IllegalArgumentException("Duplicate resource name: " + value.getKey());
+        }
+        T previous = elements.set(index, value);
+        positions.remove(previous.getKey());
+        positions.put(value.getKey(), index);
+        changed(previous, value);
+        return previous;
+    }
+
+    @Override
+    public T remove(int index) {
+        checkNotFrozen();
+        compact();
+        T previous = elements.remove(index);
+        positions.remove(previous.getKey());
+        reindex(index);
+        modCount++;
+        changed(previous, null);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (contains(o)) {
+            removeByKey(((Keyed) o).getKey());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Keyed)) {
+            return false;
+        }
+        Integer position = positions.get(((Keyed) o).getKey());
+        return position != null && elements.get(position).equals(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!contains(o)) {
+            return -1;
+        }
+        int position = positions.get(((Keyed) o).getKey());
+        if (tombstones == 0) {
+            return position;
+        }
+        int index = 0;
+        for (int i = 0; i < position; i++) {
+            if (elements.get(i) != null) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public void clear() {
+        checkNotFrozen();
+        List<T> removed = listeners != null ? new ArrayList<>(this) : Collections.emptyList();
+        elements.clear();
+        positions.clear();
+        tombstones = 0;
+        modCount++;
+        notifyListeners(removed, Collections.emptyList());
+    }
+
+    @Override
+    public int size() {
+        return elements.size() - tombstones;
+    }
+
+    @Override
+    public void freeze() {
+        compact();
+        this.frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Registers a listener that is notified after any modification of the list
+     */
+    public void addChangeListener(ChangeListener<? super T> listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(1);
+        }
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener<? super T> listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    private void changed(T removed, T added) {
+        if (listeners != null) {
+            notifyListeners(removed != null ? Collections.singletonList(removed) : Collections.emptyList(),
+                    added != null ? Collections.singletonList(added) : Collections.emptyList());
+        }
+    }
+
+    private void notifyListeners(List<T> removed, List<T> added) {
+        if (listeners != null) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).changed(removed, added);
+            }
+        }
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new UnsupportedOperationException("List is frozen");
+    }
+
+    private void compact() {
+        if (tombstones == 0) return;
+        int target = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            T element = elements.get(i);
+            if (element != null) {
+                elements.set(target++, element);
+            }
+        }
+        elements.subList(target, elements.size()).clear();
+        tombstones = 0;
+        reindex(0);
+    }
+
+    /**
+     * Skips tombstones instead of compacting, removal leaves a tombstone and doesn't shift the cursor
+     */
+    private class Itr implements Iterator<T> {
+
+        private int cursor;
+
+        private T last;
+
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            skipTombstones();
+            return cursor < elements.size();
+        }
+
+        @Override
+        public T next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = elements.get(cursor++);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeByKey(last.getKey());
+            last = null;
+            expectedModCount = modCount;
+        }
+
+        private void skipTombstones() {
+            while (cursor < elements.size() && elements.get(cursor) == null) {
+                cursor++;
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private void reindex(int from) {
+        for (int i = from; i < elements.size(); i++) {
+            positions.put(elements.get(i).getKey(), i);
+        }
+    }
+
+    /**
+     * Notified after a modification of a keyed list
+     *
+     * @param <T> the resource type
+     */
+    @FunctionalInterface
+    public interface ChangeListener<T> {
+
+        /**
+         * @param removed the resources that left the list, including replaced ones
+         * @param added the resources that entered the list
+         */
+        void changed(List<? extends T> removed, List<? extends T> added);
+    }
+}
@@ -21,4 +21,25 @@ public @interface ModelNodeBinding {
      * @return
      */
     String detypedName();
+
+    /**
+     * The capability referenced by the attribute value, if any
+     *
+     * @return
+     */
+    String capabilityReference() default "";
+
+    /**
+     * The position of the attribute within its resource
+     *
+     * @return
+     */
+    int ordinal() default -1;
+
+    /**
+     * The server side default of the attribute, as DMR string value. Empty if there is none.
+     *
+     * @return
+     */
+    String defaultValue() default "";
 }
\ No newline at end of file
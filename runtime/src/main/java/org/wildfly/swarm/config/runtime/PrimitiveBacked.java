@@ -0,0 +1,48 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Resources that keep their numeric and boolean attributes in primitive fields.
+ * <p>
+ * All <code>Integer</code>, <code>Long</code>, <code>Boolean</code> and <code>Double</code> attributes of such a resource
+ * can be accessed by attribute ordinal (see {@link ModelNodeBinding#ordinal()}) without boxing.
+ */
+public interface PrimitiveBacked {
+
+    /**
+     * @param ordinal the attribute ordinal
+     * @return true if the attribute has been set
+     */
+    boolean isPrimitiveSet(int ordinal);
+
+    default int getIntAttribute(int ordinal) {
+        throw new IllegalArgumentException("No int attribute: " + ordinal);
+    }
+
+    default void setIntAttribute(int ordinal, int value) {
+        throw new IllegalArgumentException("No int attribute: " + ordinal);
+    }
+
+    default long getLongAttribute(int ordinal) {
+        throw new IllegalArgumentException("No long attribute: " + ordinal);
+    }
+
+    default void setLongAttribute(int ordinal, long value) {
+        throw new IllegalArgumentException("No long attribute: " + ordinal);
+    }
+
+    default boolean getBooleanAttribute(int ordinal) {
+        throw new IllegalArgumentException("No boolean attribute: " + ordinal);
+    }
+
+    default void setBooleanAttribute(int ordinal, boolean value) {
+        throw new IllegalArgumentException("No boolean attribute: " + ordinal);
+    }
+
+    default double getDoubleAttribute(int ordinal) {
+        throw new IllegalArgumentException("No double attribute: " + ordinal);
+    }
+
+    default void setDoubleAttribute(int ordinal, double value) {
+        throw new IllegalArgumentException("No double attribute: " + ordinal);
+    }
+}
@@ -0,0 +1,15 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Resources that can be copied under another name, see {@link BulkFactory}.
+ *
+ * @param <T> the resource type
+ */
+public interface Prototype<T> {
+
+    /**
+     * @param key the name of the copy
+     * @return a copy of the attributes and child resources of this resource
+     */
+    T copy(String key);
+}
@@ -0,0 +1,28 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Callbacks of a depth first walk over an entity graph, see {@link Visitable}.
+ * <p>
+ * The generator emits a visitor per subsystem, with typed callbacks for each resource class of the subsystem.
+ * Unless overridden, these delegate to the untyped callbacks below.
+ */
+public interface ResourceVisitor {
+
+    /**
+     * Called before the children of a resource
+     *
+     * @param resource the resource
+     * @return false to skip the children of the resource and {@link #leaveResource(Object)}
+     */
+    default boolean visitResource(Object resource) {
+        return true;
+    }
+
+    /**
+     * Called after the children of a resource
+     *
+     * @param resource the resource
+     */
+    default void leaveResource(Object resource) {
+    }
+}
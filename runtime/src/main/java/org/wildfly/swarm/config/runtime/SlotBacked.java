@@ -0,0 +1,9 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Resources that keep their attributes in {@link AttributeSlots} instead of one field per attribute.
+ */
+public interface SlotBacked {
+
+    AttributeSlots attributeSlots();
+}
@@ -0,0 +1,10 @@
+package org.wildfly.swarm.config.runtime;
+
+/**
+ * Resources that walk themselves and their children without reflection.
+ * Regular child resources are visited before singletons.
+ */
+public interface Visitable {
+
+    void accept(ResourceVisitor visitor);
+}
@@ -0,0 +1,168 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+
+/**
+ * Reflective view of an entity attribute declared through {@link ModelNodeBinding}.
+ * Bindings are resolved once per type and cached.
+ */
+public class AttributeBinding {
+
+    private static HashMap<Class<?>, List<AttributeBinding>> bindings = new HashMap<>();
+
+    private static HashMap<Class<?>, AttributeBinding[]> ordinals = new HashMap<>();
+
+    private final String javaName;
+
+    private final String detypedName;
+
+    private final Method getter;
+
+    private final String capabilityReference;
+
+    private final int ordinal;
+
+    private final String defaultValue;
+
+    private Method setter;
+
+    private AttributeBinding(Method getter, ModelNodeBinding binding) {
+        this.javaName = getter.getName();
+        this.detypedName = binding.detypedName();
+        this.getter = getter;
+        this.capabilityReference = binding.capabilityReference();
+        this.ordinal = binding.ordinal();
+        this.defaultValue = binding.defaultValue();
+    }
+
+    /**
+     * The attribute bindings of a type, including inherited ones, ordered by their detyped name.
+     *
+     * @param type the entity type
+     * @return an unmodifiable list of bindings
+     */
+    public static synchronized List<AttributeBinding> of(Class<?> type) {
+        if (!bindings.containsKey(type)) {
+            List<AttributeBinding> result = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                ModelNodeBinding binding = method.getAnnotation(ModelNodeBinding.class);
+                if (binding != null && !method.isBridge() && method.getParameterCount() == 0) {
+                    result.add(new AttributeBinding(method, binding));
+                }
+            }
+            result.sort(Comparator.comparing(AttributeBinding::getDetypedName));
+            bindings.put(type, Collections.unmodifiableList(result));
+        }
+        return bindings.get(type);
+    }
+
+    /**
+     * The attribute bindings of a type, indexed by their ordinal
+     *
+     * @param type the entity type
+     * @return the bindings, null for unused ordinals
+     */
+    public static synchronized AttributeBinding[] ordinals(Class<?> type) {
+        if (!ordinals.containsKey(type)) {
+            List<AttributeBinding> all = of(type);
+            int max = -1;
+            for (AttributeBinding binding : all) {
+                max = Math.max(max, binding.getOrdinal());
+            }
+            AttributeBinding[] result = new AttributeBinding[max + 1];
+            for (AttributeBinding binding : all) {
+                if (binding.getOrdinal() >= 0) {
+                    result[binding.getOrdinal()] = binding;
+                }
+            }
+            ordinals.put(type, result);
+        }
+        return ordinals.get(type);
+    }
+
+    public String getJavaName() {
+        return javaName;
+    }
+
+    public String getDetypedName() {
+        return detypedName;
+    }
+
+    /**
+     * @return the attribute ordinal or -1 if not assigned
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public Class<?> getPropertyType() {
+        return getter.getReturnType();
+    }
+
+    public Method getGetter() {
+        return getter;
+    }
+
+    public boolean hasCapabilityReference() {
+        return !capabilityReference.isEmpty();
+    }
+
+    public String getCapabilityReference() {
+        return capabilityReference;
+    }
+
+    public boolean hasDefaultValue() {
+        return !defaultValue.isEmpty();
+    }
+
+    /**
+     * @return the server side default as DMR string value, empty if there is none
+     */
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Reads the attribute value from an entity
+     *
+     * @param entity the entity
+     * @return the java value, might be null
+     */
+    public Object get(Object entity) {
+        try {
+            return getter.invoke(entity);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to read attribute " + javaName + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Writes the attribute value to an entity, using the generated mutator
+     *
+     * @param entity the entity
+     * @param value the java value
+     */
+    public void set(Object entity, Object value) {
+        try {
+            if (setter == null) {
+                setter = getter.getDeclaringClass().getMethod(javaName, getPropertyType());
+            }
+            setter.invoke(entity, value);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to write attribute " + javaName + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeBinding{" + detypedName + "}";
+    }
+}
@@ -0,0 +1,250 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Persists the marshalled operations of an entity graph, so that unchanged graphs are not marshalled again
+ * on the next start.
+ * <p>
+ * The snapshot file holds a fingerprint of the entity graph, a digest of its {@link EntityCodec} encoding, and
+ * the operations in DMR binary form.
+ * When the fingerprint of the graph matches, the file is memory mapped and the operations are replayed
+ * from it. Otherwise the graph is marshalled and the snapshot is replaced:
+ *
+ * <pre>
+ * List&lt;ModelNode&gt; ops = new BootSnapshot(Paths.get("config.dmr")).marshal(root);
+ * </pre>
+ */
+public class BootSnapshot {
+
+    private static final Logger log = Logger.getLogger(BootSnapshot.class.getName());
+
+    private static final int MAGIC = 0x444D5253;
+
+    private static final int VERSION = 2;
+
+    private final Path file;
+
+    public BootSnapshot(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the operations of the snapshot, if it matches the entity graph, or marshals the graph
+     * and replaces the snapshot.
+     *
+     * @param root the root entity
+     * @param options the marshalling options, they are part of the fingerprint
+     * @return the add operations, ordered like {@link Marshaller#marshal(Object, Marshaller.Option...)}
+     */
+    public List<ModelNode> marshal(Object root, Marshaller.Option... options) throws Exception {
+        byte[] fingerprint = fingerprint(root, options);
+        Optional<List<ModelNode>> replay = load(fingerprint);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+
+        List<ModelNode> operations = Marshaller.marshal(root, options);
+        try {
+            store(fingerprint, operations);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to write boot snapshot " + file, e);
+        }
+        return operations;
+    }
+
+    /**
+     * Reads the operations of the snapshot
+     *
+     * @param fingerprint the expected fingerprint
+     * @return the operations, empty if the file does not exist, can't be read or doesn't match
+     */
+    public Optional<List<ModelNode>> load(byte[] fingerprint) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+
+            // lengths are bounded by the remaining bytes, a corrupted file must not exhaust the heap
+            int length = buffer.getInt();
+            if (length != fingerprint.length || length > buffer.remaining()) {
+                return Optional.empty();
+            }
+            byte[] stored = new byte[length];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, fingerprint)) {
+                return Optional.empty();
+            }
+
+            // every operation takes at least one byte
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) {
+                log.warning("Ignoring corrupted boot snapshot " + file);
+                return Optional.empty();
+            }
+            List<ModelNode> operations = new ArrayList<>(count);
+            DataInput in = new DataInputStream(new ByteBufferInputStream(buffer));
+            for (int i = 0; i < count; i++) {
+                ModelNode operation = new ModelNode();
+                operation.readExternal(in);
+                operations.add(operation);
+            }
+            return Optional.of(operations);
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Ignoring unreadable boot snapshot " + file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replaces the snapshot. The file is written next to the snapshot and moved into place.
+     *
+     * @param fingerprint the fingerprint of the entity graph
+     * @param operations the marshalled operations
+     */
+    public void store(byte[] fingerprint, List<ModelNode> operations) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                DataOutput out = stream;
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(fingerprint.length);
+                out.write(fingerprint);
+                out.writeInt(operations.size());
+                for (ModelNode operation : operations) {
+                    operation.writeExternal(out);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Computes a fingerprint over the marshalling options and the {@link EntityCodec} encoding of an entity graph,
+     * i.e. its types, keys, attribute values and children in their order. The fingerprint is a SHA-256 digest,
+     * stable across JVM instances.
+     *
+     * @param root the root entity
+     * @param options the marshalling options
+     * @return the fingerprint
+     */
+    public static byte[] fingerprint(Object root, Marshaller.Option... options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        int flags = 0;
+        for (Marshaller.Option option : options) {
+            flags |= 1 << option.ordinal();
+        }
+        digest.update(ByteBuffer.allocate(8).putInt(VERSION).putInt(flags).array());
+        try {
+            new EntityCodec().encode(root, new DigestChannel(digest));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Feeds the encoded graph into the digest chunk by chunk
+     */
+    private static class DigestChannel implements WritableByteChannel {
+
+        private final MessageDigest digest;
+
+        DigestChannel(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            digest.update(src);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.config.runtime.Capability;
+
+/**
+ * Dependency graph of marshalled add operations.
+ * <p>
+ * An operation depends on the operation of its closest parent resource and on the operations of
+ * all resources providing a capability that one of its attributes references (see
+ * {@link org.wildfly.swarm.config.runtime.ModelNodeBinding#capabilityReference()}).
+ * Operations are emitted in topological order. Unrelated operations retain the order they have been added in.
+ */
+public class CapabilityGraph {
+
+    private static final Logger log = Logger.getLogger(CapabilityGraph.class.getName());
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Map<PathAddress, Node> byAddress = new HashMap<>();
+
+    private final Map<String, Node> providers = new HashMap<>();
+
+    private final Map<ModelNode, Object> entities = new IdentityHashMap<>();
+
+    private boolean resolved = false;
+
+    /**
+     * Adds the operation of an entity
+     *
+     * @param entity the entity the operation was created from
+     * @param address the resource address
+     * @param operation the add operation
+     */
+    public void add(Object entity, PathAddress address, ModelNode operation) {
+        Node node = new Node(nodes.size(), address, operation);
+        nodes.add(node);
+        byAddress.put(address, node);
+        entities.put(operation, entity);
+
+        String name = address.size() > 0 ? address.getLastElement().getValue() : null;
+        for (String capability : providedCapabilities(entity.getClass(), name)) {
+            providers.putIfAbsent(capability, node);
+        }
+        for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+            if (binding.hasCapabilityReference()) {
+                Object value = binding.get(entity);
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        node.requires.add(binding.getCapabilityReference() + "." + element);
+                    }
+                } else if (value != null) {
+                    node.requires.add(binding.getCapabilityReference() + "." + value);
+                }
+            }
+        }
+        resolved = false;
+    }
+
+    /**
+     * @return the operations in topological order
+     */
+    public LinkedList<ModelNode> sort() {
+        LinkedList<ModelNode> result = new LinkedList<>();
+        for (Node node : order()) {
+            result.add(node.operation);
+        }
+        return result;
+    }
+
+    /**
+     * Groups operations by their depth in the dependency graph.
+     * Operations within one level don't depend on each other and may be applied in parallel,
+     * once all previous levels have been applied.
+     *
+     * @return the operation levels
+     */
+    public List<List<ModelNode>> levels() {
+        List<List<ModelNode>> result = new ArrayList<>();
+        for (Node node : order()) {
+            while (result.size() <= node.level) {
+                result.add(new ArrayList<>());
+            }
+            result.get(node.level).add(node.operation);
+        }
+        return result;
+    }
+
+    /**
+     * @param operation an operation of this graph
+     * @return the entity the operation was created from or null
+     */
+    public Object entityOf(ModelNode operation) {
+        return entities.get(operation);
+    }
+
+    static Set<String> providedCapabilities(Class<?> type, String name) {
+        Set<String> result = new LinkedHashSet<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Capability capability : current.getDeclaredAnnotationsByType(Capability.class)) {
+                if (!capability.dynamic()) {
+                    result.add(capability.value());
+                } else if (name != null) {
+                    result.add(capability.value() + "." + name);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void resolve() {
+        if (resolved) return;
+
+        for (Node node : nodes) {
+            node.dependencies.clear();
+            node.dependents.clear();
+        }
+        for (Node node : nodes) {
+            PathAddress parentAddress = node.address;
+            while (parentAddress.size() > 0) {
+                parentAddress = parentAddress.getParent();
+                Node parent = byAddress.get(parentAddress);
+                if (parent != null) {
+                    node.dependsOn(parent);
+                    break;
+                }
+            }
+            for (String capability : node.requires) {
+                Node provider = providers.get(capability);
+                if (provider != null && provider != node) {
+                    node.dependsOn(provider);
+                }
+            }
+        }
+        resolved = true;
+    }
+
+    private List<Node> order() {
+        resolve();
+
+        List<Node> result = new ArrayList<>(nodes.size());
+        PriorityQueue<Node> ready = new PriorityQueue<>((a, b) -> Integer.compare(a.index, b.index));
+        for (Node node : nodes) {
+            node.pending = node.dependencies.size();
+            node.level = 0;
+            node.done = false;
+            if (node.pending == 0) {
+                ready.add(node);
+            }
+        }
+
+        while (result.size() < nodes.size()) {
+            Node next = ready.poll();
+            if (next == null) {
+                next = cycleMember();
+                log.warning("Cyclic capability references, cannot order operation for " + next.address);
+            }
+            next.done = true;
+            result.add(next);
+
+            for (Node dependent : next.dependents) {
+                dependent.level = Math.max(dependent.level, next.level + 1);
+                if (--dependent.pending == 0 && !dependent.done) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks the earliest node of a cycle, once no node is ready. Every pending node then waits for another pending
+     * node, hence following the pending dependencies from any of them ends in a cycle. Nodes merely waiting for a
+     * cycle are never released before their providers.
+     */
+    private Node cycleMember() {
+        Map<Node, Integer> visited = new HashMap<>();
+        List<Node> path = new ArrayList<>();
+        Node current = null;
+        for (Node node : nodes) {
+            if (!node.done) {
+                current = node;
+                break;
+            }
+        }
+        while (!visited.containsKey(current)) {
+            visited.put(current, path.size());
+            path.add(current);
+            for (Node dependency : current.dependencies) {
+                if (!dependency.done) {
+                    current = dependency;
+                    break;
+                }
+            }
+        }
+        Node earliest = current;
+        for (Node node : path.subList(visited.get(current), path.size())) {
+            if (node.index < earliest.index) {
+                earliest = node;
+            }
+        }
+        return earliest;
+    }
+
+    private static class Node {
+
+        final int index;
+
+        final PathAddress address;
+
+        final ModelNode operation;
+
+        final Set<String> requires = new LinkedHashSet<>();
+
+        final Set<Node> dependencies = new LinkedHashSet<>();
+
+        final List<Node> dependents = new ArrayList<>();
+
+        int pending;
+
+        int level;
+
+        boolean done;
+
+        Node(int index, PathAddress address, ModelNode operation) {
+            this.index = index;
+            this.address = address;
+            this.operation = operation;
+        }
+
+        void dependsOn(Node other) {
+            if (dependencies.add(other)) {
+                other.dependents.add(this);
+            }
+        }
+    }
+}
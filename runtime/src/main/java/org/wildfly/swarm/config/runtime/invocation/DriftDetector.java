@@ -0,0 +1,149 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+import org.wildfly.swarm.config.runtime.invocation.MerkleTree.Difference;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.INCLUDE_DEFAULTS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+
+/**
+ * Checks whether a server still matches a desired entity graph:
+ *
+ * <pre>
+ * DriftDetector detector = new DriftDetector(OperationChannel.of(client), datasources);
+ * detector.check().thenAccept(drift -&gt; drift.forEach(System.err::println));
+ * </pre>
+ *
+ * The server state is read with one recursive <code>read-resource</code> that leaves out defaults, and projected
+ * onto the attributes and child types of the generated classes. Both graphs are hashed per subtree with
+ * {@link MerkleTree}, and only subtrees with differing hashes are compared. The desired graph stays tracked between
+ * checks, hence it is re-hashed along changed paths only.
+ * <p>
+ * An attribute that is undefined on one side and set to its default value on the other is no drift.
+ * Don't modify the desired graph while a check is running. Call {@link #close()} to stop tracking it.
+ */
+public class DriftDetector implements AutoCloseable {
+
+    private final OperationChannel channel;
+
+    private final Object desired;
+
+    private final MerkleTree desiredTree;
+
+    private final ModelNode address;
+
+    /**
+     * @param channel the server
+     * @param desired the root of the desired graph
+     * @param wildcards the values of the wildcards in the address template of the root
+     */
+    public DriftDetector(OperationChannel channel, Object desired, String... wildcards) {
+        this.channel = channel;
+        this.desired = desired;
+        this.address = EntityReader.addressOf(Addressing.of(desired.getClass()), wildcards);
+        this.desiredTree = MerkleTree.track(desired);
+    }
+
+    /**
+     * @return the differences between the desired graph (expected) and the server (actual), empty if there is no drift
+     */
+    public CompletableFuture<List<Difference>> check() {
+        desiredTree.hash();
+
+        ModelNode operation = new ModelNode();
+        operation.get(OP).set(READ_RESOURCE_OPERATION);
+        operation.get(OP_ADDR).set(address);
+        operation.get(RECURSIVE).set(true);
+        operation.get(INCLUDE_DEFAULTS).set(false);
+
+        return channel.execute(operation).thenApply(response -> {
+            Object actual;
+            try {
+                actual = EntityReader.decode(desired.getClass(), Entities.keyOf(desired), EntityReader.resultOf(response, address));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+
+            try (MerkleTree actualTree = MerkleTree.track(actual)) {
+                List<Difference> drift = new ArrayList<>();
+                for (Difference difference : desiredTree.diff(actualTree)) {
+                    if (!isDefault(difference)) {
+                        drift.add(difference);
+                    }
+                }
+                return drift;
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        desiredTree.close();
+    }
+
+    /**
+     * Whether an attribute difference is between an undefined value and the default
+     */
+    private boolean isDefault(Difference difference) {
+        if (difference.getKind() != Difference.Kind.ATTRIBUTE
+                || (difference.getExpected() != null && difference.getActual() != null)) {
+            return false;
+        }
+        Object entity = find(desired, difference.getAddress());
+        if (entity == null) {
+            return false;
+        }
+        Object defined = difference.getExpected() != null ? difference.getExpected() : difference.getActual();
+        for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+            if (binding.getDetypedName().equals(difference.getAttribute())) {
+                return binding.hasDefaultValue() && binding.getDefaultValue().equals(String.valueOf(defined));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up an entity by its {@link MerkleTree} path, only descending into entities on the path
+     */
+    private static Object find(Object root, String address) {
+        Object[] found = new Object[1];
+        Deque<String> paths = new ArrayDeque<>();
+        Traversal.walk(root, new ResourceVisitor() {
+            @Override
+            public boolean visitResource(Object entity) {
+                String path = paths.isEmpty() ? MerkleTree.segmentOf(entity) : paths.peek() + "/" + MerkleTree.segmentOf(entity);
+                if (found[0] != null) {
+                    return false;
+                }
+                if (path.equals(address)) {
+                    found[0] = entity;
+                    return false;
+                }
+                if (!address.startsWith(path + "/")) {
+                    return false;
+                }
+                paths.push(path);
+                return true;
+            }
+
+            @Override
+            public void leaveResource(Object entity) {
+                paths.pop();
+            }
+        });
+        return found[0];
+    }
+}
@@ -0,0 +1,138 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wildfly.swarm.config.runtime.Implicit;
+import org.wildfly.swarm.config.runtime.Keyed;
+
+/**
+ * Reflective helpers to create and identify entities.
+ */
+public final class Entities {
+
+    private static final Map<Class<?>, Method[]> listenerMethods = new HashMap<>();
+
+    private Entities() {
+    }
+
+    /**
+     * The resource name of an entity
+     *
+     * @param entity the entity
+     * @return the key or null if the entity doesn't provide one
+     */
+    public static String keyOf(Object entity) {
+        if (entity instanceof Keyed) {
+            return ((Keyed) entity).getKey();
+        }
+        try {
+            Method keyMethod = entity.getClass().getMethod("getKey");
+            return (String) keyMethod.invoke(entity);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to read key of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Creates a new entity. Singleton resources (see {@link Implicit}) are created through their default constructor,
+     * regular resources through the constructor that takes the resource name.
+     *
+     * @param type the entity type
+     * @param key the resource name, ignored for singletons
+     * @return a new entity
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<T> type, String key) {
+        try {
+            if (type.isAnnotationPresent(Implicit.class)) {
+                return type.getConstructor().newInstance();
+            } else {
+                return type.getConstructor(String.class).newInstance(key);
+            }
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to create instance of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Registers a property change listener with an entity
+     *
+     * @param entity the entity
+     * @param listener the listener
+     * @return false if the entity does not support property change listeners
+     */
+    public static boolean addPropertyChangeListener(Object entity, PropertyChangeListener listener) {
+        return invokeListenerMethod(entity, listener, 0);
+    }
+
+    /**
+     * Removes a property change listener from an entity
+     *
+     * @param entity the entity
+     * @param listener the listener
+     */
+    public static void removePropertyChangeListener(Object entity, PropertyChangeListener listener) {
+        invokeListenerMethod(entity, listener, 1);
+    }
+
+    private static boolean invokeListenerMethod(Object entity, PropertyChangeListener listener, int index) {
+        Method[] methods = listenerMethodsOf(entity.getClass());
+        if (methods.length == 0) {
+            return false;
+        }
+        try {
+            methods[index].invoke(entity, listener);
+            return true;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to observe " + entity.getClass().getName(), e);
+        }
+    }
+
+    private static synchronized Method[] listenerMethodsOf(Class<?> type) {
+        Method[] methods = listenerMethods.get(type);
+        if (methods == null) {
+            try {
+                methods = new Method[]{
+                        type.getMethod("addPropertyChangeListener", PropertyChangeListener.class),
+                        type.getMethod("removePropertyChangeListener", PropertyChangeListener.class)
+                };
+            } catch (NoSuchMethodException e) {
+                methods = new Method[0];
+            }
+            listenerMethods.put(type, methods);
+        }
+        return methods;
+    }
+
+    /**
+     * Copies an attribute value. Lists and maps are copied recursively, other values are immutable and shared.
+     *
+     * @param value the attribute value
+     * @return the copy
+     */
+    public static Object copyOf(Object value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                copy.add(copyOf(item));
+            }
+            return copy;
+        } else if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copyOf(entry.getValue()));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -5,8 +5,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
@@ -18,7 +21,10 @@ import org.jboss.jandex.Index;
 import org.jboss.jandex.MethodInfo;
 import org.wildfly.config.model.NoopContext;
 import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.AttributeSlots;
 import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.PrimitiveBacked;
+import org.wildfly.swarm.config.runtime.SlotBacked;
 import org.wildfly.swarm.config.runtime.model.AddressTemplate;
 import org.wildfly.swarm.config.runtime.model.StatementContext;
 
@@ -42,6 +48,8 @@ public class EntityAdapter<T> {
 
     private static final StatementContext NOOP_CTX = new NoopContext();
 
+    private static final ModelNode UNDEFINED = new ModelNode();
+
     public EntityAdapter(Class<?> type) {
         this.type = type;
         this.index = IndexFactory.createIndex(type);
@@ -152,7 +160,7 @@ public class EntityAdapter<T> {
 
                     ValueExpression expression = dmrPayload.asExpression();
 
-                    ((Map)entity).put(method.name(), expression.getExpressionString());
+                    ((Map)entity).put(method.name(), ValueInterner.intern(expression.getExpressionString()));
 
                     continue; // expression have precedence over real values
 
@@ -161,7 +169,9 @@ public class EntityAdapter<T> {
 
                 // VALUES
                 ModelType dmrType = Types.resolveModelType(propertyType);
-                if (dmrType == ModelType.LIST) {
+                if (entity instanceof PrimitiveBacked && isPrimitive(dmrType) && binding.ordinal() >= 0) {
+                    primitiveFromDmr((PrimitiveBacked) entity, binding.ordinal(), dmrType, dmrPayload);
+                } else if (dmrType == ModelType.LIST) {
                     new ListTypeAdapter().fromDmr(entity, method.name(), dmrType, propertyType, dmrPayload);
                 } else if (dmrType == ModelType.OBJECT) {
                     new MapTypeAdapter().fromDmr(entity, method.name(), dmrType, propertyType, dmrPayload);
@@ -175,6 +185,65 @@ public class EntityAdapter<T> {
         return entity;
     }
 
+    /**
+     * Updates an existing entity in place from a DMR {@link ModelNode}.
+     * Only attributes whose value differs from the current entity state are written,
+     * hence property change listeners are notified for actual changes only.
+     *
+     * @param entity an entity of type T, i.e. created by {@link #fromDMR(String, ModelNode)}
+     * @param modelNode the current DMR representation of the resource
+     * @return the java names of the attributes that changed
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> refresh(T entity, ModelNode modelNode) {
+
+        if (!ModelType.OBJECT.equals(modelNode.getType())) {
+            throw new IllegalArgumentException("Unsupported ModelType " + modelNode.getType() + ": " + modelNode);
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+
+        for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+
+            String javaName = binding.getJavaName();
+            ModelNode dmrPayload = modelNode.has(binding.getDetypedName()) ? modelNode.get(binding.getDetypedName()) : UNDEFINED;
+
+            // EXPRESSIONS
+            if (entity instanceof Map) {
+                Map<String, String> expr = (Map<String, String>) entity;
+                if (ModelType.EXPRESSION == dmrPayload.getType()) {
+                    String expression = dmrPayload.asExpression().getExpressionString();
+                    if (!expression.equals(expr.put(javaName, expression))) {
+                        changed.add(javaName);
+                    }
+                    continue; // expression have precedence over real values
+                } else if (expr.remove(javaName) != null) {
+                    changed.add(javaName);
+                }
+            }
+
+            // VALUES
+            Object value = toJavaValue(binding.getPropertyType(), dmrPayload);
+            if (!Objects.equals(value, binding.get(entity))) {
+                binding.set(entity, value);
+                changed.add(javaName);
+            }
+        }
+
+        return changed;
+    }
+
+    private static Object toJavaValue(Class<?> propertyType, ModelNode dmrPayload) {
+        ModelType dmrType = Types.resolveModelType(propertyType);
+        if (dmrType == ModelType.LIST) {
+            return new ListTypeAdapter().toJavaValue(dmrPayload);
+        } else if (dmrType == ModelType.OBJECT) {
+            return new MapTypeAdapter().toJavaValue(dmrPayload);
+        } else {
+            return new SimpleTypeAdapter().toJavaValue(propertyType, dmrPayload);
+        }
+    }
+
     /**
      * Turns a changeset into a composite write attribute operation.
      * The keys to the changeset are the java property names of the attributes that have been modified.
@@ -228,21 +297,20 @@ public class EntityAdapter<T> {
 
                     ModelNode step = protoType.clone();
 
-                    step.get(NAME).set(javaPropName);
-                    ModelNode modelNode = step.get(VALUE);
+                    step.get(NAME).set(detypedName);
 
                     try {
                         ModelType dmrType = Types.resolveModelType(propertyType);
 
                         if (dmrType == ModelType.LIST) {
-                            new ListTypeAdapter().toDmr(modelNode, detypedName, (List) value);
+                            new ListTypeAdapter().toDmr(step, VALUE, (List) value);
 
                         } else if (dmrType == ModelType.OBJECT) {
                             // only Map<String,String> supported
-                            new MapTypeAdapter().toDmr(modelNode, detypedName, (Map) value);
+                            new MapTypeAdapter().toDmr(step, VALUE, (Map) value);
 
                         } else {
-                            new SimpleTypeAdapter().toDmr(modelNode, detypedName, dmrType, value);
+                            new SimpleTypeAdapter().toDmr(step, VALUE, dmrType, value);
                         }
                     } catch (RuntimeException e) {
                         throw new RuntimeException("Failed to adopt value " + propertyType.getName(), e);
@@ -273,6 +341,37 @@ public class EntityAdapter<T> {
         return fromEntity(entity, new ModelNode());
     }
 
+    /**
+     * Converts an entity of type T into a DMR {@link ModelNode}
+     *
+     * @param entity
+     * @param modelNode the node the attributes are written to
+     * @param elideDefaults whether attributes that equal their server side default are omitted
+     * @return ModelNode
+     */
+    public ModelNode fromEntity(T entity, ModelNode modelNode, boolean elideDefaults) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        ModelNode result = fromEntity(entity, modelNode);
+        if (result != null && elideDefaults) {
+            elideDefaults(entity.getClass(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the attributes that equal their server side default. Expressions are always kept.
+     */
+    private static void elideDefaults(Class<?> type, ModelNode modelNode) {
+        for (AttributeBinding binding : AttributeBinding.of(type)) {
+            if (binding.hasDefaultValue() && modelNode.has(binding.getDetypedName())) {
+                ModelNode value = modelNode.get(binding.getDetypedName());
+                if (value.getType() != ModelType.EXPRESSION && value.isDefined()
+                        && binding.getDefaultValue().equals(value.asString())) {
+                    modelNode.remove(binding.getDetypedName());
+                }
+            }
+        }
+    }
+
     public ModelNode fromEntity(T entity, ModelNode modelNode) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
 
         ModelNode addr = modelNode.get(OP_ADDR);
@@ -287,6 +386,14 @@ public class EntityAdapter<T> {
             }
         }
 
+        if (entity instanceof SlotBacked) {
+            return fromSlots((SlotBacked) entity, modelNode);
+        }
+
+        if (entity instanceof PrimitiveBacked && !(entity instanceof Map)) {
+            return fromBindings((PrimitiveBacked) entity, modelNode);
+        }
+
         ClassInfo clazz = null;
 
         Class<?> currentType = getType();
@@ -330,22 +437,7 @@ public class EntityAdapter<T> {
 
                     // VALUES
                     if (propertyValue != null) {
-                        try {
-                            ModelType dmrType = Types.resolveModelType(propertyType);
-
-                            if (dmrType == ModelType.LIST) {
-                                new ListTypeAdapter().toDmr(modelNode, detypedName, (List) propertyValue);
-
-                            } else if (dmrType == ModelType.OBJECT) {
-                                // only Map<String,String> supported
-                                new MapTypeAdapter().toDmr(modelNode, detypedName, (Map) propertyValue);
-
-                            } else {
-                                new SimpleTypeAdapter().toDmr(modelNode, detypedName, dmrType, propertyValue);
-                            }
-                        } catch (RuntimeException e) {
-                            throw new RuntimeException("Failed to adopt value " + propertyType.getName(), e);
-                        }
+                        toDmr(modelNode, detypedName, propertyType, propertyValue);
                     }
 
                 }
@@ -362,5 +454,107 @@ public class EntityAdapter<T> {
         return modelNode;
     }
 
+    /**
+     * Slot backed entities only visit the attributes that have been set, and their expressions
+     */
+    @SuppressWarnings("unchecked")
+    private ModelNode fromSlots(SlotBacked entity, ModelNode modelNode) {
+        AttributeSlots slots = entity.attributeSlots();
+        AttributeBinding[] bindings = AttributeBinding.ordinals(entity.getClass());
+        Map<String, String> expr = entity instanceof Map ? (Map<String, String>) entity : null;
+
+        // EXPRESSIONS
+        if (expr != null && !expr.isEmpty()) {
+            for (AttributeBinding binding : bindings) {
+                if (binding != null && expr.containsKey(binding.getJavaName())) {
+                    modelNode.get(binding.getDetypedName()).setExpression(expr.get(binding.getJavaName()));
+                }
+            }
+        }
+
+        // VALUES
+        for (int i = slots.nextSetSlot(0); i >= 0; i = slots.nextSetSlot(i + 1)) {
+            AttributeBinding binding = bindings[i];
+            if (expr != null && expr.containsKey(binding.getJavaName())) {
+                continue; // expressions have precedence over values
+            }
+            toDmr(modelNode, binding.getDetypedName(), binding.getPropertyType(), slots.get(i));
+        }
+        return modelNode;
+    }
+
+    /**
+     * Numeric and boolean attributes of primitive backed entities are read without boxing
+     */
+    private ModelNode fromBindings(PrimitiveBacked entity, ModelNode modelNode) {
+        for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+            ModelType dmrType = Types.resolveModelType(binding.getPropertyType());
+            int ordinal = binding.getOrdinal();
+            if (isPrimitive(dmrType) && ordinal >= 0) {
+                if (entity.isPrimitiveSet(ordinal)) {
+                    primitiveToDmr(entity, ordinal, dmrType, modelNode.get(binding.getDetypedName()));
+                }
+            } else {
+                Object propertyValue = binding.get(entity);
+                if (propertyValue != null) {
+                    toDmr(modelNode, binding.getDetypedName(), binding.getPropertyType(), propertyValue);
+                }
+            }
+        }
+        return modelNode;
+    }
+
+    private static boolean isPrimitive(ModelType dmrType) {
+        return dmrType == ModelType.INT || dmrType == ModelType.LONG
+                || dmrType == ModelType.BOOLEAN || dmrType == ModelType.DOUBLE;
+    }
+
+    private static void primitiveToDmr(PrimitiveBacked entity, int ordinal, ModelType dmrType, ModelNode target) {
+        if (dmrType == ModelType.INT) {
+            target.set(entity.getIntAttribute(ordinal));
+        } else if (dmrType == ModelType.LONG) {
+            target.set(entity.getLongAttribute(ordinal));
+        } else if (dmrType == ModelType.BOOLEAN) {
+            target.set(entity.getBooleanAttribute(ordinal));
+        } else {
+            target.set(entity.getDoubleAttribute(ordinal));
+        }
+    }
+
+    private static void primitiveFromDmr(PrimitiveBacked entity, int ordinal, ModelType dmrType, ModelNode dmrPayload) {
+        if (dmrType == ModelType.BOOLEAN) {
+            // undefined booleans are false, see SimpleTypeAdapter
+            entity.setBooleanAttribute(ordinal, dmrPayload.isDefined() && dmrPayload.asBoolean());
+        } else if (!dmrPayload.isDefined()) {
+            return;
+        } else if (dmrType == ModelType.INT) {
+            entity.setIntAttribute(ordinal, dmrPayload.asInt());
+        } else if (dmrType == ModelType.LONG) {
+            entity.setLongAttribute(ordinal, dmrPayload.asLong());
+        } else {
+            entity.setDoubleAttribute(ordinal, dmrPayload.asDouble());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void toDmr(ModelNode modelNode, String detypedName, Class<?> propertyType, Object propertyValue) {
+        try {
+            ModelType dmrType = Types.resolveModelType(propertyType);
+
+            if (dmrType == ModelType.LIST) {
+                new ListTypeAdapter().toDmr(modelNode, detypedName, (List) propertyValue);
+
+            } else if (dmrType == ModelType.OBJECT) {
+                // only Map<String,String> supported
+                new MapTypeAdapter().toDmr(modelNode, detypedName, (Map) propertyValue);
+
+            } else {
+                new SimpleTypeAdapter().toDmr(modelNode, detypedName, dmrType, propertyValue);
+            }
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Failed to adopt value " + propertyType.getName(), e);
+        }
+    }
+
 }
 
@@ -0,0 +1,518 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.AttributeSlots;
+import org.wildfly.swarm.config.runtime.PrimitiveBacked;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.SlotBacked;
+
+/**
+ * A compact binary representation of entity graphs, driven by the binding metadata of the generated classes.
+ * <p>
+ * Attributes are written by ordinal, numbers as (zig-zag) varints, and strings, type names and keys
+ * through a dictionary that is built while writing: the first occurrence of a string is written inline,
+ * later occurrences refer to it by number. Neither direction builds DMR trees.
+ * <p>
+ * The encoding relies on the ordinals of the generated classes, hence encoder and decoder need to use
+ * the same version of the generated API. The decoder only instantiates entity types, i.e. classes annotated
+ * with {@link ResourceType} or {@link Address}, and children of the type declared by their parent.
+ */
+public class EntityCodec {
+
+    private static final int MAGIC = 0x454E5443;
+
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte ENUM = 8;
+    private static final byte LIST = 9;
+    private static final byte MAP = 10;
+    private static final byte EXPRESSION = 11;
+    private static final byte FLOAT = 12;
+
+    private static final HashMap<Class<?>, AttributeBinding[]> attributes = new HashMap<>();
+
+    private final ClassLoader classLoader;
+
+    public EntityCodec() {
+        this(EntityCodec.class.getClassLoader());
+    }
+
+    /**
+     * @param classLoader used to resolve the entity types when decoding
+     */
+    public EntityCodec(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Encodes an entity graph
+     *
+     * @param root the root entity
+     * @return a buffer, ready to be read
+     */
+    public ByteBuffer encode(Object root) {
+        Writer writer = new Writer();
+        writer.buffer.putInt(MAGIC);
+        writer.buffer.putInt(VERSION);
+        writer.writeEntity(root);
+        writer.buffer.flip();
+        return writer.buffer;
+    }
+
+    /**
+     * Encodes an entity graph to a channel, i.e. a {@link FileChannel}. The graph is written in chunks
+     * of a fixed size buffer.
+     *
+     * @param root the root entity
+     * @param channel the target channel
+     */
+    public void encode(Object root, WritableByteChannel channel) throws IOException {
+        Writer writer = new Writer(channel);
+        try {
+            writer.buffer.putInt(MAGIC);
+            writer.buffer.putInt(VERSION);
+            writer.writeEntity(root);
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Decodes an entity graph
+     *
+     * @param buffer a buffer positioned at the start of an encoded graph
+     * @return the root entity
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded entity graph");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version " + version);
+        }
+        return (T) new Reader(buffer).readEntity(Object.class);
+    }
+
+    /**
+     * Decodes an entity graph from a file channel. The file is memory mapped.
+     *
+     * @param channel a channel positioned at the start of an encoded graph
+     * @return the root entity
+     */
+    public <T> T decode(FileChannel channel) throws IOException {
+        long position = channel.position();
+        return decode(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+    }
+
+    /**
+     * The attributes of a type by ordinal or, if the type doesn't assign ordinals, by their position
+     */
+    private static synchronized AttributeBinding[] attributesOf(Class<?> type) {
+        AttributeBinding[] result = attributes.get(type);
+        if (result == null) {
+            List<AttributeBinding> all = AttributeBinding.of(type);
+            boolean ordinals = true;
+            for (AttributeBinding binding : all) {
+                ordinals &= binding.getOrdinal() >= 0;
+            }
+            result = ordinals ? AttributeBinding.ordinals(type) : all.toArray(new AttributeBinding[all.size()]);
+            attributes.put(type, result);
+        }
+        return result;
+    }
+
+    private static boolean isPrimitive(AttributeBinding binding) {
+        Class<?> type = binding.getPropertyType();
+        return binding.getOrdinal() >= 0 && (type == Integer.class || type == Long.class
+                || type == Boolean.class || type == Double.class);
+    }
+
+    private static class Writer {
+
+        private static final int CHUNK = 4096;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+
+        private final WritableByteChannel channel;
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        Writer() {
+            this(null);
+        }
+
+        /**
+         * @param channel receives full buffers, null to grow the buffer instead
+         */
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @SuppressWarnings("unchecked")
+        void writeEntity(Object entity) {
+            Class<?> type = entity.getClass();
+            writeString(type.getName());
+            writeString(Entities.keyOf(entity));
+
+            AttributeBinding[] bindings = attributesOf(type);
+            Map<String, String> expressions = entity instanceof Map ? (Map<String, String>) entity : null;
+            AttributeSlots slots = entity instanceof SlotBacked ? ((SlotBacked) entity).attributeSlots() : null;
+
+            for (int id = 0; id < bindings.length; id++) {
+                AttributeBinding binding = bindings[id];
+                if (binding == null) {
+                    continue;
+                }
+                if (expressions != null && expressions.containsKey(binding.getJavaName())) {
+                    writeVarint(id + 1);
+                    ensure(1);
+                    buffer.put(EXPRESSION);
+                    writeString(expressions.get(binding.getJavaName()));
+                } else if (slots != null && binding.getOrdinal() == id) {
+                    if (slots.isSet(id)) {
+                        writeVarint(id + 1);
+                        writeValue(slots.get(id));
+                    }
+                } else if (entity instanceof PrimitiveBacked && isPrimitive(binding)) {
+                    PrimitiveBacked primitives = (PrimitiveBacked) entity;
+                    if (primitives.isPrimitiveSet(id)) {
+                        writeVarint(id + 1);
+                        writePrimitive(primitives, binding);
+                    }
+                } else {
+                    Object value = binding.get(entity);
+                    if (value != null) {
+                        writeVarint(id + 1);
+                        writeValue(value);
+                    }
+                }
+            }
+            writeVarint(0);
+
+            List<SubresourceBinding> children = SubresourceBinding.of(type);
+            for (int i = 0; i < children.size(); i++) {
+                List<Object> values = children.get(i).children(entity);
+                if (!values.isEmpty()) {
+                    writeVarint(i + 1);
+                    writeVarint(values.size());
+                    for (Object child : values) {
+                        writeEntity(child);
+                    }
+                }
+            }
+            writeVarint(0);
+        }
+
+        private void writePrimitive(PrimitiveBacked entity, AttributeBinding binding) {
+            int ordinal = binding.getOrdinal();
+            Class<?> type = binding.getPropertyType();
+            ensure(9);
+            if (type == Integer.class) {
+                buffer.put(INT);
+                writeVarlong(zigzag(entity.getIntAttribute(ordinal)));
+            } else if (type == Long.class) {
+                buffer.put(LONG);
+                writeVarlong(zigzag(entity.getLongAttribute(ordinal)));
+            } else if (type == Boolean.class) {
+                buffer.put(entity.getBooleanAttribute(ordinal) ? TRUE : FALSE);
+            } else {
+                buffer.put(DOUBLE);
+                buffer.putDouble(entity.getDoubleAttribute(ordinal));
+            }
+        }
+
+        private void writeValue(Object value) {
+            ensure(9);
+            if (value == null) {
+                buffer.put(NULL);
+            } else if (value instanceof String) {
+                buffer.put(STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                buffer.put(INT);
+                writeVarlong(zigzag((Integer) value));
+            } else if (value instanceof Long) {
+                buffer.put(LONG);
+                writeVarlong(zigzag((Long) value));
+            } else if (value instanceof Boolean) {
+                buffer.put((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                buffer.put(DOUBLE);
+                buffer.putDouble((Double) value);
+            } else if (value instanceof Float) {
+                buffer.put(FLOAT);
+                buffer.putFloat((Float) value);
+            } else if (value instanceof BigDecimal) {
+                buffer.put(BIG_DECIMAL);
+                writeString(value.toString());
+            } else if (value instanceof Enum) {
+                buffer.put(ENUM);
+                writeString(value.toString());
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                buffer.put(LIST);
+                writeVarint(list.size());
+                for (Object item : list) {
+                    writeValue(item);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                buffer.put(MAP);
+                writeVarint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeString(String.valueOf(entry.getKey()));
+                    writeValue(entry.getValue());
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+            }
+        }
+
+        /**
+         * 0: null, 1: inline string, n + 2: dictionary entry n
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer id = dictionary.get(value);
+            if (id != null) {
+                writeVarint(id + 2);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(1);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes && channel != null) {
+                flush();
+            }
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+
+    private class Reader {
+
+        private final ByteBuffer buffer;
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @param expected the declared type of the entity
+         */
+        @SuppressWarnings("unchecked")
+        Object readEntity(Class<?> expected) {
+            String typeName = readString();
+            String key = readString();
+            Class<?> type;
+            try {
+                type = Class.forName(typeName, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Unknown entity type " + typeName, e);
+            }
+            if (!expected.isAssignableFrom(type)
+                    || !(type.isAnnotationPresent(ResourceType.class) || type.isAnnotationPresent(Address.class))) {
+                throw new IllegalArgumentException("Not an entity of type " + expected.getName() + ": " + typeName);
+            }
+            Object entity = Entities.newInstance(type, key);
+
+            AttributeBinding[] bindings = attributesOf(type);
+            for (int id = readVarint(); id != 0; id = readVarint()) {
+                AttributeBinding binding = bindings[id - 1];
+                byte tag = buffer.get();
+                if (tag == EXPRESSION) {
+                    ((Map<String, String>) entity).put(binding.getJavaName(), readString());
+                } else if (entity instanceof PrimitiveBacked && isPrimitive(binding)) {
+                    readPrimitive((PrimitiveBacked) entity, binding.getOrdinal(), tag);
+                } else {
+                    binding.set(entity, readValue(tag, binding.getPropertyType()));
+                }
+            }
+
+            List<SubresourceBinding> children = SubresourceBinding.of(type);
+            for (int index = readVarint(); index != 0; index = readVarint()) {
+                SubresourceBinding binding = children.get(index - 1);
+                int count = readVarint();
+                if (binding.isList()) {
+                    List<Object> values = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        values.add(readEntity(binding.getResourceType()));
+                    }
+                    binding.set(entity, values);
+                } else {
+                    binding.set(entity, readEntity(binding.getResourceType()));
+                }
+            }
+            return entity;
+        }
+
+        private void readPrimitive(PrimitiveBacked entity, int ordinal, byte tag) {
+            if (tag == INT) {
+                entity.setIntAttribute(ordinal, (int) unzigzag(readVarlong()));
+            } else if (tag == LONG) {
+                entity.setLongAttribute(ordinal, unzigzag(readVarlong()));
+            } else if (tag == TRUE || tag == FALSE) {
+                entity.setBooleanAttribute(ordinal, tag == TRUE);
+            } else if (tag == DOUBLE) {
+                entity.setDoubleAttribute(ordinal, buffer.getDouble());
+            } else {
+                throw new IllegalArgumentException("Unexpected tag " + tag + " for primitive attribute " + ordinal);
+            }
+        }
+
+        private Object readValue(byte tag, Class<?> type) {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INT:
+                    return (int) unzigzag(readVarlong());
+                case LONG:
+                    return unzigzag(readVarlong());
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case DOUBLE:
+                    return buffer.getDouble();
+                case FLOAT:
+                    return buffer.getFloat();
+                case BIG_DECIMAL:
+                    return new BigDecimal(readString());
+                case ENUM:
+                    return enumValue(type, readString());
+                case LIST: {
+                    int size = readVarint();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue(buffer.get(), Object.class));
+                    }
+                    return list;
+                }
+                case MAP: {
+                    int size = readVarint();
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        String key = readString();
+                        map.put(key, readValue(buffer.get(), Object.class));
+                    }
+                    return map;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown tag " + tag);
+            }
+        }
+
+        private Object enumValue(Class<?> type, String value) {
+            for (Object constant : type.getEnumConstants()) {
+                if (value.equals(constant.toString())) {
+                    return constant;
+                }
+            }
+            throw new RuntimeException(String.format("Could not determine correct enum value for type %s with value %s", type, value));
+        }
+
+        private String readString() {
+            int ref = readVarint();
+            if (ref == 0) {
+                return null;
+            } else if (ref > 1) {
+                return dictionary.get(ref - 2);
+            }
+            byte[] bytes = new byte[readVarint()];
+            buffer.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            dictionary.add(value);
+            return value;
+        }
+
+        private int readVarint() {
+            return (int) readVarlong();
+        }
+
+        private long readVarlong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.wildfly.swarm.config.runtime.KeyedList;
+
+/**
+ * Answers queries over the resources of an entity graph without walking the graph.
+ * <p>
+ * Resources are indexed by their type. Secondary indexes on attributes are added on demand and support
+ * equality and prefix queries:
+ *
+ * <pre>
+ * EntityIndex index = EntityIndex.of(datasources);
+ * index.addIndex(DataSource.class, "driver-name");
+ * List&lt;DataSource&gt; h2 = index.find(DataSource.class, "driver-name", "h2");
+ * </pre>
+ *
+ * Attribute values are indexed in their string form, the way they appear in DMR. The indexes follow attribute
+ * changes and added or removed children through the property change support of the generated entities and the
+ * change listeners of {@link KeyedList}. Entities that can't be observed are indexed as found, call
+ * {@link #refresh()} after changing them.
+ * <p>
+ * Instances are not thread safe. Call {@link #close()} to stop observing the graph.
+ */
+public class EntityIndex implements AutoCloseable {
+
+    private final Object root;
+
+    private final IdentityHashMap<Object, Entry> entries = new IdentityHashMap<>();
+
+    private final Map<Class<?>, Set<Object>> types = new HashMap<>();
+
+    private final Map<Class<?>, Map<String, AttributeIndex>> attributes = new HashMap<>();
+
+    private EntityIndex(Object root) {
+        this.root = root;
+        add(root);
+    }
+
+    /**
+     * Indexes the resources of an entity graph by type
+     *
+     * @param root the root entity
+     * @return the index
+     */
+    public static EntityIndex of(Object root) {
+        return new EntityIndex(root);
+    }
+
+    /**
+     * Adds a secondary index on an attribute
+     *
+     * @param type the resource type
+     * @param attribute the detyped attribute name, i.e. <code>driver-name</code>
+     * @return this index
+     */
+    public EntityIndex addIndex(Class<?> type, String attribute) {
+        Map<String, AttributeIndex> indexes = attributes.computeIfAbsent(type, t -> new HashMap<>());
+        if (!indexes.containsKey(attribute)) {
+            AttributeIndex index = new AttributeIndex(bindingOf(type, attribute));
+            indexes.put(attribute, index);
+            for (Object entity : resourcesOf(type)) {
+                index.add(entries.get(entity));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return whether the attribute has a secondary index
+     */
+    public boolean isIndexed(Class<?> type, String attribute) {
+        return attributes.containsKey(type) && attributes.get(type).containsKey(attribute);
+    }
+
+    /**
+     * @param type the resource type
+     * @return the resources of exactly this type, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> find(Class<T> type) {
+        return new ArrayList<>((Set<T>) resourcesOf(type));
+    }
+
+    /**
+     * Finds resources by attribute value. Attributes without secondary index are compared one resource at a time.
+     *
+     * @param type the resource type
+     * @param attribute the detyped attribute name
+     * @param value the attribute value, compared in its string form
+     * @return the matching resources, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> find(Class<T> type, String attribute, Object value) {
+        String key = keyOf(value);
+        AttributeIndex index = indexOf(type, attribute);
+        if (index != null) {
+            Set<Object> matches = index.values.get(key);
+            return matches != null ? new ArrayList<>((Set<T>) matches) : new ArrayList<>();
+        }
+
+        AttributeBinding binding = bindingOf(type, attribute);
+        List<T> result = new ArrayList<>();
+        for (Object entity : resourcesOf(type)) {
+            String actual = keyOf(binding.get(entity));
+            if (actual != null && actual.equals(key)) {
+                result.add((T) entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds resources by the prefix of an attribute value
+     *
+     * @param type the resource type
+     * @param attribute the detyped attribute name
+     * @param prefix the prefix of the string form of the value
+     * @return the matching resources, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> findByPrefix(Class<T> type, String attribute, String prefix) {
+        AttributeIndex index = indexOf(type, attribute);
+        List<T> result = new ArrayList<>();
+        if (index != null) {
+            NavigableMap<String, Set<Object>> range = prefix.isEmpty()
+                    ? index.values
+                    : index.values.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            for (Set<Object> matches : range.values()) {
+                result.addAll((Set<T>) matches);
+            }
+            return result;
+        }
+
+        AttributeBinding binding = bindingOf(type, attribute);
+        for (Object entity : resourcesOf(type)) {
+            String actual = keyOf(binding.get(entity));
+            if (actual != null && actual.startsWith(prefix)) {
+                result.add((T) entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of indexed resources
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Re-indexes the whole graph, i.e. after changing entities that can't be observed
+     */
+    public void refresh() {
+        remove(root);
+        add(root);
+    }
+
+    /**
+     * Stops observing the graph
+     */
+    @Override
+    public void close() {
+        remove(root);
+    }
+
+    private Set<Object> resourcesOf(Class<?> type) {
+        Set<Object> resources = types.get(type);
+        return resources != null ? resources : Collections.emptySet();
+    }
+
+    private AttributeIndex indexOf(Class<?> type, String attribute) {
+        Map<String, AttributeIndex> indexes = attributes.get(type);
+        return indexes != null ? indexes.get(attribute) : null;
+    }
+
+    private static AttributeBinding bindingOf(Class<?> type, String attribute) {
+        for (AttributeBinding binding : AttributeBinding.of(type)) {
+            if (binding.getDetypedName().equals(attribute)) {
+                return binding;
+            }
+        }
+        throw new IllegalArgumentException("No attribute " + attribute + " on " + type.getName());
+    }
+
+    private static String keyOf(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private void add(Object entity) {
+        if (entries.containsKey(entity)) {
+            return;
+        }
+        Entry entry = new Entry(entity);
+        entries.put(entity, entry);
+        types.computeIfAbsent(entity.getClass(), t -> Collections.newSetFromMap(new IdentityHashMap<>())).add(entity);
+        for (AttributeIndex index : indexesOf(entity)) {
+            index.add(entry);
+        }
+        for (SubresourceBinding binding : SubresourceBinding.of(entity.getClass())) {
+            entry.updateChildren(binding);
+        }
+    }
+
+    private void remove(Object entity) {
+        Entry entry = entries.remove(entity);
+        if (entry == null) {
+            return;
+        }
+        entry.detach();
+        for (AttributeIndex index : indexesOf(entity)) {
+            index.remove(entry);
+        }
+        Set<Object> resources = types.get(entity.getClass());
+        resources.remove(entity);
+        if (resources.isEmpty()) {
+            types.remove(entity.getClass());
+        }
+        for (List<?> children : entry.children.values()) {
+            for (Object child : children) {
+                remove(child);
+            }
+        }
+    }
+
+    private Iterable<AttributeIndex> indexesOf(Object entity) {
+        Map<String, AttributeIndex> indexes = attributes.get(entity.getClass());
+        return indexes != null ? indexes.values() : Collections.emptyList();
+    }
+
+    /**
+     * An indexed resource and the state needed to update the indexes when it changes
+     */
+    private final class Entry implements PropertyChangeListener, KeyedList.ChangeListener<Object> {
+
+        private final Object entity;
+
+        private final Map<AttributeIndex, String> keys = new HashMap<>();
+
+        /**
+         * The indexed children by binding name: an observed list itself, a copy of other values
+         */
+        private final Map<String, List<?>> children = new HashMap<>();
+
+        Entry(Object entity) {
+            this.entity = entity;
+            Entities.addPropertyChangeListener(entity, this);
+        }
+
+        /**
+         * Re-indexes the children of a binding, unless its value is a list that is already observed
+         */
+        void updateChildren(SubresourceBinding binding) {
+            Object value = binding.get(entity);
+            List<?> previous = children.get(binding.getName());
+            if (value instanceof KeyedList && value == previous) {
+                return;
+            }
+            if (previous instanceof KeyedList) {
+                ((KeyedList<?>) previous).removeChangeListener(this);
+            }
+
+            List<Object> current = binding.children(entity);
+            if (value instanceof KeyedList) {
+                KeyedList<?> list = (KeyedList<?>) value;
+                list.addChangeListener(this);
+                children.put(binding.getName(), list);
+            } else {
+                children.put(binding.getName(), new ArrayList<>(current));
+            }
+
+            if (previous != null && !previous.isEmpty()) {
+                Set<Object> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+                retained.addAll(current);
+                for (Object child : previous) {
+                    if (!retained.contains(child)) {
+                        remove(child);
+                    }
+                }
+            }
+            for (Object child : current) {
+                add(child);
+            }
+        }
+
+        void detach() {
+            Entities.removePropertyChangeListener(entity, this);
+            for (List<?> list : children.values()) {
+                if (list instanceof KeyedList) {
+                    ((KeyedList<?>) list).removeChangeListener(this);
+                }
+            }
+        }
+
+        /**
+         * An attribute or a child resource of the entity changed. Child mutators report modified lists both
+         * through the list and the entity, the latter is ignored for observed lists.
+         */
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            for (SubresourceBinding binding : SubresourceBinding.of(entity.getClass())) {
+                if (binding.getName().equals(evt.getPropertyName())) {
+                    updateChildren(binding);
+                    return;
+                }
+            }
+            for (AttributeIndex index : indexesOf(entity)) {
+                if (index.binding.getJavaName().equals(evt.getPropertyName())) {
+                    index.remove(this);
+                    index.add(this);
+                }
+            }
+        }
+
+        /**
+         * An observed child list changed
+         */
+        @Override
+        public void changed(List<?> removed, List<?> added) {
+            for (Object child : removed) {
+                remove(child);
+            }
+            for (Object child : added) {
+                add(child);
+            }
+        }
+    }
+
+    /**
+     * Resources by the string form of an attribute value
+     */
+    private static final class AttributeIndex {
+
+        private final AttributeBinding binding;
+
+        private final TreeMap<String, Set<Object>> values = new TreeMap<>();
+
+        AttributeIndex(AttributeBinding binding) {
+            this.binding = binding;
+        }
+
+        void add(Entry entry) {
+            String key = keyOf(binding.get(entry.entity));
+            if (key != null) {
+                values.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(entry.entity);
+                entry.keys.put(this, key);
+            }
+        }
+
+        void remove(Entry entry) {
+            String key = entry.keys.remove(this);
+            if (key != null) {
+                Set<Object> matches = values.get(key);
+                matches.remove(entry.entity);
+                if (matches.isEmpty()) {
+                    values.remove(key);
+                }
+            }
+        }
+    }
+}
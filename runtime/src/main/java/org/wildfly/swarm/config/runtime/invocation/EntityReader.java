@@ -0,0 +1,199 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.model.AddressTemplate;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+/**
+ * Reads entity graphs from a server:
+ *
+ * <pre>
+ * EntityReader reader = new EntityReader(OperationChannel.of(client));
+ * Map&lt;Class&lt;?&gt;, CompletableFuture&lt;?&gt;&gt; subsystems = reader.readAll(Arrays.asList(Datasources.class, Logging.class));
+ * </pre>
+ *
+ * Every root is read with one recursive <code>read-resource</code> at the address of its {@link
+ * org.wildfly.swarm.config.runtime.Address} template. The requests are sent concurrently and each response is
+ * decoded on the given executor, hence a slow or failing subsystem doesn't delay the others. Each response is
+ * decoded within its own {@link ValueInterner} session.
+ */
+public class EntityReader {
+
+    private static final Map<Class<?>, EntityAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, Set<String>> singletons = new ConcurrentHashMap<>();
+
+    private final OperationChannel channel;
+
+    private final Executor executor;
+
+    public EntityReader(OperationChannel channel) {
+        this(channel, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param channel the server
+     * @param executor decodes the responses
+     */
+    public EntityReader(OperationChannel channel, Executor executor) {
+        this.channel = channel;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads a resource and its children
+     *
+     * @param type the generated resource type
+     * @param wildcards the values of the wildcards in the address template, i.e. the name of a data source
+     * @return the entity graph, completed exceptionally if the resource can't be read
+     */
+    public <T> CompletableFuture<T> read(Class<T> type, String... wildcards) {
+        ModelNode address;
+        try {
+            address = addressOf(Addressing.of(type), wildcards);
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        List<Property> elements = address.asPropertyList();
+        String key = elements.isEmpty() ? null : elements.get(elements.size() - 1).getValue().asString();
+
+        ModelNode operation = new ModelNode();
+        operation.get(OP).set(READ_RESOURCE_OPERATION);
+        operation.get(OP_ADDR).set(address);
+        operation.get(RECURSIVE).set(true);
+
+        CompletableFuture<ModelNode> response;
+        try {
+            response = channel.execute(operation);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        return response.thenApplyAsync(result -> {
+            try (ValueInterner session = ValueInterner.open()) {
+                return decode(type, key, resultOf(result, address));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Reads several resources concurrently
+     *
+     * @param types the generated resource types, without wildcards in their address
+     * @return a future per type, in the order of the types
+     */
+    public Map<Class<?>, CompletableFuture<?>> readAll(Collection<Class<?>> types) {
+        Map<Class<?>, CompletableFuture<?>> result = new LinkedHashMap<>();
+        for (Class<?> type : types) {
+            result.put(type, read(type));
+        }
+        return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a wildcard remains unresolved
+     */
+    static ModelNode addressOf(AddressTemplate template, String... wildcards) {
+        ModelNode address = template.resolve(wildcards);
+        for (Property element : address.asPropertyList()) {
+            if ("*".equals(element.getValue().asString())) {
+                throw new IllegalArgumentException("Unresolved wildcard in " + template);
+            }
+        }
+        return address;
+    }
+
+    static ModelNode resultOf(ModelNode response, ModelNode address) {
+        if (!SUCCESS.equals(response.get(OUTCOME).asString())) {
+            throw new RuntimeException("Failed to read " + address + ": " + response.get(FAILURE_DESCRIPTION).asString());
+        }
+        return response.get(RESULT);
+    }
+
+    /**
+     * Decodes the result of a recursive <code>read-resource</code> into an entity graph
+     *
+     * @param type the entity type
+     * @param key the resource name, ignored for singletons
+     * @param payload the attributes and children of the resource
+     * @return the entity
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T decode(Class<T> type, String key, ModelNode payload) throws Exception {
+        T entity = ((EntityAdapter<T>) adapters.computeIfAbsent(type, EntityAdapter::new)).fromDMR(key, payload);
+
+        Set<String> singletonAddresses = singletons.computeIfAbsent(type, EntityReader::singletonsOf);
+        for (SubresourceBinding binding : SubresourceBinding.of(type)) {
+            String childType = typeOf(binding);
+            if (childType == null || !payload.hasDefined(childType)) {
+                continue;
+            }
+            ModelNode children = payload.get(childType);
+            if (binding.isList()) {
+                List<Object> list = new ArrayList<>();
+                for (Property child : children.asPropertyList()) {
+                    if (!singletonAddresses.contains(childType + "=" + child.getName()) && child.getValue().isDefined()) {
+                        list.add(decode(binding.getResourceType(), child.getName(), child.getValue()));
+                    }
+                }
+                if (!list.isEmpty()) {
+                    binding.set(entity, list);
+                }
+            } else {
+                String name = Entities.keyOf(Entities.newInstance(binding.getType(), null));
+                if (children.hasDefined(name)) {
+                    binding.set(entity, decode(binding.getType(), name, children.get(name)));
+                }
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * The <code>type=name</code> segments of the singleton children, which are excluded from the regular children
+     * of the same type
+     */
+    private static Set<String> singletonsOf(Class<?> type) {
+        Set<String> result = new HashSet<>();
+        for (SubresourceBinding binding : SubresourceBinding.of(type)) {
+            if (!binding.isList()) {
+                result.add(typeOf(binding) + "=" + Entities.keyOf(Entities.newInstance(binding.getType(), null)));
+            }
+        }
+        return result;
+    }
+
+    private static String typeOf(SubresourceBinding binding) {
+        ResourceType resourceType = binding.getResourceType().getAnnotation(ResourceType.class);
+        return resourceType != null ? resourceType.value() : null;
+    }
+}
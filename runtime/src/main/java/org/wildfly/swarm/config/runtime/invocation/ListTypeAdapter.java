@@ -75,14 +75,21 @@ public class ListTypeAdapter {
     }
 
 
-    @SuppressWarnings("unchecked")
     public void fromDmr(Object entity, String javaName, ModelType dmrType, Class<?> propertyType, ModelNode dmrPayload) throws Exception {
 
         Method target = entity.getClass().getMethod(javaName, propertyType);
+        target.invoke(entity, toJavaValue(dmrPayload));
+    }
+
+    /**
+     * Converts a DMR list into a java list
+     */
+    @SuppressWarnings("unchecked")
+    public List toJavaValue(ModelNode dmrPayload) {
         List<ModelNode> items = dmrPayload.isDefined() ? dmrPayload.asList() : Collections.EMPTY_LIST;
 
         if(items.isEmpty()) {
-            target.invoke(entity, Collections.EMPTY_LIST);
+            return Collections.EMPTY_LIST;
         }
         else
         {
@@ -94,29 +101,27 @@ public class ListTypeAdapter {
                 addJavaValueTo(list, listValueType, item);
             }
 
-            target.invoke(entity, list);
+            return list;
         }
-
-
     }
 
     private void addJavaValueTo(List target, ModelType type, ModelNode propValue)
     {
         if(type.equals(ModelType.STRING))
         {
-            target.add(propValue.asString());
+            target.add(ValueInterner.intern(propValue.asString()));
         }
         else if(type.equals(ModelType.INT))
         {
-            target.add(propValue.asInt());
+            target.add(ValueInterner.intern(propValue.asInt()));
         }
         else if(type.equals(ModelType.DOUBLE))
         {
-            target.add(propValue.asDouble());
+            target.add(ValueInterner.intern(propValue.asDouble()));
         }
         else if(type.equals(ModelType.LONG))
         {
-            target.add(propValue.asLong());
+            target.add(ValueInterner.intern(propValue.asLong()));
         }
         else if(type.equals(ModelType.BOOLEAN))
         {
@@ -26,21 +26,29 @@ public class MapTypeAdapter {
     public void fromDmr(Object entity, String javaName, ModelType dmrType, Class<?> propertyType, ModelNode dmrPayload) throws Exception {
 
         Method target = entity.getClass().getMethod(javaName, propertyType);
+        target.invoke(entity, toJavaValue(dmrPayload));
+    }
+
+    /**
+     * Converts a DMR object into a java map
+     */
+    public Map toJavaValue(ModelNode dmrPayload) {
         @SuppressWarnings("unchecked")
         List<Property> properties = dmrPayload.isDefined() ? dmrPayload.asPropertyList() : EMPTY_LIST;
         if(properties.isEmpty())
         {
-            target.invoke(entity, EMPTY_MAP);
+            return EMPTY_MAP;
         }
         else
         {
             Map<String, Object> map = new HashMap<>(properties.size());
 
             for (Property prop : properties) {
-                map.put(prop.getName(), toJavaValue(prop.getValue().getType(), prop.getValue()));
+                map.put(ValueInterner.intern(prop.getName()),
+                        ValueInterner.intern(toJavaValue(prop.getValue().getType(), prop.getValue())));
             }
 
-            target.invoke(entity, map);
+            return map;
         }
     }
 
@@ -3,6 +3,7 @@ package org.wildfly.swarm.config.runtime.invocation;
 import org.jboss.as.controller.PathAddress;
 import org.jboss.dmr.ModelNode;
 import org.jboss.jandex.*;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -17,25 +18,124 @@ public class Marshaller {
 
     private static HashMap<Class<?>, EntityAdapter<?>> adapters = new HashMap<>();
 
-    private static HashMap<Class<?>, Optional<Subresource>> subresources = new HashMap<>();
+    /**
+     * Options to tune the marshalled operations
+     */
+    public enum Option {
+        /**
+         * Omit attributes that equal the server side default of the resource description
+         */
+        ELIDE_DEFAULTS
+    }
 
+    /**
+     * Marshals an entity graph into a list of add operations.
+     * Operations are ordered by their dependencies: parents precede children and resources
+     * providing a capability precede the resources that reference it.
+     */
     public static LinkedList<ModelNode> marshal(Object root) throws Exception {
-        return appendNode(root, PathAddress.EMPTY_ADDRESS, new LinkedList<>());
+        return graphOf(root, EnumSet.noneOf(Option.class)).sort();
+    }
+
+    /**
+     * Marshals an entity graph into a list of add operations, using the given options.
+     *
+     * @see #marshal(Object)
+     */
+    public static LinkedList<ModelNode> marshal(Object root, Option... options) throws Exception {
+        return graphOf(root, optionsOf(options)).sort();
     }
 
-    @SuppressWarnings("unchecked")
-    private static LinkedList<ModelNode> appendNode(Object entity, PathAddress address, LinkedList<ModelNode> list) throws Exception {
-        final PathAddress resourceAddress = resourceAddress(entity, address);
+    /**
+     * Marshals an entity graph into levels of add operations.
+     * The operations within a level are independent of each other and can be applied in parallel,
+     * once the operations of all previous levels have been applied.
+     */
+    public static List<List<ModelNode>> marshalLevels(Object root) throws Exception {
+        return graphOf(root, EnumSet.noneOf(Option.class)).levels();
+    }
 
-        final ModelNode modelNode = addressNodeFor(resourceAddress);
+    /**
+     * Marshals an entity graph into levels of add operations, using the given options.
+     *
+     * @see #marshalLevels(Object)
+     */
+    public static List<List<ModelNode>> marshalLevels(Object root, Option... options) throws Exception {
+        return graphOf(root, optionsOf(options)).levels();
+    }
+
+    static EnumSet<Option> optionsOf(Option... options) {
+        EnumSet<Option> result = EnumSet.noneOf(Option.class);
+        Collections.addAll(result, options);
+        return result;
+    }
 
-        EntityAdapter adapter = adapterFor(entity.getClass());
-        ModelNode result = adapter.fromEntity(entity, modelNode);
-        if ( result != null ) {
-            list.add(result);
+    static CapabilityGraph graphOf(Object root, EnumSet<Option> options) throws Exception {
+        CapabilityGraph graph = new CapabilityGraph();
+        try {
+            Traversal.walk(root, new GraphBuilder(graph, options));
+        } catch (MarshallingException e) {
+            throw e.getCause();
         }
+        return graph;
+    }
+
+    /**
+     * Adds the operations of the visited resources to the graph, tracking the address of the current resource
+     */
+    private static class GraphBuilder implements ResourceVisitor {
+
+        private final CapabilityGraph graph;
 
-        return marshalSubresources(entity, resourceAddress, list);
+        private final EnumSet<Option> options;
+
+        private final Deque<PathAddress> addresses = new ArrayDeque<>();
+
+        GraphBuilder(CapabilityGraph graph, EnumSet<Option> options) {
+            this.graph = graph;
+            this.options = options;
+            this.addresses.push(PathAddress.EMPTY_ADDRESS);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean visitResource(Object entity) {
+            final PathAddress resourceAddress = resourceAddress(entity, addresses.peek());
+            final ModelNode modelNode = addressNodeFor(resourceAddress);
+
+            EntityAdapter adapter = adapterFor(entity.getClass());
+            try {
+                ModelNode result = adapter.fromEntity(entity, modelNode, options.contains(Option.ELIDE_DEFAULTS));
+                if ( result != null ) {
+                    graph.add(entity, resourceAddress, result);
+                }
+            } catch (Exception e) {
+                throw new MarshallingException(e);
+            }
+
+            addresses.push(resourceAddress);
+            return true;
+        }
+
+        @Override
+        public void leaveResource(Object entity) {
+            addresses.pop();
+        }
+    }
+
+    /**
+     * Carries checked exceptions of the adapters through the traversal
+     */
+    private static class MarshallingException extends RuntimeException {
+
+        MarshallingException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
     }
 
     private static PathAddress resourceAddress(Object resource, PathAddress pathAddress) {
@@ -94,74 +194,5 @@ public class Marshaller {
         return adapters.get(type);
     }
 
-    public static synchronized Optional<Subresource> subresourcesFor(Object entity) {
-        Class<?> type = entity.getClass();
-        if (!subresources.containsKey(type)) {
-            try {
-                Method target = type.getMethod("subresources");
-                subresources.put(type, Optional.of(new Subresource(target.getReturnType(), target)));
-            } catch (Exception e) {
-                // If no subresources() method, then no subresources exist
-                subresources.put(type, Optional.empty());
-            }
-        }
-        return subresources.get(type);
-    }
-
-    private static List<Method> orderedSubresources(Object parent) throws NoSuchMethodException {
-        final Class<?> parentClass = parent.getClass();
-        return new SubresourceFilter(parentClass).invoke();
-    }
-
-    private static LinkedList<ModelNode> marshalSubresources(Object parent, PathAddress address, LinkedList<ModelNode> list) {
-        try {
-            // Handle lists
-            Optional<Subresource> optional = subresourcesFor(parent);
-
-            if (optional.isPresent()) {
-                Object subresources = optional.get().invoke(parent);
-
-                // Do regular sub-resources first
-                for (Method target : orderedSubresources(subresources)) {
-                    if (target.getReturnType() == List.class) {
-                        List<?> resourceList = (List<?>) target.invoke(subresources);
-                        for (Object o : resourceList) {
-                            appendNode(o, address, list);
-                        }
-                    }
-                }
-                // Do singletons next
-                for (Method target: orderedSubresources(subresources) ) {
-                    if (target.getReturnType() != List.class) {
-                        Object resource = target.invoke(subresources);
-                        if ( resource != null ) {
-                            appendNode(resource, address, list);
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error getting subresources for " + parent.getClass().getSimpleName());
-            e.printStackTrace();
-        }
-        return list;
-    }
-
-    private static class Subresource {
-        public final Class<?> type;
-
-        public final Method method;
-
-        public Subresource(Class<?> type, Method method) {
-            this.type = type;
-            this.method = method;
-        }
-
-        public Object invoke(Object parent) throws InvocationTargetException, IllegalAccessException {
-            return method.invoke(parent);
-        }
-
-    }
-
 }
 
@@ -0,0 +1,250 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+
+/**
+ * Estimates the memory retained by an entity graph, per resource type.
+ * <p>
+ * The graph is walked through the generated subresource accessors. For every resource type the report
+ * holds the number of instances, their shallow size, their deep size (the instances plus their attribute
+ * values, subresource holders and child lists, but excluding child entities), the share of unset attributes
+ * and the number of empty collections that are retained.
+ * <p>
+ * Sizes are estimates for a 64 bit JVM with compressed references. Values shared by several
+ * resources (i.e. interned strings) are counted once, for the first resource that retains them.
+ */
+public class MemoryReport {
+
+    private final Map<Class<?>, TypeStats> types;
+
+    private MemoryReport(Map<Class<?>, TypeStats> types) {
+        this.types = types;
+    }
+
+    /**
+     * Walks the entity graph below a root entity
+     *
+     * @param root the root entity, i.e. a subsystem
+     * @return the report
+     */
+    public static MemoryReport of(Object root) {
+        // depth first, post order: children are measured before the values they share with their parents
+        List<Object> entities = new ArrayList<>();
+        Set<Object> boundaries = Collections.newSetFromMap(new IdentityHashMap<>());
+        collect(root, entities, boundaries);
+
+        SizeEstimator estimator = new SizeEstimator(boundaries);
+        Map<Class<?>, TypeStats> types = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            TypeStats stats = types.computeIfAbsent(entity.getClass(), TypeStats::new);
+
+            int emptyBefore = estimator.getEmptyCollections();
+            stats.count++;
+            stats.shallowSize += estimator.shallowSize(entity.getClass());
+            stats.deepSize += estimator.retainedSize(entity);
+            stats.emptyCollections += estimator.getEmptyCollections() - emptyBefore;
+
+            for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+                stats.attributes++;
+                Object value = binding.get(entity);
+                if (value == null) {
+                    stats.nullAttributes++;
+                }
+            }
+        }
+
+        List<TypeStats> sorted = new ArrayList<>(types.values());
+        sorted.sort((a, b) -> Long.compare(b.deepSize, a.deepSize));
+        Map<Class<?>, TypeStats> result = new LinkedHashMap<>();
+        for (TypeStats stats : sorted) {
+            result.put(stats.type, stats);
+        }
+        return new MemoryReport(result);
+    }
+
+    private static void collect(Object root, List<Object> entities, Set<Object> boundaries) {
+        Traversal.walk(root, new ResourceVisitor() {
+            @Override
+            public boolean visitResource(Object resource) {
+                return boundaries.add(resource);
+            }
+
+            @Override
+            public void leaveResource(Object resource) {
+                entities.add(resource);
+            }
+        });
+    }
+
+    /**
+     * @return the statistics per resource type, largest deep size first
+     */
+    public Collection<TypeStats> getTypes() {
+        return Collections.unmodifiableCollection(types.values());
+    }
+
+    /**
+     * @return the statistics of a resource type or null if the graph does not contain it
+     */
+    public TypeStats getType(Class<?> type) {
+        return types.get(type);
+    }
+
+    public int getCount() {
+        int count = 0;
+        for (TypeStats stats : types.values()) {
+            count += stats.count;
+        }
+        return count;
+    }
+
+    public long getShallowSize() {
+        long size = 0;
+        for (TypeStats stats : types.values()) {
+            size += stats.shallowSize;
+        }
+        return size;
+    }
+
+    public long getDeepSize() {
+        long size = 0;
+        for (TypeStats stats : types.values()) {
+            size += stats.deepSize;
+        }
+        return size;
+    }
+
+    /**
+     * @return a human readable table, one line per resource type
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-50s %10s %14s %14s %8s %8s%n",
+                "type", "count", "shallow", "deep", "null%", "empty"));
+        for (TypeStats stats : types.values()) {
+            sb.append(String.format("%-50s %10d %14d %14d %7.1f%% %8d%n",
+                    stats.type.getName(), stats.count, stats.shallowSize, stats.deepSize,
+                    stats.getNullRatio() * 100, stats.emptyCollections));
+        }
+        sb.append(String.format("%-50s %10d %14d %14d%n", "total", getCount(), getShallowSize(), getDeepSize()));
+        return sb.toString();
+    }
+
+    /**
+     * @return the report as a JSON document
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"count\":").append(getCount())
+                .append(",\"shallowSize\":").append(getShallowSize())
+                .append(",\"deepSize\":").append(getDeepSize())
+                .append(",\"types\":[");
+        boolean first = true;
+        for (TypeStats stats : types.values()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"type\":\"").append(stats.type.getName()).append('"')
+                    .append(",\"count\":").append(stats.count)
+                    .append(",\"shallowSize\":").append(stats.shallowSize)
+                    .append(",\"deepSize\":").append(stats.deepSize)
+                    .append(",\"attributes\":").append(stats.attributes)
+                    .append(",\"nullAttributes\":").append(stats.nullAttributes)
+                    .append(",\"emptyCollections\":").append(stats.emptyCollections)
+                    .append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+
+    /**
+     * The statistics of a single resource type
+     */
+    public static class TypeStats {
+
+        private final Class<?> type;
+
+        private int count;
+
+        private long shallowSize;
+
+        private long deepSize;
+
+        private long attributes;
+
+        private long nullAttributes;
+
+        private int emptyCollections;
+
+        private TypeStats(Class<?> type) {
+            this.type = type;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the estimated size of the instances themselves
+         */
+        public long getShallowSize() {
+            return shallowSize;
+        }
+
+        /**
+         * @return the estimated size of the instances, their attribute values and child containers
+         */
+        public long getDeepSize() {
+            return deepSize;
+        }
+
+        /**
+         * @return the number of attributes of all instances
+         */
+        public long getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * @return the number of unset attributes of all instances
+         */
+        public long getNullAttributes() {
+            return nullAttributes;
+        }
+
+        public double getNullRatio() {
+            return attributes == 0 ? 0 : (double) nullAttributes / attributes;
+        }
+
+        /**
+         * @return the number of empty collections and maps retained by the instances
+         */
+        public int getEmptyCollections() {
+            return emptyCollections;
+        }
+
+        @Override
+        public String toString() {
+            return "TypeStats{" + type.getSimpleName() + ", count=" + count + ", deep=" + deepSize + "}";
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.wildfly.swarm.config.runtime.KeyedList;
+import org.wildfly.swarm.config.runtime.ResourceType;
+
+/**
+ * Structural hashes of an entity graph, maintained incrementally.
+ * <p>
+ * Every entity keeps a hash over its attributes and the hashes of its children. Mutations invalidate the hash
+ * of the mutated entity and of its ancestors only, hence re-hashing after a change costs time proportional to the
+ * changed paths rather than the whole graph. Changes are observed through the property change support of the
+ * generated entities and the change listeners of {@link KeyedList}. Entities that can't be observed are re-hashed
+ * on every access.
+ * <p>
+ * Attribute values are hashed with all their bits, strings through their UTF-8 bytes, and absent values differ
+ * from zero or empty ones. Children are combined independent of their order. Equal hashes indicate equal graphs
+ * with high probability, {@link #diff(MerkleTree)} descends into mismatching subtrees only.
+ * <p>
+ * Instances are not thread safe. Call {@link #close()} to stop observing the graph.
+ */
+public class MerkleTree implements AutoCloseable {
+
+    /**
+     * The hash of absent values
+     */
+    private static final long ABSENT = 0x5bd1e9955bd1e995L;
+
+    private final IdentityHashMap<Object, Node> nodes = new IdentityHashMap<>();
+
+    private final Node root;
+
+    private MerkleTree(Object root) {
+        this.root = new Node(root, null, segmentOf(root));
+    }
+
+    /**
+     * Starts tracking an entity graph
+     *
+     * @param root the root entity
+     * @return the tree
+     */
+    public static MerkleTree track(Object root) {
+        return new MerkleTree(root);
+    }
+
+    /**
+     * @return the hash of the whole graph
+     */
+    public long hash() {
+        return root.hash();
+    }
+
+    /**
+     * @param entity an entity of the graph
+     * @return the hash of the subtree below the entity
+     */
+    public long hashOf(Object entity) {
+        hash(); // brings the children of changed entities up to date
+        Node node = nodes.get(entity);
+        if (node == null) {
+            throw new IllegalArgumentException("Not part of the graph: " + entity);
+        }
+        return node.hash();
+    }
+
+    /**
+     * Whether the graph changed, compared to a previous hash
+     */
+    public boolean changedSince(long hash) {
+        return hash() != hash;
+    }
+
+    /**
+     * Compares two graphs structurally
+     *
+     * @param other the other graph
+     * @return true if both graphs have the same hash
+     */
+    public boolean matches(MerkleTree other) {
+        return hash() == other.hash();
+    }
+
+    /**
+     * The differences between this graph (expected) and another graph (actual). Only subtrees with
+     * differing hashes are visited.
+     *
+     * @param other the other graph
+     * @return the differing attributes and resources
+     */
+    public List<Difference> diff(MerkleTree other) {
+        List<Difference> differences = new ArrayList<>();
+        diff(root, other.root, root.segment, differences);
+        return differences;
+    }
+
+    private static void diff(Node expected, Node actual, String address, List<Difference> differences) {
+        if (expected.hash() == actual.hash()) {
+            return;
+        }
+        if (expected.entity.getClass() != actual.entity.getClass()) {
+            differences.add(new Difference(Difference.Kind.REPLACED, address, null, expected.entity, actual.entity));
+            return;
+        }
+
+        for (AttributeBinding binding : AttributeBinding.of(expected.entity.getClass())) {
+            Object expectedValue = attributeOf(expected.entity, binding);
+            Object actualValue = attributeOf(actual.entity, binding);
+            if (!Objects.equals(expectedValue, actualValue)) {
+                differences.add(new Difference(Difference.Kind.ATTRIBUTE, address, binding.getDetypedName(), expectedValue, actualValue));
+            }
+        }
+
+        Map<String, Node> actualChildren = new LinkedHashMap<>();
+        for (Node child : actual.children) {
+            actualChildren.put(child.segment, child);
+        }
+        for (Node child : expected.children) {
+            Node match = actualChildren.remove(child.segment);
+            String childAddress = address + "/" + child.segment;
+            if (match == null) {
+                differences.add(new Difference(Difference.Kind.MISSING, childAddress, null, child.entity, null));
+            } else {
+                diff(child, match, childAddress, differences);
+            }
+        }
+        for (Node child : actualChildren.values()) {
+            differences.add(new Difference(Difference.Kind.UNEXPECTED, address + "/" + child.segment, null, null, child.entity));
+        }
+    }
+
+    /**
+     * Stops observing the graph
+     */
+    @Override
+    public void close() {
+        root.detach();
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object attributeOf(Object entity, AttributeBinding binding) {
+        if (entity instanceof Map && ((Map<String, String>) entity).containsKey(binding.getJavaName())) {
+            return "${" + ((Map<String, String>) entity).get(binding.getJavaName());
+        }
+        return binding.get(entity);
+    }
+
+    static String segmentOf(Object entity) {
+        ResourceType type = entity.getClass().getAnnotation(ResourceType.class);
+        return (type != null ? type.value() : entity.getClass().getSimpleName()) + "=" + Entities.keyOf(entity);
+    }
+
+    /**
+     * A hash over all bits of an attribute value. Absent values, the value types and the elements of lists and maps
+     * are distinguished, i.e. <code>null</code>, <code>0</code> and <code>-1L</code> differ.
+     */
+    static long valueHash(Object value) {
+        if (value == null) {
+            return ABSENT;
+        } else if (value instanceof String) {
+            return mix(1, stringHash((String) value));
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix(2, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            return mix(3, Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            return mix(4, (Boolean) value ? 1 : 0);
+        } else if (value instanceof Enum) {
+            return mix(5, stringHash(value.toString()));
+        } else if (value instanceof List) {
+            long hash = mix(6, ((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                hash = mix(hash * 31 + valueHash(item));
+            }
+            return hash;
+        } else if (value instanceof Map) {
+            long hash = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                hash += mix(valueHash(entry.getKey()) * 31 + valueHash(entry.getValue()));
+            }
+            return mix(7, hash + ((Map<?, ?>) value).size());
+        }
+        return mix(8, stringHash(value.toString()));
+    }
+
+    /**
+     * 64 bit FNV-1a over the UTF-8 bytes of a string
+     */
+    static long stringHash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Tags the bits of a value with its type. Distinct bits of the same type never collide.
+     */
+    private static long mix(int type, long bits) {
+        return mix(bits * 0x9e3779b97f4a7c15L + type);
+    }
+
+    /**
+     * The finalizer of MurmurHash3
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Node implements PropertyChangeListener, KeyedList.ChangeListener<Object> {
+
+        private final Object entity;
+
+        private final Node parent;
+
+        private final String segment;
+
+        private final boolean observed;
+
+        private List<Node> children = new ArrayList<>();
+
+        private final List<KeyedList<?>> lists = new ArrayList<>();
+
+        private boolean dirty = true;
+
+        private boolean childrenDirty = true;
+
+        private long hash;
+
+        Node(Object entity, Node parent, String segment) {
+            this.entity = entity;
+            this.parent = parent;
+            this.segment = segment;
+            this.observed = Entities.addPropertyChangeListener(entity, this);
+            nodes.put(entity, this);
+        }
+
+        long hash() {
+            if (!dirty && observed) {
+                return hash;
+            }
+            if (childrenDirty || !observed) {
+                updateChildren();
+            }
+
+            long h = mix(stringHash(entity.getClass().getName()) * 31 + valueHash(Entities.keyOf(entity)));
+            for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+                h = h * 31 + mix(stringHash(binding.getDetypedName()) * 31 + valueHash(attributeOf(entity, binding)));
+            }
+            long sum = 0;
+            for (Node child : children) {
+                sum += mix(child.hash());
+            }
+            hash = mix(h + sum);
+
+            // nodes that can't be observed, and their ancestors, are always recomputed
+            dirty = !observed;
+            for (int i = 0; i < children.size() && !dirty; i++) {
+                dirty = children.get(i).dirty;
+            }
+            return hash;
+        }
+
+        private void updateChildren() {
+            for (KeyedList<?> list : lists) {
+                list.removeChangeListener(this);
+            }
+            lists.clear();
+
+            IdentityHashMap<Object, Node> previous = new IdentityHashMap<>();
+            for (Node child : children) {
+                previous.put(child.entity, child);
+            }
+
+            List<Node> current = new ArrayList<>();
+            for (SubresourceBinding binding : SubresourceBinding.of(entity.getClass())) {
+                Object value = binding.get(entity);
+                if (value instanceof KeyedList) {
+                    KeyedList<?> list = (KeyedList<?>) value;
+                    list.addChangeListener(this);
+                    lists.add(list);
+                }
+                for (Object child : binding.children(entity)) {
+                    Node node = previous.remove(child);
+                    current.add(node != null ? node : new Node(child, this, segmentOf(child)));
+                }
+            }
+            for (Node removed : previous.values()) {
+                removed.detach();
+            }
+            children = current;
+            childrenDirty = false;
+        }
+
+        void detach() {
+            Entities.removePropertyChangeListener(entity, this);
+            for (KeyedList<?> list : lists) {
+                list.removeChangeListener(this);
+            }
+            lists.clear();
+            for (Node child : children) {
+                child.detach();
+            }
+            nodes.remove(entity);
+        }
+
+        /**
+         * An attribute or a child resource of the entity changed
+         */
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            for (SubresourceBinding binding : SubresourceBinding.of(entity.getClass())) {
+                if (binding.getName().equals(evt.getPropertyName())) {
+                    childrenDirty = true;
+                }
+            }
+            invalidate();
+        }
+
+        /**
+         * A child list changed
+         */
+        @Override
+        public void changed(List<?> removed, List<?> added) {
+            childrenDirty = true;
+            invalidate();
+        }
+
+        private void invalidate() {
+            for (Node node = this; node != null; node = node.parent) {
+                if (node.dirty && node != this) {
+                    break;
+                }
+                node.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * A difference between two entity graphs
+     */
+    public static class Difference {
+
+        public enum Kind {
+            /** An attribute value differs */
+            ATTRIBUTE,
+            /** A resource of the expected graph is missing */
+            MISSING,
+            /** A resource exists that is not part of the expected graph */
+            UNEXPECTED,
+            /** The resources at the same address are of different types */
+            REPLACED
+        }
+
+        private final Kind kind;
+
+        private final String address;
+
+        private final String attribute;
+
+        private final Object expected;
+
+        private final Object actual;
+
+        public Difference(Kind kind, String address, String attribute, Object expected, Object actual) {
+            this.kind = kind;
+            this.address = address;
+            this.attribute = attribute;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the resource address, i.e. <code>subsystem=datasources/data-source=ExampleDS</code>
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * @return the detyped attribute name for attribute differences, null otherwise
+         */
+        public String getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * @return the expected attribute value or resource
+         */
+        public Object getExpected() {
+            return expected;
+        }
+
+        /**
+         * @return the actual attribute value or resource
+         */
+        public Object getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.ATTRIBUTE
+                    ? address + ":" + attribute + " expected " + expected + " but was " + actual
+                    : address + " " + kind.name().toLowerCase();
+        }
+    }
+}
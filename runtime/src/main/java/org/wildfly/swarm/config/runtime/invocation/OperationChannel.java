@@ -0,0 +1,57 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * Executes management operations asynchronously. Tests provide an in-process implementation, servers are
+ * reached through {@link #of(ModelControllerClient)}.
+ */
+@FunctionalInterface
+public interface OperationChannel {
+
+    /**
+     * @param operation the operation
+     * @return the response of the server, including the outcome
+     */
+    CompletableFuture<ModelNode> execute(ModelNode operation);
+
+    /**
+     * @param client a connected client, not closed by the channel
+     * @return a channel that executes operations through {@link ModelControllerClient#executeAsync}
+     */
+    static OperationChannel of(ModelControllerClient client) {
+        return operation -> {
+            CompletableFuture<ModelNode> response = new CompletableFuture<>();
+            client.executeAsync(operation, OperationMessageHandler.DISCARD).addListener(new AsyncFuture.Listener<ModelNode, Void>() {
+                @Override
+                public void handleComplete(AsyncFuture<? extends ModelNode> future, Void attachment) {
+                    try {
+                        response.complete(future.get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        response.completeExceptionally(e);
+                    } catch (ExecutionException e) {
+                        response.completeExceptionally(e.getCause());
+                    }
+                }
+
+                @Override
+                public void handleFailed(AsyncFuture<? extends ModelNode> future, Throwable cause, Void attachment) {
+                    response.completeExceptionally(cause);
+                }
+
+                @Override
+                public void handleCancelled(AsyncFuture<? extends ModelNode> future, Void attachment) {
+                    response.cancel(false);
+                }
+            }, null);
+            return response;
+        };
+    }
+}
@@ -0,0 +1,460 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.dmr.ModelNode;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ROLLBACK_ON_RUNTIME_FAILURE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ROLLED_BACK;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+/**
+ * Applies marshalled operations to a server without blocking the caller:
+ *
+ * <pre>
+ * OperationExecutor executor = new OperationExecutor(OperationChannel.of(client)).batchSize(100).maxInFlight(4);
+ * executor.execute(datasources).thenAccept(result -&gt; ...);
+ * </pre>
+ *
+ * Operations are sent as composites of up to {@link #batchSize(int)} steps. The levels of
+ * {@link Marshaller#marshalLevels(Object)} are applied one after the other, the batches of one level concurrently,
+ * with at most {@link #maxInFlight(int)} requests outstanding. Plain lists of operations are applied in order,
+ * one batch at a time.
+ * <p>
+ * Instances can be shared, each execution keeps its own state.
+ */
+public class OperationExecutor {
+
+    /**
+     * What a failed operation undoes
+     */
+    public enum Rollback {
+        /**
+         * All operations are sent as a single composite, any failure rolls back everything
+         */
+        ALL,
+        /**
+         * A failure rolls back its batch, batches that depend on it are skipped
+         */
+        BATCH,
+        /**
+         * Runtime failures don't roll back other operations and later operations are attempted anyway
+         */
+        NONE
+    }
+
+    private final OperationChannel channel;
+
+    private int batchSize = 50;
+
+    private int maxInFlight = 4;
+
+    private Rollback rollback = Rollback.BATCH;
+
+    public OperationExecutor(OperationChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param batchSize the maximum number of steps per composite
+     * @return this
+     */
+    public OperationExecutor batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param maxInFlight the maximum number of concurrent requests
+     * @return this
+     */
+    public OperationExecutor maxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Requests in flight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * @param rollback the rollback semantics, {@link Rollback#BATCH} by default
+     * @return this
+     */
+    public OperationExecutor rollback(Rollback rollback) {
+        this.rollback = rollback;
+        return this;
+    }
+
+    /**
+     * Marshals and applies an entity graph. The outcomes refer to the entities they have been created from.
+     *
+     * @param root the root entity
+     * @param options the marshalling options
+     * @return the outcome of every operation
+     */
+    public CompletableFuture<Result> execute(Object root, Marshaller.Option... options) {
+        CapabilityGraph graph;
+        try {
+            graph = Marshaller.graphOf(root, Marshaller.optionsOf(options));
+        } catch (Exception e) {
+            CompletableFuture<Result> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return run(graph.levels(), graph);
+    }
+
+    /**
+     * Applies operations in order
+     *
+     * @param operations the operations, i.e. the output of {@link Marshaller#marshal(Object)}
+     * @return the outcome of every operation
+     */
+    public CompletableFuture<Result> execute(List<ModelNode> operations) {
+        List<List<ModelNode>> levels = new ArrayList<>();
+        for (int from = 0; from < operations.size(); from += batchSize) {
+            levels.add(operations.subList(from, Math.min(from + batchSize, operations.size())));
+        }
+        return run(levels, null);
+    }
+
+    /**
+     * Applies levels of independent operations
+     *
+     * @param levels the operation levels, i.e. the output of {@link Marshaller#marshalLevels(Object)}
+     * @return the outcome of every operation
+     */
+    public CompletableFuture<Result> executeLevels(List<List<ModelNode>> levels) {
+        return run(levels, null);
+    }
+
+    private CompletableFuture<Result> run(List<List<ModelNode>> levels, CapabilityGraph graph) {
+        Execution execution = new Execution();
+        List<List<Batch>> batches = new ArrayList<>(levels.size());
+        for (List<ModelNode> level : levels) {
+            List<Batch> levelBatches = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += batchSize) {
+                levelBatches.add(execution.batch(level.subList(from, Math.min(from + batchSize, level.size())), graph));
+            }
+            batches.add(levelBatches);
+        }
+
+        if (rollback == Rollback.ALL) {
+            List<Outcome> all = new ArrayList<>();
+            for (List<Batch> level : batches) {
+                for (Batch batch : level) {
+                    all.addAll(batch.outcomes);
+                }
+            }
+            batches = Collections.singletonList(Collections.singletonList(new Batch(all)));
+        }
+
+        CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+        for (List<Batch> level : batches) {
+            done = done.thenCompose(previous -> execution.failed.get() && rollback != Rollback.NONE
+                    ? CompletableFuture.completedFuture(null)
+                    : execution.run(level));
+        }
+        return done.thenApply(v -> new Result(execution.outcomes));
+    }
+
+    /**
+     * The state of one execution
+     */
+    private final class Execution {
+
+        private final List<Outcome> outcomes = new ArrayList<>();
+
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        Batch batch(List<ModelNode> operations, CapabilityGraph graph) {
+            List<Outcome> batchOutcomes = new ArrayList<>(operations.size());
+            for (ModelNode operation : operations) {
+                Outcome outcome = new Outcome(operation, graph != null ? graph.entityOf(operation) : null);
+                batchOutcomes.add(outcome);
+                outcomes.add(outcome);
+            }
+            return new Batch(batchOutcomes);
+        }
+
+        /**
+         * Runs the batches of a level, keeping at most maxInFlight of them outstanding
+         */
+        CompletableFuture<Void> run(List<Batch> level) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger remaining = new AtomicInteger(level.size());
+            for (int i = 0; i < Math.min(maxInFlight, level.size()); i++) {
+                submitNext(level, next, remaining, done);
+            }
+            return done;
+        }
+
+        /**
+         * Sends batches one after the other. Responses that complete while the callback is registered, e.g.
+         * from a synchronous channel, continue this loop instead of recursing, so the stack doesn't grow per batch.
+         */
+        private void submitNext(List<Batch> level, AtomicInteger next, AtomicInteger remaining, CompletableFuture<Void> done) {
+            for (int index = next.getAndIncrement(); index < level.size(); index = next.getAndIncrement()) {
+                Batch batch = level.get(index);
+                CompletableFuture<ModelNode> response;
+                try {
+                    response = channel.execute(batch.request());
+                } catch (RuntimeException e) {
+                    response = new CompletableFuture<>();
+                    response.completeExceptionally(e);
+                }
+                // 0: pending, 1: the loop has returned, 2: completed before the loop returned
+                AtomicInteger state = new AtomicInteger();
+                response.whenComplete((result, failure) -> {
+                    try {
+                        if (!batch.complete(result, failure)) {
+                            failed.set(true);
+                        }
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            done.complete(null);
+                        } else if (!state.compareAndSet(0, 2)) {
+                            submitNext(level, next, remaining, done);
+                        }
+                    }
+                });
+                if (state.compareAndSet(0, 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The operations sent in one request
+     */
+    private final class Batch {
+
+        private final List<Outcome> outcomes;
+
+        Batch(List<Outcome> outcomes) {
+            this.outcomes = outcomes;
+        }
+
+        /**
+         * Single operations are sent as they are, unless the rollback header is needed
+         */
+        boolean isSingle() {
+            return outcomes.size() == 1 && rollback != Rollback.NONE;
+        }
+
+        ModelNode request() {
+            if (isSingle()) {
+                return outcomes.get(0).operation;
+            }
+            ModelNode composite = new ModelNode();
+            composite.get(OP).set(COMPOSITE);
+            composite.get(OP_ADDR).setEmptyList();
+            ModelNode steps = composite.get(STEPS).setEmptyList();
+            for (Outcome outcome : outcomes) {
+                steps.add(outcome.operation);
+            }
+            if (rollback == Rollback.NONE) {
+                composite.get(OPERATION_HEADERS, ROLLBACK_ON_RUNTIME_FAILURE).set(false);
+            }
+            return composite;
+        }
+
+        /**
+         * @return whether all operations succeeded
+         */
+        boolean complete(ModelNode response, Throwable failure) {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                for (Outcome outcome : outcomes) {
+                    outcome.complete(Outcome.Status.FAILED, null, cause.toString());
+                }
+                return false;
+            }
+
+            boolean success = SUCCESS.equals(response.get(OUTCOME).asString());
+            if (isSingle()) {
+                outcomes.get(0).complete(success ? Outcome.Status.SUCCESS : Outcome.Status.FAILED,
+                                         response.get(RESULT), failureOf(response));
+                return success;
+            }
+
+            boolean rolledBack = response.get(ROLLED_BACK).asBoolean(!success);
+            ModelNode results = response.get(RESULT);
+            boolean allSucceeded = true;
+            for (int i = 0; i < outcomes.size(); i++) {
+                ModelNode step = results.get("step-" + (i + 1));
+                Outcome outcome = outcomes.get(i);
+                if (step.isDefined() && SUCCESS.equals(step.get(OUTCOME).asString())) {
+                    outcome.complete(rolledBack ? Outcome.Status.ROLLED_BACK : Outcome.Status.SUCCESS, step.get(RESULT), null);
+                } else if (step.isDefined() && FAILED.equals(step.get(OUTCOME).asString())) {
+                    outcome.complete(Outcome.Status.FAILED, null, failureOf(step));
+                    allSucceeded = false;
+                } else {
+                    // not reached before the composite failed
+                    outcome.complete(success ? Outcome.Status.SUCCESS : Outcome.Status.ROLLED_BACK, null, success ? null : failureOf(response));
+                    allSucceeded &= success;
+                }
+            }
+            return allSucceeded && success;
+        }
+
+        private String failureOf(ModelNode node) {
+            return node.hasDefined(FAILURE_DESCRIPTION) ? node.get(FAILURE_DESCRIPTION).asString() : null;
+        }
+    }
+
+    /**
+     * The outcome of one operation
+     */
+    public static class Outcome {
+
+        public enum Status {
+            /** The operation has been applied */
+            SUCCESS,
+            /** The operation failed */
+            FAILED,
+            /** The operation succeeded, but has been undone because another operation failed */
+            ROLLED_BACK,
+            /** The operation has not been sent, because an operation it depends on failed */
+            SKIPPED
+        }
+
+        private final ModelNode operation;
+
+        private final Object entity;
+
+        private volatile Status status = Status.SKIPPED;
+
+        private volatile ModelNode result;
+
+        private volatile String failureDescription;
+
+        Outcome(ModelNode operation, Object entity) {
+            this.operation = operation;
+            this.entity = entity;
+        }
+
+        void complete(Status status, ModelNode result, String failureDescription) {
+            this.status = status;
+            this.result = result;
+            this.failureDescription = failureDescription;
+        }
+
+        public ModelNode getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return the entity the operation was marshalled from, null for operations passed in directly
+         */
+        public Object getEntity() {
+            return entity;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isSuccess() {
+            return status == Status.SUCCESS;
+        }
+
+        /**
+         * @return the result of the operation or null
+         */
+        public ModelNode getResult() {
+            return result;
+        }
+
+        /**
+         * @return the failure description of the server or the client side exception, null if the operation succeeded
+         */
+        public String getFailureDescription() {
+            return failureDescription;
+        }
+
+        @Override
+        public String toString() {
+            return status + " " + operation.get(OP).asString() + " " + operation.get(OP_ADDR)
+                    + (failureDescription != null ? ": " + failureDescription : "");
+        }
+    }
+
+    /**
+     * The outcomes of an execution, in the order of the operations
+     */
+    public static class Result {
+
+        private final List<Outcome> outcomes;
+
+        private final Map<Object, Outcome> byEntity = new IdentityHashMap<>();
+
+        Result(List<Outcome> outcomes) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+            for (Outcome outcome : outcomes) {
+                if (outcome.entity != null) {
+                    byEntity.put(outcome.entity, outcome);
+                }
+            }
+        }
+
+        public List<Outcome> getOutcomes() {
+            return outcomes;
+        }
+
+        /**
+         * @return whether every operation has been applied
+         */
+        public boolean isSuccess() {
+            for (Outcome outcome : outcomes) {
+                if (!outcome.isSuccess()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the outcomes of the failed operations
+         */
+        public List<Outcome> getFailures() {
+            List<Outcome> failures = new ArrayList<>();
+            for (Outcome outcome : outcomes) {
+                if (outcome.getStatus() == Outcome.Status.FAILED) {
+                    failures.add(outcome);
+                }
+            }
+            return failures;
+        }
+
+        /**
+         * @param entity an entity of the executed graph
+         * @return the outcome of its operation or null
+         */
+        public Outcome outcomeOf(Object entity) {
+            return byEntity.get(entity);
+        }
+    }
+}
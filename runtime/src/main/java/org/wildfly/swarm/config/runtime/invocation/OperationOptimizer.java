@@ -0,0 +1,217 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.jboss.dmr.ModelNode;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.UNDEFINE_ATTRIBUTE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.VALUE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.WRITE_ATTRIBUTE_OPERATION;
+
+/**
+ * Removes redundant work from a sequence of operations, i.e. the output of {@link Marshaller}
+ * followed by the changesets of {@link EntityAdapter#fromChangeset(Map, String...)}.
+ * <p>
+ * The optimized sequence leaves the server in the same state as the original one. The input operations
+ * are not modified. Composites consisting of attribute writes only, as created by
+ * {@link EntityAdapter#fromChangeset(Map, String...)}, are flattened where their steps target an add that is
+ * still open. An add is open until the next add, so that no write moves before the add of a resource it might
+ * refer to. Operations carrying headers and any other operation that is neither an add, nor a write or
+ * undefine attribute operation, act as a barrier: nothing is merged or deduplicated across them.
+ */
+public class OperationOptimizer {
+
+    public enum Pass {
+        /**
+         * Fold <code>write-attribute</code> and <code>undefine-attribute</code> operations, stand-alone or
+         * steps of a composite, into the preceding <code>add</code> of the same address, unless an add of another
+         * address came in between
+         */
+        MERGE_WRITES,
+
+        /**
+         * Drop <code>add</code> operations without attributes for resources that exist on the target anyway.
+         * See {@link #existingResources(Predicate)}
+         */
+        DROP_EMPTY_ADDS,
+
+        /**
+         * Drop attribute writes identical to the previous operation on the same address. Repeated adds are
+         * kept, the server has to reject them.
+         */
+        DEDUPLICATE
+    }
+
+    private final EnumSet<Pass> passes;
+
+    private Predicate<ModelNode> existing = address -> false;
+
+    /**
+     * @param passes the passes to apply, all of them if none are given
+     */
+    public OperationOptimizer(Pass... passes) {
+        this.passes = passes.length == 0 ? EnumSet.allOf(Pass.class) : EnumSet.noneOf(Pass.class);
+        Collections.addAll(this.passes, passes);
+    }
+
+    /**
+     * Declares which resources exist on the target before the operations are applied, i.e. the subsystems
+     * of the server profile. An empty add for these is a no-op and dropped by {@link Pass#DROP_EMPTY_ADDS}.
+     *
+     * @param existing tests the address of an add operation
+     * @return this optimizer
+     */
+    public OperationOptimizer existingResources(Predicate<ModelNode> existing) {
+        this.existing = existing;
+        return this;
+    }
+
+    /**
+     * Optimizes a sequence of operations
+     *
+     * @param operations the operations in execution order
+     * @return a new list with equivalent operations
+     */
+    public List<ModelNode> optimize(List<ModelNode> operations) {
+        List<ModelNode> result = new ArrayList<>(operations.size());
+
+        // the add that writes can still be merged into, keyed by its address
+        Map<ModelNode, ModelNode> openAdds = new HashMap<>();
+
+        // last operation emitted, by address
+        Map<ModelNode, ModelNode> previous = new HashMap<>();
+
+        for (ModelNode operation : operations) {
+            String name = nameOf(operation);
+            ModelNode address = addressOf(operation);
+            boolean plain = !operation.hasDefined(OPERATION_HEADERS);
+
+            if (plain && passes.contains(Pass.DROP_EMPTY_ADDS) && ADD.equals(name)
+                    && !hasAttributes(operation) && existing.test(address)) {
+                continue;
+            }
+
+            if (plain && passes.contains(Pass.MERGE_WRITES) && isAttributeWrite(name) && openAdds.containsKey(address)) {
+                merge(openAdds.get(address), operation);
+                continue;
+            }
+
+            if (plain && passes.contains(Pass.DEDUPLICATE) && isAttributeWrite(name) && operation.equals(previous.get(address))) {
+                continue;
+            }
+
+            ModelNode emitted = operation;
+            if (plain && COMPOSITE.equals(name) && isWriteComposite(operation)) {
+                emitted = passes.contains(Pass.MERGE_WRITES) ? flatten(operation, openAdds) : operation;
+                if (emitted == null) {
+                    continue;
+                }
+                // the remaining steps only change the attributes of their addresses
+                for (ModelNode step : emitted.get(STEPS).asList()) {
+                    previous.remove(addressOf(step));
+                }
+                result.add(emitted);
+                continue;
+            } else if (plain && ADD.equals(name) && passes.contains(Pass.MERGE_WRITES)) {
+                // the add might provide a capability a later write refers to, hence writes must not move
+                // before it into earlier adds. Merged writes modify the add, never the input
+                emitted = operation.clone();
+                openAdds.clear();
+                openAdds.put(address, emitted);
+            } else if (!plain || !(ADD.equals(name) || isAttributeWrite(name))) {
+                // composites, removals and custom operations might affect any address
+                openAdds.clear();
+                previous.clear();
+            }
+
+            result.add(emitted);
+            previous.put(address, emitted);
+        }
+        return result;
+    }
+
+    /**
+     * Merges the steps targeting an open add into it
+     *
+     * @return a composite of the remaining steps, the input if there are no open adds, or null if no step remains
+     */
+    private static ModelNode flatten(ModelNode composite, Map<ModelNode, ModelNode> openAdds) {
+        if (openAdds.isEmpty()) {
+            return composite;
+        }
+        List<ModelNode> steps = composite.get(STEPS).asList();
+        List<ModelNode> remaining = new ArrayList<>(steps.size());
+        for (ModelNode step : steps) {
+            ModelNode add = openAdds.get(addressOf(step));
+            if (add != null) {
+                merge(add, step);
+            } else {
+                remaining.add(step);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return null;
+        }
+        if (remaining.size() == steps.size()) {
+            return composite;
+        }
+        ModelNode flattened = composite.clone();
+        flattened.get(STEPS).set(remaining);
+        return flattened;
+    }
+
+    private static boolean isWriteComposite(ModelNode composite) {
+        if (!composite.hasDefined(STEPS)) {
+            return false;
+        }
+        for (ModelNode step : composite.get(STEPS).asList()) {
+            if (step.hasDefined(OPERATION_HEADERS) || !isAttributeWrite(nameOf(step))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nameOf(ModelNode operation) {
+        return operation.has(OP) ? operation.get(OP).asString() : null;
+    }
+
+    private static ModelNode addressOf(ModelNode operation) {
+        return operation.has(OP_ADDR) ? operation.get(OP_ADDR) : new ModelNode();
+    }
+
+    private static boolean isAttributeWrite(String name) {
+        return WRITE_ATTRIBUTE_OPERATION.equals(name) || UNDEFINE_ATTRIBUTE_OPERATION.equals(name);
+    }
+
+    private static boolean hasAttributes(ModelNode add) {
+        for (String key : add.keys()) {
+            if (!OP.equals(key) && !OP_ADDR.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void merge(ModelNode add, ModelNode write) {
+        String attribute = write.get(NAME).asString();
+        if (WRITE_ATTRIBUTE_OPERATION.equals(nameOf(write)) && write.hasDefined(VALUE)) {
+            add.get(attribute).set(write.get(VALUE));
+        } else if (add.has(attribute)) {
+            add.remove(attribute);
+        }
+    }
+}
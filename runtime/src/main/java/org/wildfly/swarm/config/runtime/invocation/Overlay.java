@@ -0,0 +1,380 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.KeyedList;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.invocation.MerkleTree.Difference;
+
+/**
+ * A copy-on-write layer over an immutable base graph, i.e. the configuration of one tenant on top of a shared
+ * default configuration:
+ *
+ * <pre>
+ * Snapshot&lt;Datasources&gt; base = Snapshot.freeze(defaults);
+ * Overlay&lt;Datasources&gt; tenant = Overlay.over(base);
+ * tenant.&lt;DataSource&gt;edit("subsystem=datasources/data-source=ExampleDS").maxPoolSize(50);
+ * Marshaller.marshal(tenant.get());
+ * </pre>
+ *
+ * Editing a resource copies the resource, its list and map attributes and its ancestors, everything else is
+ * shared with the base: untouched resources, their attribute values and the child lists they are kept in. The view
+ * returned by {@link #get()} is a regular entity graph, hence it can be marshalled, hashed or indexed like any other.
+ * The memory of an overlay grows with the edited paths and the child lists holding them, not with the size of
+ * the base.
+ * <p>
+ * The child lists of edited resources remain shared with the base and frozen. Add and remove children through
+ * {@link #add(String, Object)} and {@link #remove(String)}.
+ * <p>
+ * Addresses start with the root resource, i.e. <code>subsystem=datasources/data-source=ExampleDS</code>.
+ * Instances are not thread safe, the base can be shared by any number of overlays and threads.
+ *
+ * @param <T> the root entity type
+ */
+public final class Overlay<T> {
+
+    private final Snapshot<T> base;
+
+    private T root;
+
+    private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Set<Object> ownedLists = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Overlay(Snapshot<T> base) {
+        this.base = base;
+        this.root = base.get();
+    }
+
+    /**
+     * @param base the shared graph
+     * @return an empty overlay
+     */
+    public static <T> Overlay<T> over(Snapshot<T> base) {
+        return new Overlay<>(base);
+    }
+
+    public Snapshot<T> getBase() {
+        return base;
+    }
+
+    /**
+     * @return the root of the flattened view, the base root as long as nothing has been edited
+     */
+    public T get() {
+        return root;
+    }
+
+    /**
+     * @return the number of resources copied or added by this overlay
+     */
+    public int size() {
+        return owned.size();
+    }
+
+    /**
+     * @param address the resource address
+     * @return whether the resource is owned by this overlay rather than shared with the base
+     */
+    public boolean isEdited(String address) {
+        List<Step> path = resolve(address);
+        return owned.contains(path.get(path.size() - 1).entity);
+    }
+
+    /**
+     * Returns a mutable resource of this overlay, copying it and its ancestors from the base on first access
+     *
+     * @param address the resource address
+     * @return the resource
+     * @throws IllegalArgumentException if the view contains no resource at the address
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E edit(String address) {
+        return (E) edit(resolve(address));
+    }
+
+    /**
+     * Adds a child resource. A resource of the same name is replaced.
+     *
+     * @param parentAddress the address of the parent
+     * @param child the new child, owned by this overlay from now on
+     * @return this overlay
+     */
+    public Overlay<T> add(String parentAddress, Object child) {
+        Object parent = edit(resolve(parentAddress));
+        for (SubresourceBinding binding : SubresourceBinding.of(parent.getClass())) {
+            if (binding.getResourceType().isInstance(child)) {
+                if (binding.isList()) {
+                    List<Object> children = ownedList(parent, binding);
+                    if (children instanceof KeyedList) {
+                        children.add(child);
+                    } else {
+                        int index = indexOf(children, Entities.keyOf(child));
+                        if (index >= 0) {
+                            children.set(index, child);
+                        } else {
+                            children.add(child);
+                        }
+                    }
+                } else {
+                    binding.set(parent, child);
+                }
+                owned.add(child);
+                return this;
+            }
+        }
+        throw new IllegalArgumentException(child.getClass().getName() + " is no child type of " + parentAddress);
+    }
+
+    /**
+     * Removes a resource from the view. The base is not affected.
+     *
+     * @param address the resource address
+     * @return whether the resource existed
+     */
+    public boolean remove(String address) {
+        List<Step> path;
+        try {
+            path = resolve(address);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (path.size() == 1) {
+            throw new IllegalArgumentException("The root resource can't be removed");
+        }
+        Step step = path.get(path.size() - 1);
+        Object parent = edit(path.subList(0, path.size() - 1));
+        if (step.binding.isList()) {
+            List<Object> children = ownedList(parent, step.binding);
+            if (children instanceof KeyedList) {
+                ((KeyedList<?>) children).removeByKey(Entities.keyOf(step.entity));
+            } else {
+                children.remove(indexOf(children, Entities.keyOf(step.entity)));
+            }
+        } else {
+            step.binding.set(parent, null);
+        }
+        owned.remove(step.entity);
+        return true;
+    }
+
+    /**
+     * The differences between the base (expected) and the view (actual). Only edited paths are visited,
+     * resources shared with the base are skipped without comparing them.
+     *
+     * @return the differing attributes and resources
+     */
+    public List<Difference> diff() {
+        List<Difference> differences = new ArrayList<>();
+        Object baseRoot = base.get();
+        diff(baseRoot, root, MerkleTree.segmentOf(baseRoot), differences);
+        return differences;
+    }
+
+    private static void diff(Object expected, Object actual, String address, List<Difference> differences) {
+        if (expected == actual) {
+            return;
+        }
+        if (expected.getClass() != actual.getClass()) {
+            differences.add(new Difference(Difference.Kind.REPLACED, address, null, expected, actual));
+            return;
+        }
+
+        for (AttributeBinding binding : AttributeBinding.of(expected.getClass())) {
+            Object expectedValue = MerkleTree.attributeOf(expected, binding);
+            Object actualValue = MerkleTree.attributeOf(actual, binding);
+            if (!Objects.equals(expectedValue, actualValue)) {
+                differences.add(new Difference(Difference.Kind.ATTRIBUTE, address, binding.getDetypedName(), expectedValue, actualValue));
+            }
+        }
+
+        for (SubresourceBinding binding : SubresourceBinding.of(expected.getClass())) {
+            Object expectedChildren = binding.get(expected);
+            Object actualChildren = binding.get(actual);
+            if (expectedChildren == actualChildren) {
+                continue;
+            }
+            Map<String, Object> remaining = new LinkedHashMap<>();
+            for (Object child : binding.children(actual)) {
+                remaining.put(MerkleTree.segmentOf(child), child);
+            }
+            for (Object child : binding.children(expected)) {
+                String segment = MerkleTree.segmentOf(child);
+                Object match = remaining.remove(segment);
+                if (match == null) {
+                    differences.add(new Difference(Difference.Kind.MISSING, address + "/" + segment, null, child, null));
+                } else {
+                    diff(child, match, address + "/" + segment, differences);
+                }
+            }
+            for (Map.Entry<String, Object> child : remaining.entrySet()) {
+                differences.add(new Difference(Difference.Kind.UNEXPECTED, address + "/" + child.getKey(), null, null, child.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Copies the unowned resources of a path, top down, and links each copy into its already owned parent
+     */
+    @SuppressWarnings("unchecked")
+    private Object edit(List<Step> path) {
+        Object parent = null;
+        for (Step step : path) {
+            Object entity = step.entity;
+            if (!owned.contains(entity)) {
+                Object copy = shallowCopy(entity);
+                if (parent == null) {
+                    root = castToRoot(copy);
+                } else if (step.binding.isList()) {
+                    List<Object> children = ownedList(parent, step.binding);
+                    if (children instanceof KeyedList) {
+                        ((KeyedList) children).replace((Keyed) copy);
+                    } else {
+                        children.set(indexOf(children, Entities.keyOf(entity)), copy);
+                    }
+                } else {
+                    step.binding.set(parent, copy);
+                }
+                owned.add(copy);
+                entity = copy;
+            }
+            parent = entity;
+        }
+        return parent;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T castToRoot(Object copy) {
+        return (T) copy;
+    }
+
+    /**
+     * The child list of an owned parent, replacing the shared list by a copy on first access. The copy holds the
+     * unedited siblings as well, since the generated entities keep their children in a single list. It is made once
+     * per list, further edits within the list replace elements in place.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> ownedList(Object parent, SubresourceBinding binding) {
+        Object current = binding.get(parent);
+        if (current != null && ownedLists.contains(current)) {
+            return (List<Object>) current;
+        }
+        List<Object> children = binding.children(parent);
+        binding.set(parent, new ArrayList<>(children));
+        // generated resources copy into keyed lists
+        List<Object> stored = (List<Object>) binding.get(parent);
+        ownedLists.add(stored);
+        return stored;
+    }
+
+    /**
+     * A new entity with the attributes and children of the source. Child lists and immutable attribute values are
+     * shared, list and map attributes are copied so that the appenders of the copy can modify them.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object shallowCopy(Object source) {
+        Object copy = Entities.newInstance(source.getClass(), Entities.keyOf(source));
+        for (AttributeBinding binding : AttributeBinding.of(source.getClass())) {
+            Object value = binding.get(source);
+            if (value != null) {
+                binding.set(copy, Entities.copyOf(value));
+            }
+        }
+
+        // EXPRESSIONS
+        if (source instanceof Map) {
+            ((Map) copy).putAll((Map) source);
+        }
+
+        for (SubresourceBinding binding : SubresourceBinding.of(source.getClass())) {
+            Object children = binding.get(source);
+            if (children != null) {
+                binding.set(copy, children);
+            }
+        }
+        return copy;
+    }
+
+    private List<Step> resolve(String address) {
+        String[] segments = address.split("/");
+        List<Step> path = new ArrayList<>(segments.length);
+        if (!segments[0].equals(MerkleTree.segmentOf(root))) {
+            throw new IllegalArgumentException("No resource at " + address);
+        }
+        path.add(new Step(root, null));
+
+        Object parent = root;
+        for (int i = 1; i < segments.length; i++) {
+            Step step = childOf(parent, segments[i]);
+            if (step == null) {
+                throw new IllegalArgumentException("No resource at " + address);
+            }
+            path.add(step);
+            parent = step.entity;
+        }
+        return path;
+    }
+
+    private static Step childOf(Object parent, String segment) {
+        int separator = segment.indexOf('=');
+        if (separator < 0) {
+            return null;
+        }
+        String type = segment.substring(0, separator);
+        String key = segment.substring(separator + 1);
+        for (SubresourceBinding binding : SubresourceBinding.of(parent.getClass())) {
+            ResourceType resourceType = binding.getResourceType().getAnnotation(ResourceType.class);
+            if (resourceType == null || !resourceType.value().equals(type)) {
+                continue;
+            }
+            Object children = binding.get(parent);
+            if (children instanceof KeyedList) {
+                Object child = ((KeyedList<?>) children).getByKey(key);
+                if (child != null) {
+                    return new Step(child, binding);
+                }
+            } else {
+                for (Object child : binding.children(parent)) {
+                    if (key.equals(Entities.keyOf(child))) {
+                        return new Step(child, binding);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(List<Object> children, String key) {
+        int index = 0;
+        for (Object child : children) {
+            if (Objects.equals(key, Entities.keyOf(child))) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * A resource of an address and the binding it is kept in by its parent
+     */
+    private static final class Step {
+
+        private final Object entity;
+
+        private final SubresourceBinding binding;
+
+        Step(Object entity, SubresourceBinding binding) {
+            this.entity = entity;
+            this.binding = binding;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.config.runtime.model.AddressTemplate;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CHILD_TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_CHILDREN_NAMES_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+/**
+ * Reads large collections of child resources page by page:
+ *
+ * <pre>
+ * PagedReader reader = new PagedReader(OperationChannel.of(client)).pageSize(200);
+ * reader.stream(JMSQueue.class, "default").filter(queue -&gt; ...).forEach(...);
+ * </pre>
+ *
+ * The names of the children are listed with <code>read-children-names</code>, the children themselves are read
+ * with one composite of recursive <code>read-resource</code> operations per page and decoded as they are
+ * consumed. While a page is consumed the next one is already on its way, hence at most two pages are held in
+ * memory, independent of the size of the collection.
+ * <p>
+ * Children that are removed from the server between listing and reading are skipped. Their failure cancels the
+ * rest of the composite, the children after them are read again one by one.
+ */
+public class PagedReader {
+
+    /**
+     * The message code of the failure of operations on resources that don't exist
+     */
+    private static final String NOT_FOUND = "WFLYCTL0216";
+
+    private final OperationChannel channel;
+
+    private int pageSize = 100;
+
+    public PagedReader(OperationChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param pageSize the number of resources read with one request
+     * @return this
+     */
+    public PagedReader pageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @param type the generated resource type, the last segment of its address being the wildcard of the children
+     * @param parentWildcards the values of the wildcards in the address of the parent
+     * @return the children, read lazily
+     */
+    public <T> Iterator<T> iterator(Class<T> type, String... parentWildcards) {
+        AddressTemplate template = Addressing.of(type);
+        if (template.getResourceType() == null || !"*".equals(template.getResourceName())) {
+            throw new IllegalArgumentException(type.getName() + " is no regular child resource: " + template);
+        }
+        ModelNode parent = EntityReader.addressOf(template.subTemplate(0, template.tokenLength() - 1), parentWildcards);
+        return new Pages<>(type, parent, template.getResourceType());
+    }
+
+    /**
+     * @see #iterator(Class, String...)
+     */
+    public <T> Stream<T> stream(Class<T> type, String... parentWildcards) {
+        Iterator<T> iterator = iterator(type, parentWildcards);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private final class Pages<T> implements Iterator<T> {
+
+        private final Class<T> type;
+
+        private final ModelNode parent;
+
+        private final String childType;
+
+        private List<String> names;
+
+        private int nextPage;
+
+        private CompletableFuture<List<T>> pending;
+
+        private Iterator<T> current = Collections.emptyIterator();
+
+        Pages(Class<T> type, ModelNode parent, String childType) {
+            this.type = type;
+            this.parent = parent;
+            this.childType = childType;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (names == null) {
+                names = join(listNames());
+                pending = fetch();
+            }
+            while (!current.hasNext() && pending != null) {
+                List<T> page = join(pending);
+                pending = fetch();
+                current = page.iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private CompletableFuture<List<String>> listNames() {
+            ModelNode operation = new ModelNode();
+            operation.get(OP).set(READ_CHILDREN_NAMES_OPERATION);
+            operation.get(OP_ADDR).set(parent);
+            operation.get(CHILD_TYPE).set(childType);
+            return channel.execute(operation).thenApply(response -> {
+                List<String> result = new ArrayList<>();
+                for (ModelNode name : EntityReader.resultOf(response, parent).asList()) {
+                    result.add(name.asString());
+                }
+                return result;
+            });
+        }
+
+        /**
+         * Requests the next page, null if there is none
+         */
+        private CompletableFuture<List<T>> fetch() {
+            int from = nextPage * pageSize;
+            if (from >= names.size()) {
+                return null;
+            }
+            List<String> page = names.subList(from, Math.min(from + pageSize, names.size()));
+            nextPage++;
+
+            ModelNode composite = new ModelNode();
+            composite.get(OP).set(COMPOSITE);
+            composite.get(OP_ADDR).setEmptyList();
+            ModelNode steps = composite.get(STEPS).setEmptyList();
+            List<ModelNode> operations = new ArrayList<>(page.size());
+            for (String name : page) {
+                ModelNode step = new ModelNode();
+                step.get(OP).set(READ_RESOURCE_OPERATION);
+                step.get(OP_ADDR).set(parent.clone().add(childType, name));
+                step.get(RECURSIVE).set(true);
+                steps.add(step);
+                operations.add(step);
+            }
+
+            return channel.execute(composite).thenCompose(response -> {
+                // the step of a removed child fails the composite, the steps after it are cancelled or missing
+                // and are read again one by one
+                ModelNode results = response.get(RESULT);
+                if (!results.isDefined()) {
+                    EntityReader.resultOf(response, parent);
+                }
+                List<CompletableFuture<T>> entities = new ArrayList<>(page.size());
+                for (int i = 0; i < page.size(); i++) {
+                    String name = page.get(i);
+                    ModelNode step = results.get("step-" + (i + 1));
+                    String outcome = step.isDefined() ? step.get(OUTCOME).asString() : null;
+                    if (SUCCESS.equals(outcome) || FAILED.equals(outcome)) {
+                        entities.add(CompletableFuture.completedFuture(decode(name, step)));
+                    } else {
+                        entities.add(channel.execute(operations.get(i)).thenApply(single -> decode(name, single)));
+                    }
+                }
+                return CompletableFuture.allOf(entities.toArray(new CompletableFuture<?>[entities.size()])).thenApply(v -> {
+                    List<T> result = new ArrayList<>(entities.size());
+                    for (CompletableFuture<T> entity : entities) {
+                        T value = entity.join();
+                        if (value != null) {
+                            result.add(value);
+                        }
+                    }
+                    return result;
+                });
+            });
+        }
+
+        /**
+         * @param response the response to the <code>read-resource</code> of a child
+         * @return the child, null if it has been removed
+         */
+        private T decode(String name, ModelNode response) {
+            if (FAILED.equals(response.get(OUTCOME).asString())
+                    && response.get(FAILURE_DESCRIPTION).asString().contains(NOT_FOUND)) {
+                return null;
+            }
+            try {
+                return EntityReader.decode(type, name, EntityReader.resultOf(response, parent.clone().add(childType, name)));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.wildfly.swarm.config.runtime.KeyedList;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.SubresourceInfo;
+
+/**
+ * Applies flat properties to an entity graph. The property names follow the resource addresses below a prefix,
+ * the last segment is the detyped attribute name:
+ *
+ * <pre>
+ * ds.data-source.ExampleDS.max-pool-size=50
+ * ds.data-source.ExampleDS.connection-properties.user=sa
+ * </pre>
+ *
+ * Missing child resources are created, singletons are addressed by their name. Resource names may contain dots,
+ * the shortest name that is followed by a known attribute or child type is used. Map attributes are bound by key.
+ * <p>
+ * The attributes and child types of each entity type are resolved once and cached, so that binding a
+ * property costs a few map lookups per path segment.
+ */
+public class PropertyBinder {
+
+    private static final HashMap<Class<?>, Node> nodes = new HashMap<>();
+
+    private final String prefix;
+
+    /**
+     * @param prefix the prefix of the properties that address the root entity, i.e. <code>ds</code>
+     */
+    public PropertyBinder(String prefix) {
+        this.prefix = prefix.isEmpty() || prefix.endsWith(".") ? prefix : prefix + ".";
+    }
+
+    /**
+     * Binds system properties
+     *
+     * @see #bind(Object, Map)
+     */
+    public List<String> bind(Object root, Properties properties) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+        return bind(root, values);
+    }
+
+    /**
+     * Binds properties to an entity graph. Properties without the prefix are ignored. Properties are bound in
+     * the order of their names, so that child resources are created in the same order on every run.
+     *
+     * @param root the root entity
+     * @param properties the properties by name
+     * @return the names of the properties with the prefix that address no attribute
+     * @throws IllegalArgumentException if a value can't be converted to the attribute type
+     */
+    public List<String> bind(Object root, Map<String, String> properties) {
+        List<String> names = new ArrayList<>(properties.keySet());
+        Collections.sort(names);
+        List<String> unresolved = new ArrayList<>();
+        for (String name : names) {
+            if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+                continue;
+            }
+            String value = properties.get(name);
+            try {
+                if (!bind(root, name.substring(prefix.length()).split("\\."), 0, value)) {
+                    unresolved.add(name);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Failed to bind " + name + "=" + value, e);
+            }
+        }
+        return unresolved;
+    }
+
+    private static boolean bind(Object entity, String[] path, int from, String value) {
+        Node node = nodeOf(entity.getClass());
+        int remaining = path.length - from;
+        String segment = path[from];
+
+        Attribute attribute = node.attributes.get(segment);
+        if (attribute != null && (remaining == 1 || attribute.isMap())) {
+            attribute.set(entity, path, from + 1, value);
+            return true;
+        }
+
+        ChildGroup group = node.children.get(segment);
+        if (group == null || remaining < 3) {
+            return false;
+        }
+        Child singleton = group.singletons.get(path[from + 1]);
+        if (singleton != null) {
+            return bind(singleton.getOrCreate(entity, null), path, from + 2, value);
+        }
+        if (group.list == null) {
+            return false;
+        }
+        Node childNode = nodeOf(group.list.type);
+        for (int end = from + 2; end < path.length; end++) {
+            if (childNode.resolves(path[end], path.length - end)) {
+                return bind(group.list.getOrCreate(entity, join(path, from + 1, end)), path, end, value);
+            }
+        }
+        return false;
+    }
+
+    private static String join(String[] path, int from, int to) {
+        StringBuilder result = new StringBuilder(path[from]);
+        for (int i = from + 1; i < to; i++) {
+            result.append('.').append(path[i]);
+        }
+        return result.toString();
+    }
+
+    private static synchronized Node nodeOf(Class<?> type) {
+        Node node = nodes.get(type);
+        if (node == null) {
+            node = new Node(type);
+            nodes.put(type, node);
+        }
+        return node;
+    }
+
+    /**
+     * The attributes and child types of an entity type
+     */
+    private static final class Node {
+
+        private final Map<String, Attribute> attributes = new HashMap<>();
+
+        private final Map<String, ChildGroup> children = new HashMap<>();
+
+        Node(Class<?> type) {
+            for (AttributeBinding binding : AttributeBinding.of(type)) {
+                attributes.put(binding.getDetypedName(), new Attribute(binding));
+            }
+
+            Class<?> holder = null;
+            try {
+                holder = type.getMethod("subresources").getReturnType();
+            } catch (NoSuchMethodException e) {
+                // no children
+            }
+            for (SubresourceBinding binding : SubresourceBinding.of(type)) {
+                Class<?> childType = binding.getResourceType();
+                ResourceType resourceType = childType.getAnnotation(ResourceType.class);
+                if (resourceType == null) {
+                    continue;
+                }
+                ChildGroup group = children.computeIfAbsent(resourceType.value(), k -> new ChildGroup());
+                if (binding.isList()) {
+                    group.list = new Child(binding, childType, adderOf(type, holder, binding, childType));
+                } else {
+                    String name = Entities.keyOf(Entities.newInstance(childType, null));
+                    group.singletons.put(name, new Child(binding, childType, null));
+                }
+            }
+        }
+
+        /**
+         * Whether the path continues within this type
+         */
+        boolean resolves(String segment, int remaining) {
+            Attribute attribute = attributes.get(segment);
+            return (attribute != null && (remaining == 1 || attribute.isMap()))
+                    || (children.containsKey(segment) && remaining >= 3);
+        }
+
+        /**
+         * The generated mutator that adds a single child, named after {@link SubresourceInfo}
+         */
+        private static Method adderOf(Class<?> type, Class<?> holder, SubresourceBinding binding, Class<?> childType) {
+            try {
+                SubresourceInfo info = holder.getDeclaredField(binding.getName()).getAnnotation(SubresourceInfo.class);
+                return info != null ? type.getMethod(info.value(), childType) : null;
+            } catch (NoSuchFieldException | NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The child resources of one resource type: a list of regular resources and the singletons by name
+     */
+    private static final class ChildGroup {
+
+        private Child list;
+
+        private final Map<String, Child> singletons = new HashMap<>();
+    }
+
+    private static final class Child {
+
+        private final SubresourceBinding binding;
+
+        private final Class<?> type;
+
+        private final Method adder;
+
+        Child(SubresourceBinding binding, Class<?> type, Method adder) {
+            this.binding = binding;
+            this.type = type;
+            this.adder = adder;
+        }
+
+        Object getOrCreate(Object parent, String key) {
+            if (!binding.isList()) {
+                Object singleton = binding.get(parent);
+                if (singleton == null) {
+                    singleton = Entities.newInstance(type, null);
+                    binding.set(parent, singleton);
+                }
+                return singleton;
+            }
+
+            Object children = binding.get(parent);
+            if (children instanceof KeyedList) {
+                Object child = ((KeyedList<?>) children).getByKey(key);
+                if (child != null) {
+                    return child;
+                }
+            } else {
+                for (Object child : binding.children(parent)) {
+                    if (key.equals(Entities.keyOf(child))) {
+                        return child;
+                    }
+                }
+            }
+
+            Object child = Entities.newInstance(type, key);
+            if (adder != null) {
+                try {
+                    adder.invoke(parent, child);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException("Failed to add " + key + " to " + parent.getClass().getName(), e);
+                }
+            } else {
+                List<Object> list = new ArrayList<>(binding.children(parent));
+                list.add(child);
+                binding.set(parent, list);
+            }
+            return child;
+        }
+    }
+
+    private static final class Attribute {
+
+        private final AttributeBinding binding;
+
+        private final Function<String, Object> converter;
+
+        Attribute(AttributeBinding binding) {
+            this.binding = binding;
+            this.converter = converterOf(binding);
+        }
+
+        boolean isMap() {
+            return Map.class.isAssignableFrom(binding.getPropertyType());
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(Object entity, String[] path, int from, String value) {
+            if (entity instanceof Map && value.startsWith("${") && value.endsWith("}")) {
+                ((Map<String, String>) entity).put(binding.getJavaName(), value);
+            } else if (isMap()) {
+                if (from == path.length) {
+                    throw new IllegalArgumentException("Map attribute " + binding.getDetypedName() + " requires a key");
+                }
+                Map<String, Object> current = (Map<String, Object>) binding.get(entity);
+                Map<String, Object> map = current != null ? new HashMap<>(current) : new HashMap<>();
+                map.put(join(path, from, path.length), value);
+                binding.set(entity, map);
+            } else {
+                binding.set(entity, converter.apply(value));
+            }
+        }
+
+        private static Function<String, Object> converterOf(AttributeBinding binding) {
+            Class<?> type = binding.getPropertyType();
+            if (String.class.equals(type)) {
+                return value -> value;
+            } else if (Integer.class.equals(type)) {
+                return Integer::valueOf;
+            } else if (Long.class.equals(type)) {
+                return Long::valueOf;
+            } else if (Double.class.equals(type)) {
+                return Double::valueOf;
+            } else if (Boolean.class.equals(type)) {
+                return Attribute::parseBoolean;
+            } else if (BigDecimal.class.equals(type)) {
+                return BigDecimal::new;
+            } else if (BigInteger.class.equals(type)) {
+                return BigInteger::new;
+            } else if (Enum.class.isAssignableFrom(type)) {
+                return value -> enumValue(type, value);
+            } else if (List.class.equals(type) && isListOfStrings(binding)) {
+                return Attribute::split;
+            }
+            return value -> {
+                throw new IllegalArgumentException("Unsupported attribute type " + binding.getGetter().getGenericReturnType());
+            };
+        }
+
+        private static boolean isListOfStrings(AttributeBinding binding) {
+            Type generic = binding.getGetter().getGenericReturnType();
+            return generic instanceof ParameterizedType
+                    && String.class.equals(((ParameterizedType) generic).getActualTypeArguments()[0]);
+        }
+
+        private static Object parseBoolean(String value) {
+            if ("true".equalsIgnoreCase(value)) {
+                return Boolean.TRUE;
+            } else if ("false".equalsIgnoreCase(value)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+
+        private static Object enumValue(Class<?> type, String value) {
+            for (Object constant : type.getEnumConstants()) {
+                if (value.equals(constant.toString())) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("No " + type.getSimpleName() + " constant " + value);
+        }
+
+        private static Object split(String value) {
+            List<String> items = new ArrayList<>();
+            for (String item : value.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+            return items;
+        }
+    }
+}
@@ -64,10 +64,13 @@ public class SimpleTypeAdapter {
 
     public void fromDmr(Object entity, String javaName, ModelType dmrType, Class<?> propertyType, ModelNode dmrPayload) throws Exception {
         Method target = entity.getClass().getMethod(javaName, propertyType);
-        setJavaValueOn(entity, target, propertyType, dmrPayload);
+        target.invoke(entity, toJavaValue(propertyType, dmrPayload));
     }
 
-    private void setJavaValueOn(Object entity, Method method, Class<?> propertyType, ModelNode dmrPayload) throws Exception {
+    /**
+     * Converts a DMR value into the java representation of a property
+     */
+    public Object toJavaValue(Class<?> propertyType, ModelNode dmrPayload) {
         Object value = null;
 
         // VALUES
@@ -160,7 +163,7 @@ public class SimpleTypeAdapter {
         else {
             throw new RuntimeException("Unsupported java type: "+propertyType.getName());
         }
-        method.invoke(entity, value);
+        return ValueInterner.intern(value);
     }
 
 
@@ -0,0 +1,219 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates object sizes for a 64 bit JVM with compressed references: 12 byte object headers,
+ * 16 byte array headers, 4 byte references and 8 byte alignment.
+ * <p>
+ * Retained sizes are computed by following instance fields. JDK collections and maps are measured
+ * through their public API, since their internals are not necessarily accessible.
+ */
+class SizeEstimator {
+
+    static final int OBJECT_HEADER = 12;
+
+    static final int ARRAY_HEADER = 16;
+
+    static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    /** HashMap.Node: header, hash, key, value, next */
+    private static final int MAP_ENTRY = 32;
+
+    private final HashMap<Class<?>, Long> shallowSizes = new HashMap<>();
+
+    private final HashMap<Class<?>, List<Field>> referenceFields = new HashMap<>();
+
+    private final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+
+    private final Set<Object> boundaries;
+
+    private int emptyCollections;
+
+    /**
+     * @param boundaries objects that are not followed, i.e. other entities of the graph
+     */
+    SizeEstimator(Set<Object> boundaries) {
+        this.boundaries = boundaries;
+    }
+
+    /**
+     * The size of an instance of a type, excluding referenced objects
+     */
+    long shallowSize(Class<?> type) {
+        Long size = shallowSizes.get(type);
+        if (size == null) {
+            long fields = 0;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        fields += sizeOf(field.getType());
+                    }
+                }
+            }
+            size = align(OBJECT_HEADER + fields);
+            shallowSizes.put(type, size);
+        }
+        return size;
+    }
+
+    /**
+     * The retained size of an object: the object itself and everything reachable from it,
+     * that has not been measured before and is not a boundary.
+     *
+     * @param root the object to measure, boundaries are followed if passed as root
+     */
+    long retainedSize(Object root) {
+        if (root == null || visited.put(root, Boolean.TRUE) != null) {
+            return 0;
+        }
+        return sizeAndChildren(root);
+    }
+
+    /**
+     * @return the number of empty collections and maps measured so far, shared empty singletons excluded
+     */
+    int getEmptyCollections() {
+        return emptyCollections;
+    }
+
+    private long follow(Object value) {
+        if (value == null || boundaries.contains(value) || visited.put(value, Boolean.TRUE) != null) {
+            return 0;
+        }
+        return sizeAndChildren(value);
+    }
+
+    private long sizeAndChildren(Object value) {
+        Class<?> type = value.getClass();
+
+        if (type.isArray()) {
+            int length = Array.getLength(value);
+            Class<?> component = type.getComponentType();
+            long size = arraySize(sizeOf(component), length);
+            if (!component.isPrimitive()) {
+                for (int i = 0; i < length; i++) {
+                    size += follow(Array.get(value, i));
+                }
+            }
+            return size;
+        } else if (value instanceof String) {
+            // Latin1 compaction is ignored, which over estimates on newer VMs
+            return shallowSize(type) + arraySize(2, ((String) value).length());
+        } else if (isJdkType(type) && value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            countEmpty(type, collection.isEmpty());
+            long size = shallowSize(type) + backingArraySize(collection.size());
+            for (Object element : collection) {
+                size += follow(element);
+            }
+            return size;
+        } else if (isJdkType(type) && value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            countEmpty(type, map.isEmpty());
+            long size = shallowSize(type) + tableSize(map.size()) + (long) map.size() * MAP_ENTRY;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += follow(entry.getKey());
+                size += follow(entry.getValue());
+            }
+            return size;
+        } else if (isJdkType(type)) {
+            // boxed values and anything else we can't (or shouldn't) look into
+            return shallowSize(type);
+        }
+
+        if (value instanceof Collection) {
+            countEmpty(type, ((Collection<?>) value).isEmpty());
+        }
+
+        long size = shallowSize(type);
+        for (Field field : referenceFieldsOf(type)) {
+            try {
+                size += follow(field.get(value));
+            } catch (IllegalAccessException e) {
+                // not accessible, count the reference only
+            }
+        }
+        return size;
+    }
+
+    private void countEmpty(Class<?> type, boolean empty) {
+        if (empty && !type.getName().startsWith("java.util.Collections$Empty")) {
+            emptyCollections++;
+        }
+    }
+
+    private List<Field> referenceFieldsOf(Class<?> type) {
+        List<Field> fields = referenceFields.get(type);
+        if (fields == null) {
+            fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && !isJdkType(c); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            fields.add(field);
+                        } catch (RuntimeException e) {
+                            // inaccessible, the reference itself is part of the shallow size
+                        }
+                    }
+                }
+            }
+            referenceFields.put(type, fields);
+        }
+        return fields;
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    private static long backingArraySize(int size) {
+        return size == 0 ? 0 : arraySize(REFERENCE, size);
+    }
+
+    private static long tableSize(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        int needed = (int) (size / 0.75f) + 1;
+        int capacity = 16;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return arraySize(REFERENCE, capacity);
+    }
+
+    static long arraySize(int elementSize, int length) {
+        return align(ARRAY_HEADER + (long) elementSize * length);
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
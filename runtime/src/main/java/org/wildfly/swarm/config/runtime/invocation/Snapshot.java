@@ -0,0 +1,194 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.wildfly.swarm.config.runtime.Freezable;
+
+/**
+ * A deeply immutable copy of an entity graph.
+ * <p>
+ * Freezing copies the graph, replaces all attribute and subresource collections by unmodifiable ones and
+ * freezes every entity that implements {@link Freezable}. The copy is published through a final field, hence
+ * a snapshot can be shared across threads and marshalled or inspected without further synchronization.
+ * Structural hash codes are computed once during the copy. Use {@link #thaw()} to obtain a mutable copy for edits.
+ *
+ * @param <T> the root entity type
+ */
+public final class Snapshot<T> {
+
+    private final T root;
+
+    private final Map<Object, Integer> hashes;
+
+    private Snapshot(T root, Map<Object, Integer> hashes) {
+        this.root = root;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Creates a snapshot of an entity graph. The graph itself is not modified.
+     *
+     * @param root the root entity
+     * @return a frozen copy
+     */
+    public static <T> Snapshot<T> freeze(T root) {
+        Map<Object, Integer> hashes = new IdentityHashMap<>();
+        T copy = copy(root, hashes);
+        return new Snapshot<>(copy, Collections.unmodifiableMap(hashes));
+    }
+
+    /**
+     * @return the frozen root entity
+     */
+    public T get() {
+        return root;
+    }
+
+    /**
+     * @return a mutable deep copy of this snapshot
+     */
+    public T thaw() {
+        return copy(root, null);
+    }
+
+    /**
+     * The structural hash of an entity within this snapshot. It covers the attributes and the children of the entity.
+     *
+     * @param entity an entity of this snapshot
+     * @return the hash
+     */
+    public int hashOf(Object entity) {
+        Integer hash = hashes.get(entity);
+        if (hash == null) {
+            throw new IllegalArgumentException("Not part of this snapshot: " + entity);
+        }
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashOf(root);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Snapshot)) return false;
+        Snapshot<?> other = (Snapshot<?>) o;
+        return hashCode() == other.hashCode() && equal(root, other, other.root);
+    }
+
+    private boolean equal(Object entity, Snapshot<?> other, Object otherEntity) {
+        if (entity.getClass() != otherEntity.getClass()
+                || hashOf(entity) != other.hashOf(otherEntity)
+                || !Objects.equals(Entities.keyOf(entity), Entities.keyOf(otherEntity))) {
+            return false;
+        }
+        for (AttributeBinding binding : AttributeBinding.of(entity.getClass())) {
+            if (!Objects.equals(binding.get(entity), binding.get(otherEntity))) {
+                return false;
+            }
+        }
+        if (entity instanceof Map && !entity.equals(otherEntity)) {
+            return false;
+        }
+        for (SubresourceBinding binding : SubresourceBinding.of(entity.getClass())) {
+            List<Object> children = binding.children(entity);
+            List<Object> otherChildren = binding.children(otherEntity);
+            if (children.size() != otherChildren.size()) {
+                return false;
+            }
+            Iterator<Object> otherIterator = otherChildren.iterator();
+            for (Object child : children) {
+                if (!equal(child, other, otherIterator.next())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deep copy of an entity. Frozen if hashes are collected, mutable otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> E copy(E source, Map<Object, Integer> hashes) {
+        boolean freeze = hashes != null;
+        String key = Entities.keyOf(source);
+        E copy = (E) Entities.newInstance(source.getClass(), key);
+
+        int hash = 31 * source.getClass().getName().hashCode() + Objects.hashCode(key);
+
+        for (AttributeBinding binding : AttributeBinding.of(source.getClass())) {
+            Object value = binding.get(source);
+            if (value != null) {
+                binding.set(copy, copyValue(value, freeze));
+            }
+            hash = 31 * hash + Objects.hashCode(value);
+        }
+
+        // EXPRESSIONS
+        if (source instanceof Map) {
+            ((Map) copy).putAll((Map) source);
+            hash = 31 * hash + source.hashCode();
+        }
+
+        for (SubresourceBinding binding : SubresourceBinding.of(source.getClass())) {
+            if (binding.isList()) {
+                List<Object> children = binding.children(source);
+                if (children.isEmpty()) {
+                    continue;
+                }
+                List<Object> copies = new ArrayList<>(children.size());
+                for (Object child : children) {
+                    Object childCopy = copy(child, hashes);
+                    copies.add(childCopy);
+                    if (freeze) hash = 31 * hash + hashes.get(childCopy);
+                }
+                binding.set(copy, freeze ? Collections.unmodifiableList(copies) : copies);
+                if (freeze) {
+                    // generated resources copy into keyed lists
+                    Object stored = binding.get(copy);
+                    if (stored instanceof Freezable) {
+                        ((Freezable) stored).freeze();
+                    }
+                }
+            } else {
+                Object child = binding.get(source);
+                if (child != null) {
+                    Object childCopy = copy(child, hashes);
+                    binding.set(copy, childCopy);
+                    if (freeze) hash = 31 * hash + hashes.get(childCopy);
+                }
+            }
+        }
+
+        if (freeze) {
+            hashes.put(copy, hash);
+            if (copy instanceof Freezable) {
+                ((Freezable) copy).freeze();
+            }
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value, boolean freeze) {
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>((List<Object>) value);
+            return freeze ? Collections.unmodifiableList(list) : list;
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new HashMap<>((Map<Object, Object>) value);
+            return freeze ? Collections.unmodifiableMap(map) : map;
+        }
+        // simple values are immutable
+        return value;
+    }
+}
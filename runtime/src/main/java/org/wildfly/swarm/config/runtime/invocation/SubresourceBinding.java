@@ -0,0 +1,181 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Reflective view of a child resource type declared through {@link org.wildfly.swarm.config.runtime.Subresource}.
+ * Bindings are resolved once per type and cached. They are ordered like the marshalled operations:
+ * lists of regular resources first, singletons next.
+ */
+public class SubresourceBinding {
+
+    private static HashMap<Class<?>, List<SubresourceBinding>> bindings = new HashMap<>();
+
+    private final Method holderAccessor;
+
+    private final Method presence;
+
+    private final Method accessor;
+
+    private Method mutator;
+
+    private SubresourceBinding(Method holderAccessor, Method presence, Method accessor) {
+        this.holderAccessor = holderAccessor;
+        this.presence = presence;
+        this.accessor = accessor;
+    }
+
+    /**
+     * The child resource bindings of an entity type
+     *
+     * @param type the entity type
+     * @return an unmodifiable list of bindings, empty if the type has no children
+     */
+    public static synchronized List<SubresourceBinding> of(Class<?> type) {
+        if (!bindings.containsKey(type)) {
+            List<SubresourceBinding> lists = new ArrayList<>();
+            List<SubresourceBinding> singletons = new ArrayList<>();
+            try {
+                Method holderAccessor = type.getMethod("subresources");
+                Method presence = presenceOf(type);
+                for (Method accessor : new SubresourceFilter(holderAccessor.getReturnType()).invoke()) {
+                    SubresourceBinding binding = new SubresourceBinding(holderAccessor, presence, accessor);
+                    if (binding.isList()) {
+                        lists.add(binding);
+                    } else {
+                        singletons.add(binding);
+                    }
+                }
+            } catch (NoSuchMethodException e) {
+                // If no subresources() method, then no subresources exist
+            }
+            lists.addAll(singletons);
+            bindings.put(type, Collections.unmodifiableList(lists));
+        }
+        return bindings.get(type);
+    }
+
+    private static Method presenceOf(Class<?> type) {
+        try {
+            Method presence = type.getMethod("hasSubresources");
+            return presence.getReturnType() == boolean.class ? presence : null;
+        } catch (NoSuchMethodException e) {
+            // eagerly allocated subresources
+            return null;
+        }
+    }
+
+    /**
+     * Whether an entity has allocated child resources at all. Entities that allocate their
+     * subresources lazily are not accessed, if they don't.
+     *
+     * @param entity the parent entity
+     * @return false if the entity certainly has no children
+     */
+    public boolean isPresent(Object entity) {
+        try {
+            return presence == null || (Boolean) presence.invoke(entity);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to access subresources of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * @return the name of the accessor, i.e. <code>dataSources</code>
+     */
+    public String getName() {
+        return accessor.getName();
+    }
+
+    public boolean isList() {
+        return List.class.isAssignableFrom(accessor.getReturnType());
+    }
+
+    /**
+     * @return the singleton type or {@link List} for regular resources
+     */
+    public Class<?> getType() {
+        return accessor.getReturnType();
+    }
+
+    /**
+     * @return the type of the child resources, the element type for lists
+     */
+    public Class<?> getResourceType() {
+        if (!isList()) {
+            return getType();
+        }
+        Type generic = accessor.getGenericReturnType();
+        if (generic instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+            if (element instanceof Class) {
+                return (Class<?>) element;
+            } else if (element instanceof ParameterizedType) {
+                return (Class<?>) ((ParameterizedType) element).getRawType();
+            }
+        }
+        throw new RuntimeException("Failed to resolve the resource type of " + getName() + " in " + accessor.getDeclaringClass().getName());
+    }
+
+    /**
+     * Reads the children of an entity
+     *
+     * @param entity the parent entity
+     * @return the list of children, the singleton or null
+     */
+    public Object get(Object entity) {
+        if (!isPresent(entity)) {
+            return null;
+        }
+        try {
+            Object holder = holderAccessor.invoke(entity);
+            return holder != null ? accessor.invoke(holder) : null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to read " + getName() + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Reads the children of an entity as a list
+     *
+     * @param entity the parent entity
+     * @return the list of children, the singleton as list of one or an empty list
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> children(Object entity) {
+        Object value = get(entity);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return isList() ? (List<Object>) value : Collections.singletonList(value);
+    }
+
+    /**
+     * Replaces the children of an entity, using the generated mutator of the parent
+     *
+     * @param entity the parent entity
+     * @param value the list of children or the singleton
+     */
+    public void set(Object entity, Object value) {
+        try {
+            if (mutator == null) {
+                mutator = entity.getClass().getMethod(getName(), isList() ? List.class : getType());
+            }
+            mutator.invoke(entity, value);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to write " + getName() + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SubresourceBinding{" + getName() + "}";
+    }
+}
@@ -55,20 +55,25 @@ class SubresourceFilter {
         return methods;
     }
 
+    /**
+     * Loggers last, formatters are ordered before the handlers referencing them by {@link CapabilityGraph}
+     */
     static class LoggingComparator implements Comparator<Method> {
         @Override
         public int compare(Method o1, Method o2) {
-            if (o1.getName().contains("Formatter") ) return -1;
-            if (o2.getName().contains("Formatter") ) return 1;
-            if ( o1.getName().equals( "loggers" ) || o1.getName().equals( "rootLogger" )) return 1;
-            return -1;
+            boolean logger1 = isLogger(o1);
+            boolean logger2 = isLogger(o2);
+            if (logger1 != logger2) return logger1 ? 1 : -1;
+            return Collator.getInstance().compare(o1.getName(), o2.getName());
+        }
+
+        private static boolean isLogger(Method method) {
+            return method.getName().equals( "loggers" ) || method.getName().equals( "rootLogger" );
         }
     }
 
     static class AuditComparator implements Comparator<Method> {
         public int compare(Method o1, Method o2) {
-            if ( o1.getName().contains("Formatter" ) ) return -1;
-            if ( o2.getName().contains("Formatter" ) ) return 1;
             return o1.getName().compareTo(o2.getName());
         }
     }
@@ -0,0 +1,65 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+import org.wildfly.swarm.config.runtime.Visitable;
+
+/**
+ * Walks entity graphs depth first. {@link Visitable} entities walk themselves, other entities are
+ * walked through their {@link SubresourceBinding}s.
+ */
+public final class Traversal {
+
+    private Traversal() {
+    }
+
+    /**
+     * @param root the root entity
+     * @param visitor the callbacks, a generated subsystem visitor receives typed callbacks
+     */
+    public static void walk(Object root, ResourceVisitor visitor) {
+        if (root instanceof Visitable) {
+            ((Visitable) root).accept(visitor);
+        } else if (visitor.visitResource(root)) {
+            for (SubresourceBinding binding : SubresourceBinding.of(root.getClass())) {
+                for (Object child : binding.children(root)) {
+                    walk(child, visitor);
+                }
+            }
+            visitor.leaveResource(root);
+        }
+    }
+
+    /**
+     * @param root the root entity
+     * @return the entities of the graph, parents before their children
+     */
+    public static List<Object> preOrder(Object root) {
+        List<Object> entities = new ArrayList<>();
+        walk(root, new ResourceVisitor() {
+            @Override
+            public boolean visitResource(Object resource) {
+                entities.add(resource);
+                return true;
+            }
+        });
+        return entities;
+    }
+
+    /**
+     * @param root the root entity
+     * @return the entities of the graph, children before their parents
+     */
+    public static List<Object> postOrder(Object root) {
+        List<Object> entities = new ArrayList<>();
+        walk(root, new ResourceVisitor() {
+            @Override
+            public void leaveResource(Object resource) {
+                entities.add(resource);
+            }
+        });
+        return entities;
+    }
+}
@@ -0,0 +1,126 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.HashMap;
+
+/**
+ * A bounded interning table for values decoded from DMR.
+ * <p>
+ * While a session is open on the current thread, the type adapters share identical strings
+ * and boxed numbers instead of keeping a fresh copy for every resource.
+ * Closing the session drops the table, so nothing is retained beyond the read:
+ *
+ * <pre>
+ * try (ValueInterner session = ValueInterner.open()) {
+ *     entities = ... adapter.fromDMR(key, payload) ...
+ * }
+ * </pre>
+ *
+ * Once the table reached its capacity, values that are not yet known are passed through unchanged.
+ */
+public final class ValueInterner implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final ThreadLocal<ValueInterner> CURRENT = new ThreadLocal<>();
+
+    private final int capacity;
+
+    private final ValueInterner previous;
+
+    private final HashMap<Object, Object> values = new HashMap<>();
+
+    private int hits;
+
+    private boolean closed;
+
+    private ValueInterner(int capacity, ValueInterner previous) {
+        this.capacity = capacity;
+        this.previous = previous;
+    }
+
+    /**
+     * Opens an interning session with the default capacity on the current thread.
+     */
+    public static ValueInterner open() {
+        return open(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens an interning session on the current thread.
+     *
+     * @param capacity the maximum number of distinct values retained by the session
+     */
+    public static ValueInterner open(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        }
+        ValueInterner session = new ValueInterner(capacity, CURRENT.get());
+        CURRENT.set(session);
+        return session;
+    }
+
+    /**
+     * Returns the canonical instance of a value, if a session is open on the current thread.
+     * Only strings and boxed numbers are interned, any other value is returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V intern(V value) {
+        ValueInterner session = CURRENT.get();
+        if (session == null || !isInternable(value)) {
+            return value;
+        }
+        return (V) session.canonical(value);
+    }
+
+    private static boolean isInternable(Object value) {
+        return value instanceof String
+                || value instanceof Long
+                || value instanceof Integer
+                || value instanceof Double;
+    }
+
+    private Object canonical(Object value) {
+        Object existing = values.get(value);
+        if (existing != null) {
+            hits++;
+            return existing;
+        }
+        if (values.size() < capacity) {
+            values.put(value, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of distinct values held by this session
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the number of values that have been replaced by a canonical instance
+     */
+    public int hits() {
+        return hits;
+    }
+
+    /**
+     * Drops the table and restores the session that was active when this one was opened.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        values.clear();
+        if (CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.wildfly.swarm.config.datasources;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.Capability;
+import org.wildfly.swarm.config.runtime.Freezable;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.Prototype;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+import org.wildfly.swarm.config.runtime.Visitable;
+
+/**
+ * Reduced version of a generated data source
+ */
+@Address("/subsystem=datasources/data-source=*")
+@ResourceType("data-source")
+@Capability(value = "org.wildfly.data-source", dynamic = true)
+public class TestDataSource implements Keyed, Freezable, Visitable, Prototype<TestDataSource> {
+
+    private String key;
+
+    private String driverName;
+
+    private String jndiName;
+
+    private Integer maxPoolSize;
+
+    private boolean frozen;
+
+    private PropertyChangeSupport pcs;
+
+    public TestDataSource(String key) {
+        this.key = key;
+    }
+
+    public TestDataSource(String key, TestDataSource prototype) {
+        this.key = key;
+        this.driverName = prototype.driverName;
+        this.jndiName = prototype.jndiName;
+        this.maxPoolSize = prototype.maxPoolSize;
+    }
+
+    @Override
+    public TestDataSource copy(String key) {
+        return new TestDataSource(key, this);
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public void addPropertyChangeListener(PropertyChangeListener listener) {
+        if (null == this.pcs) this.pcs = new PropertyChangeSupport(this);
+        this.pcs.addPropertyChangeListener(listener);
+    }
+
+    public void removePropertyChangeListener(PropertyChangeListener listener) {
+        if (this.pcs != null) this.pcs.removePropertyChangeListener(listener);
+    }
+
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (this.frozen) throw new IllegalStateException("TestDataSource '" + this.key + "' is frozen");
+    }
+
+    @ModelNodeBinding(detypedName = "driver-name", capabilityReference = "org.wildfly.data-source.jdbc-driver")
+    public String driverName() {
+        return this.driverName;
+    }
+
+    public TestDataSource driverName(String value) {
+        checkNotFrozen();
+        Object oldValue = this.driverName;
+        this.driverName = value;
+        if (this.pcs != null) this.pcs.firePropertyChange("driverName", oldValue, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "jndi-name")
+    public String jndiName() {
+        return this.jndiName;
+    }
+
+    public TestDataSource jndiName(String value) {
+        checkNotFrozen();
+        Object oldValue = this.jndiName;
+        this.jndiName = value;
+        if (this.pcs != null) this.pcs.firePropertyChange("jndiName", oldValue, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "max-pool-size", defaultValue = "20")
+    public Integer maxPoolSize() {
+        return this.maxPoolSize;
+    }
+
+    public TestDataSource maxPoolSize(Integer value) {
+        checkNotFrozen();
+        Object oldValue = this.maxPoolSize;
+        this.maxPoolSize = value;
+        if (this.pcs != null) this.pcs.firePropertyChange("maxPoolSize", oldValue, value);
+        return this;
+    }
+
+    @Override
+    public void accept(ResourceVisitor visitor) {
+        if (visitor instanceof TestDatasourcesVisitor) {
+            TestDatasourcesVisitor typed = (TestDatasourcesVisitor) visitor;
+            if (typed.visit(this)) {
+                typed.leave(this);
+            }
+        } else if (visitor.visitResource(this)) {
+            visitor.leaveResource(this);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.wildfly.swarm.config.datasources;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.ConcurrentKeyedBuilder;
+import org.wildfly.swarm.config.runtime.Implicit;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.KeyedList;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+import org.wildfly.swarm.config.runtime.Subresource;
+import org.wildfly.swarm.config.runtime.SubresourceInfo;
+import org.wildfly.swarm.config.runtime.Visitable;
+
+/**
+ * Reduced version of a generated subsystem root
+ */
+@Address("/subsystem=datasources")
+@ResourceType("subsystem")
+@Implicit
+public class TestDatasources implements Keyed, Visitable {
+
+    private static final TestDatasourcesResources EMPTY_SUBRESOURCES = new TestDatasourcesResources();
+
+    private String key = "datasources";
+
+    private TestDatasourcesResources subresources;
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public TestDatasourcesResources subresources() {
+        return this.subresources != null ? this.subresources : EMPTY_SUBRESOURCES;
+    }
+
+    public boolean hasSubresources() {
+        return this.subresources != null;
+    }
+
+    private TestDatasourcesResources mutableSubresources() {
+        if (this.subresources == null) this.subresources = new TestDatasourcesResources();
+        return this.subresources;
+    }
+
+    public TestDatasources dataSources(List<TestDataSource> value) {
+        mutableSubresources().dataSources = KeyedList.wrap(value);
+        return this;
+    }
+
+    public TestDatasources dataSource(TestDataSource value) {
+        TestDatasourcesResources holder = mutableSubresources();
+        if (holder.dataSources == null) holder.dataSources = new KeyedList<>();
+        holder.dataSources.add(value);
+        return this;
+    }
+
+    public TestDatasources jdbcDrivers(List<TestJdbcDriver> value) {
+        mutableSubresources().jdbcDrivers = KeyedList.wrap(value);
+        return this;
+    }
+
+    public TestDatasources addAllJdbcDrivers(ConcurrentKeyedBuilder<TestJdbcDriver> builder) {
+        TestDatasourcesResources holder = mutableSubresources();
+        if (holder.jdbcDrivers == null) holder.jdbcDrivers = new KeyedList<>(builder.size());
+        builder.appendTo(holder.jdbcDrivers);
+        return this;
+    }
+
+    public TestDatasources jdbcDriver(TestJdbcDriver value) {
+        TestDatasourcesResources holder = mutableSubresources();
+        if (holder.jdbcDrivers == null) holder.jdbcDrivers = new KeyedList<>();
+        holder.jdbcDrivers.add(value);
+        return this;
+    }
+
+    @Override
+    public void accept(ResourceVisitor visitor) {
+        if (visitor instanceof TestDatasourcesVisitor) {
+            TestDatasourcesVisitor typed = (TestDatasourcesVisitor) visitor;
+            if (typed.visit(this)) {
+                if (this.subresources != null) this.subresources.accept(visitor);
+                typed.leave(this);
+            }
+        } else if (visitor.visitResource(this)) {
+            if (this.subresources != null) this.subresources.accept(visitor);
+            visitor.leaveResource(this);
+        }
+    }
+
+    public static class TestDatasourcesResources {
+
+        @SubresourceInfo("dataSource")
+        private KeyedList<TestDataSource> dataSources;
+
+        @SubresourceInfo("jdbcDriver")
+        private KeyedList<TestJdbcDriver> jdbcDrivers;
+
+        @Subresource
+        public List<TestDataSource> dataSources() {
+            return this.dataSources != null ? this.dataSources : Collections.emptyList();
+        }
+
+        public TestDataSource dataSource(String key) {
+            return this.dataSources != null ? this.dataSources.getByKey(key) : null;
+        }
+
+        public TestDataSource removeDataSource(String key) {
+            return this.dataSources != null ? this.dataSources.removeByKey(key) : null;
+        }
+
+        @Subresource
+        public List<TestJdbcDriver> jdbcDrivers() {
+            return this.jdbcDrivers != null ? this.jdbcDrivers : Collections.emptyList();
+        }
+
+        public TestJdbcDriver jdbcDriver(String key) {
+            return this.jdbcDrivers != null ? this.jdbcDrivers.getByKey(key) : null;
+        }
+
+        public void accept(ResourceVisitor visitor) {
+            if (this.dataSources != null) {
+                for (int i = 0; i < this.dataSources.size(); i++) this.dataSources.get(i).accept(visitor);
+            }
+            if (this.jdbcDrivers != null) {
+                for (int i = 0; i < this.jdbcDrivers.size(); i++) this.jdbcDrivers.get(i).accept(visitor);
+            }
+        }
+    }
+}
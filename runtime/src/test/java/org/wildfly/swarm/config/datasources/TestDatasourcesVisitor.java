@@ -0,0 +1,33 @@
+package org.wildfly.swarm.config.datasources;
+
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+
+/**
+ * Reduced version of a generated subsystem visitor
+ */
+public interface TestDatasourcesVisitor extends ResourceVisitor {
+
+    default boolean visit(TestDatasources resource) {
+        return visitResource(resource);
+    }
+
+    default void leave(TestDatasources resource) {
+        leaveResource(resource);
+    }
+
+    default boolean visit(TestDataSource resource) {
+        return visitResource(resource);
+    }
+
+    default void leave(TestDataSource resource) {
+        leaveResource(resource);
+    }
+
+    default boolean visit(TestJdbcDriver resource) {
+        return visitResource(resource);
+    }
+
+    default void leave(TestJdbcDriver resource) {
+        leaveResource(resource);
+    }
+}
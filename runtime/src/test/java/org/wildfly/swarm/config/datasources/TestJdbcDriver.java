@@ -0,0 +1,52 @@
+package org.wildfly.swarm.config.datasources;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.Capability;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.ResourceVisitor;
+import org.wildfly.swarm.config.runtime.Visitable;
+
+/**
+ * Reduced version of a generated jdbc driver
+ */
+@Address("/subsystem=datasources/jdbc-driver=*")
+@ResourceType("jdbc-driver")
+@Capability(value = "org.wildfly.data-source.jdbc-driver", dynamic = true)
+public class TestJdbcDriver implements Keyed, Visitable {
+
+    private String key;
+
+    private String driverModuleName;
+
+    public TestJdbcDriver(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    @ModelNodeBinding(detypedName = "driver-module-name")
+    public String driverModuleName() {
+        return this.driverModuleName;
+    }
+
+    public TestJdbcDriver driverModuleName(String value) {
+        this.driverModuleName = value;
+        return this;
+    }
+
+    @Override
+    public void accept(ResourceVisitor visitor) {
+        if (visitor instanceof TestDatasourcesVisitor) {
+            TestDatasourcesVisitor typed = (TestDatasourcesVisitor) visitor;
+            if (typed.visit(this)) {
+                typed.leave(this);
+            }
+        } else if (visitor.visitResource(this)) {
+            visitor.leaveResource(this);
+        }
+    }
+}
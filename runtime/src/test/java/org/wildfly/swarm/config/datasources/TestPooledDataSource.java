@@ -0,0 +1,190 @@
+package org.wildfly.swarm.config.datasources;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.PrimitiveBacked;
+import org.wildfly.swarm.config.runtime.ResourceType;
+
+/**
+ * Reduced version of a generated data source with primitive attribute storage
+ */
+@Address("/subsystem=datasources/data-source=*")
+@ResourceType("data-source")
+public class TestPooledDataSource implements Keyed, PrimitiveBacked {
+
+    private String key;
+
+    private String jndiName;
+
+    private int minPoolSize;
+
+    private long blockingTimeoutWaitMillis;
+
+    private boolean enabled;
+
+    private long presence0;
+
+    private PropertyChangeSupport pcs;
+
+    public TestPooledDataSource(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public void addPropertyChangeListener(PropertyChangeListener listener) {
+        if (null == this.pcs) this.pcs = new PropertyChangeSupport(this);
+        this.pcs.addPropertyChangeListener(listener);
+    }
+
+    @ModelNodeBinding(detypedName = "jndi-name", ordinal = 0)
+    public String jndiName() {
+        return this.jndiName;
+    }
+
+    public TestPooledDataSource jndiName(String value) {
+        Object oldValue = this.jndiName;
+        this.jndiName = value;
+        if (this.pcs != null) this.pcs.firePropertyChange("jndiName", oldValue, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "min-pool-size", ordinal = 1, defaultValue = "0")
+    public Integer minPoolSize() {
+        return (this.presence0 & 0x1L) != 0 ? Integer.valueOf(this.minPoolSize) : null;
+    }
+
+    public TestPooledDataSource minPoolSize(Integer value) {
+        Object oldValue = this.pcs != null ? minPoolSize() : null;
+        if (value == null) { this.minPoolSize = 0; this.presence0 &= ~0x1L; }
+        else { this.minPoolSize = value; this.presence0 |= 0x1L; }
+        if (this.pcs != null) this.pcs.firePropertyChange("minPoolSize", oldValue, value);
+        return this;
+    }
+
+    public int minPoolSizeAsInt() {
+        return this.minPoolSize;
+    }
+
+    public TestPooledDataSource minPoolSize(int value) {
+        Object oldValue = this.pcs != null ? minPoolSize() : null;
+        this.minPoolSize = value;
+        this.presence0 |= 0x1L;
+        if (this.pcs != null) this.pcs.firePropertyChange("minPoolSize", oldValue, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "blocking-timeout-wait-millis", ordinal = 2)
+    public Long blockingTimeoutWaitMillis() {
+        return (this.presence0 & 0x2L) != 0 ? Long.valueOf(this.blockingTimeoutWaitMillis) : null;
+    }
+
+    public TestPooledDataSource blockingTimeoutWaitMillis(Long value) {
+        Object oldValue = this.pcs != null ? blockingTimeoutWaitMillis() : null;
+        if (value == null) { this.blockingTimeoutWaitMillis = 0; this.presence0 &= ~0x2L; }
+        else { this.blockingTimeoutWaitMillis = value; this.presence0 |= 0x2L; }
+        if (this.pcs != null) this.pcs.firePropertyChange("blockingTimeoutWaitMillis", oldValue, value);
+        return this;
+    }
+
+    public long blockingTimeoutWaitMillisAsLong() {
+        return this.blockingTimeoutWaitMillis;
+    }
+
+    public TestPooledDataSource blockingTimeoutWaitMillis(long value) {
+        Object oldValue = this.pcs != null ? blockingTimeoutWaitMillis() : null;
+        this.blockingTimeoutWaitMillis = value;
+        this.presence0 |= 0x2L;
+        if (this.pcs != null) this.pcs.firePropertyChange("blockingTimeoutWaitMillis", oldValue, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "enabled", ordinal = 3, defaultValue = "true")
+    public Boolean enabled() {
+        return (this.presence0 & 0x4L) != 0 ? Boolean.valueOf(this.enabled) : null;
+    }
+
+    public TestPooledDataSource enabled(Boolean value) {
+        Object oldValue = this.pcs != null ? enabled() : null;
+        if (value == null) { this.enabled = false; this.presence0 &= ~0x4L; }
+        else { this.enabled = value; this.presence0 |= 0x4L; }
+        if (this.pcs != null) this.pcs.firePropertyChange("enabled", oldValue, value);
+        return this;
+    }
+
+    public boolean enabledAsBoolean() {
+        return this.enabled;
+    }
+
+    public TestPooledDataSource enabled(boolean value) {
+        Object oldValue = this.pcs != null ? enabled() : null;
+        this.enabled = value;
+        this.presence0 |= 0x4L;
+        if (this.pcs != null) this.pcs.firePropertyChange("enabled", oldValue, value);
+        return this;
+    }
+
+    @Override
+    public boolean isPrimitiveSet(int ordinal) {
+        switch (ordinal) {
+            case 1: return (this.presence0 & 0x1L) != 0;
+            case 2: return (this.presence0 & 0x2L) != 0;
+            case 3: return (this.presence0 & 0x4L) != 0;
+            default: return false;
+        }
+    }
+
+    @Override
+    public int getIntAttribute(int ordinal) {
+        switch (ordinal) {
+            case 1: return this.minPoolSize;
+            default: throw new IllegalArgumentException("No int attribute: " + ordinal);
+        }
+    }
+
+    @Override
+    public void setIntAttribute(int ordinal, int value) {
+        switch (ordinal) {
+            case 1: minPoolSize(value); return;
+            default: throw new IllegalArgumentException("No int attribute: " + ordinal);
+        }
+    }
+
+    @Override
+    public long getLongAttribute(int ordinal) {
+        switch (ordinal) {
+            case 2: return this.blockingTimeoutWaitMillis;
+            default: throw new IllegalArgumentException("No long attribute: " + ordinal);
+        }
+    }
+
+    @Override
+    public void setLongAttribute(int ordinal, long value) {
+        switch (ordinal) {
+            case 2: blockingTimeoutWaitMillis(value); return;
+            default: throw new IllegalArgumentException("No long attribute: " + ordinal);
+        }
+    }
+
+    @Override
+    public boolean getBooleanAttribute(int ordinal) {
+        switch (ordinal) {
+            case 3: return this.enabled;
+            default: throw new IllegalArgumentException("No boolean attribute: " + ordinal);
+        }
+    }
+
+    @Override
+    public void setBooleanAttribute(int ordinal, boolean value) {
+        switch (ordinal) {
+            case 3: enabled(value); return;
+            default: throw new IllegalArgumentException("No boolean attribute: " + ordinal);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.wildfly.swarm.config.datasources;
+
+import java.util.HashMap;
+
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.AttributeSlots;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.ResourceType;
+import org.wildfly.swarm.config.runtime.SlotBacked;
+
+/**
+ * Reduced version of a generated xa data source with slot storage, expressions are kept in the map
+ */
+@Address("/subsystem=datasources/xa-data-source=*")
+@ResourceType("xa-data-source")
+public class TestXaDataSource extends HashMap<String, String> implements Keyed, SlotBacked {
+
+    private String key;
+
+    private final AttributeSlots attributeSlots = new AttributeSlots(2);
+
+    public TestXaDataSource(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public AttributeSlots attributeSlots() {
+        return this.attributeSlots;
+    }
+
+    @ModelNodeBinding(detypedName = "jndi-name", ordinal = 0)
+    public String jndiName() {
+        return (String) this.attributeSlots.get(0);
+    }
+
+    public TestXaDataSource jndiName(String value) {
+        this.attributeSlots.set(0, value);
+        return this;
+    }
+
+    @ModelNodeBinding(detypedName = "xa-datasource-class", ordinal = 1)
+    public String xaDatasourceClass() {
+        return (String) this.attributeSlots.get(1);
+    }
+
+    public TestXaDataSource xaDatasourceClass(String value) {
+        this.attributeSlots.set(1, value);
+        return this;
+    }
+}
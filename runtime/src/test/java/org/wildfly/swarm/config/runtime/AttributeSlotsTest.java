@@ -0,0 +1,101 @@
+package org.wildfly.swarm.config.runtime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AttributeSlotsTest {
+
+    @Test
+    public void testSetAndGet() {
+        AttributeSlots slots = new AttributeSlots(130);
+        Assert.assertNull(slots.set(100, "b"));
+        Assert.assertNull(slots.set(3, "a"));
+        Assert.assertNull(slots.set(129, "c"));
+
+        Assert.assertEquals(3, slots.size());
+        Assert.assertEquals("a", slots.get(3));
+        Assert.assertEquals("b", slots.get(100));
+        Assert.assertEquals("c", slots.get(129));
+        Assert.assertNull(slots.get(64));
+
+        Assert.assertEquals("b", slots.set(100, "B"));
+        Assert.assertEquals("B", slots.get(100));
+        Assert.assertEquals(3, slots.size());
+    }
+
+    @Test
+    public void testClear() {
+        AttributeSlots slots = new AttributeSlots(10);
+        slots.set(1, 1);
+        slots.set(5, 5);
+
+        Assert.assertEquals(1, slots.set(1, null));
+        Assert.assertFalse(slots.isSet(1));
+        Assert.assertEquals(5, slots.get(5));
+        Assert.assertEquals(5, slots.clear(5));
+        Assert.assertEquals(0, slots.size());
+    }
+
+    @Test
+    public void testIteration() {
+        AttributeSlots slots = new AttributeSlots(200);
+        int[] ordinals = {0, 63, 64, 65, 150, 199};
+        for (int ordinal : ordinals) {
+            slots.set(ordinal, ordinal);
+        }
+
+        int n = 0;
+        for (int i = slots.nextSetSlot(0); i >= 0; i = slots.nextSetSlot(i + 1)) {
+            Assert.assertEquals(ordinals[n++], i);
+        }
+        Assert.assertEquals(ordinals.length, n);
+        Assert.assertEquals(-1, new AttributeSlots(200).nextSetSlot(0));
+    }
+
+    @Test
+    public void testCopyAndEquals() {
+        AttributeSlots slots = new AttributeSlots(100);
+        slots.set(2, "a");
+        slots.set(70, 70);
+
+        AttributeSlots copy = new AttributeSlots(100);
+        copy.set(5, "b");
+        copy.copyFrom(slots);
+        Assert.assertEquals(slots, copy);
+        Assert.assertEquals(slots.hashCode(), copy.hashCode());
+        Assert.assertFalse(copy.isSet(5));
+
+        copy.set(2, "c");
+        Assert.assertEquals("a", slots.get(2));
+        Assert.assertNotEquals(slots, copy);
+    }
+
+    @Test
+    public void testGrowAndShrink() {
+        AttributeSlots slots = new AttributeSlots(300);
+        for (int ordinal = 299; ordinal >= 0; ordinal -= 3) {
+            slots.set(ordinal, ordinal);
+        }
+        Assert.assertEquals(100, slots.size());
+        for (int ordinal = 299; ordinal >= 0; ordinal -= 3) {
+            Assert.assertEquals(ordinal, slots.get(ordinal));
+        }
+
+        for (int ordinal = 2; ordinal < 300; ordinal += 6) {
+            Assert.assertEquals(ordinal, slots.clear(ordinal));
+        }
+        Assert.assertEquals(50, slots.size());
+        Assert.assertEquals(5, slots.get(5));
+        Assert.assertNull(slots.get(8));
+
+        AttributeSlots copy = new AttributeSlots(300);
+        copy.copyFrom(slots);
+        Assert.assertEquals(slots, copy);
+        Assert.assertEquals(slots.hashCode(), copy.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyCapacityMismatch() {
+        new AttributeSlots(10).copyFrom(new AttributeSlots(100));
+    }
+}
@@ -0,0 +1,43 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+
+public class BulkFactoryTest {
+
+    private final TestDataSource prototype = new TestDataSource("prototype").driverName("h2").maxPoolSize(20);
+
+    @Test
+    public void testVariants() {
+        Map<String, Consumer<TestDataSource>> variants = new LinkedHashMap<>();
+        variants.put("tenant1", ds -> ds.jndiName("java:/tenant1"));
+        variants.put("tenant2", ds -> ds.maxPoolSize(50));
+        variants.put("tenant3", null);
+
+        KeyedList<TestDataSource> dataSources = BulkFactory.create(prototype, variants);
+
+        Assert.assertEquals(3, dataSources.size());
+        Assert.assertEquals("java:/tenant1", dataSources.getByKey("tenant1").jndiName());
+        Assert.assertEquals(Integer.valueOf(50), dataSources.getByKey("tenant2").maxPoolSize());
+        Assert.assertEquals(Integer.valueOf(20), dataSources.getByKey("tenant3").maxPoolSize());
+        Assert.assertEquals("h2", dataSources.getByKey("tenant3").driverName());
+        Assert.assertNull(prototype.jndiName());
+        Assert.assertEquals(Integer.valueOf(20), prototype.maxPoolSize());
+    }
+
+    @Test
+    public void testStream() {
+        KeyedList<TestDataSource> dataSources = BulkFactory.create(prototype, Arrays.asList("b", "a", "c").stream()
+                .map(key -> BulkFactory.<TestDataSource>variant(key + "DS", ds -> ds.jndiName("java:/" + key))), 3);
+
+        Assert.assertEquals(Arrays.asList("bDS", "aDS", "cDS"), Arrays.asList(
+                dataSources.get(0).getKey(), dataSources.get(1).getKey(), dataSources.get(2).getKey()));
+        Assert.assertEquals("java:/a", dataSources.getByKey("aDS").jndiName());
+    }
+}
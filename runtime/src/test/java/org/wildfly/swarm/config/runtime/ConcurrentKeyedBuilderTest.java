@@ -0,0 +1,80 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+public class ConcurrentKeyedBuilderTest {
+
+    @Test
+    public void testParallelContributors() throws Exception {
+        ConcurrentKeyedBuilder<TestJdbcDriver> builder = new ConcurrentKeyedBuilder<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> contributions = new ArrayList<>();
+            for (int contributor = 0; contributor < 4; contributor++) {
+                int offset = contributor;
+                contributions.add(executor.submit(() -> {
+                    for (int i = offset; i < 1000; i += 4) {
+                        builder.add(new TestJdbcDriver(String.format("driver%04d", i)));
+                    }
+                }));
+            }
+            for (Future<?> contribution : contributions) {
+                contribution.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        TestDatasources datasources = new TestDatasources().addAllJdbcDrivers(builder);
+
+        List<TestJdbcDriver> drivers = datasources.subresources().jdbcDrivers();
+        Assert.assertEquals(1000, drivers.size());
+        for (int i = 0; i < drivers.size(); i++) {
+            Assert.assertEquals(String.format("driver%04d", i), drivers.get(i).getKey());
+        }
+    }
+
+    @Test
+    public void testAppendNotifiesOnce() {
+        ConcurrentKeyedBuilder<TestJdbcDriver> builder = new ConcurrentKeyedBuilder<>();
+        builder.add(new TestJdbcDriver("postgresql")).add(new TestJdbcDriver("h2"));
+        TestJdbcDriver existing = new TestJdbcDriver("h2");
+        KeyedList<TestJdbcDriver> target = new KeyedList<>();
+        target.add(existing);
+        List<String> changes = new ArrayList<>();
+        target.addChangeListener((removed, added) -> changes.add(removed.size() + "/" + added.size()));
+
+        builder.appendTo(target);
+
+        Assert.assertEquals(Collections.singletonList("1/2"), changes);
+        Assert.assertEquals(2, target.size());
+        Assert.assertNotSame(existing, target.getByKey("h2"));
+        Assert.assertEquals("postgresql", target.get(1).getKey());
+    }
+
+    @Test
+    public void testGetOrCreate() {
+        ConcurrentKeyedBuilder<TestJdbcDriver> builder = new ConcurrentKeyedBuilder<>();
+        TestJdbcDriver h2 = builder.getOrCreate("h2", TestJdbcDriver::new);
+
+        Assert.assertSame(h2, builder.getOrCreate("h2", TestJdbcDriver::new));
+        Assert.assertEquals(1, builder.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateName() {
+        new ConcurrentKeyedBuilder<TestJdbcDriver>()
+                .add(new TestJdbcDriver("h2"))
+                .add(new TestJdbcDriver("h2"));
+    }
+}
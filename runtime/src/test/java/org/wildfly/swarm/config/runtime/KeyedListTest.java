@@ -0,0 +1,178 @@
+package org.wildfly.swarm.config.runtime;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedListTest {
+
+    private KeyedList<Resource> list;
+
+    @Before
+    public void fixture() {
+        list = new KeyedList<>();
+        list.add(new Resource("a"));
+        list.add(new Resource("b"));
+        list.add(new Resource("c"));
+    }
+
+    @Test
+    public void testLookup() {
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals("b", list.getByKey("b").getKey());
+        Assert.assertNull(list.getByKey("d"));
+        Assert.assertTrue(list.containsKey("c"));
+        Assert.assertEquals(1, list.indexOf(list.getByKey("b")));
+    }
+
+    @Test
+    public void testDuplicateKeysReplaceInPlace() {
+        Resource b = new Resource("b");
+        list.add(b);
+
+        Assert.assertEquals(3, list.size());
+        Assert.assertSame(b, list.get(1));
+        Assert.assertSame(b, list.getByKey("b"));
+    }
+
+    @Test
+    public void testAddingContainedResource() {
+        Assert.assertFalse(list.add(list.getByKey("a")));
+        Assert.assertTrue(list.add(new Resource("a")));
+        Assert.assertEquals(3, list.size());
+    }
+
+    @Test
+    public void testReadsSkipTombstones() {
+        list.removeByKey("a");
+        list.add(new Resource("d"));
+
+        Assert.assertEquals("b", list.get(0).getKey());
+        Assert.assertEquals("d", list.get(2).getKey());
+        Assert.assertEquals(1, list.indexOf(list.getByKey("c")));
+        Iterator<Resource> iterator = list.iterator();
+        Assert.assertEquals("b", iterator.next().getKey());
+        iterator.remove();
+        Assert.assertEquals("c", iterator.next().getKey());
+        Assert.assertEquals(Arrays.asList("c", "d"), keys());
+    }
+
+    @Test
+    public void testNoRandomAccess() {
+        // positional reads are linear while tombstones remain, generic code must not loop with get(int)
+        Assert.assertFalse(list instanceof RandomAccess);
+        Assert.assertFalse(list.subList(0, 2) instanceof RandomAccess);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPositionalReadBeyondSize() {
+        list.removeByKey("b");
+        list.get(2);
+    }
+
+    @Test
+    public void testRemoveByKeyRetainsOrder() {
+        Assert.assertEquals("a", list.removeByKey("a").getKey());
+        Assert.assertNull(list.removeByKey("a"));
+        list.add(new Resource("d"));
+
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals(Arrays.asList("b", "c", "d"), keys());
+        Assert.assertEquals(2, list.indexOf(list.getByKey("d")));
+    }
+
+    @Test
+    public void testReplace() {
+        Resource c = new Resource("c");
+        Assert.assertNotNull(list.replace(c));
+        Assert.assertNull(list.replace(new Resource("d")));
+        Assert.assertSame(c, list.get(2));
+        Assert.assertEquals(3, list.size());
+    }
+
+    @Test
+    public void testPositionalAccess() {
+        list.add(0, new Resource("z"));
+        list.remove(2);
+        Iterator<Resource> iterator = list.iterator();
+        iterator.next();
+        iterator.remove();
+
+        Assert.assertEquals(Arrays.asList("a", "c"), keys());
+        Assert.assertEquals(1, list.indexOf(list.getByKey("c")));
+        Assert.assertNull(list.getByKey("z"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFrozen() {
+        list.removeByKey("b");
+        list.freeze();
+        Assert.assertEquals(Arrays.asList("a", "c"), keys());
+        list.add(new Resource("d"));
+    }
+
+    @Test
+    public void testChangeListener() {
+        java.util.List<String> changes = new java.util.ArrayList<>();
+        list.addChangeListener((removed, added) -> changes.add(keysOf(removed) + "->" + keysOf(added)));
+
+        Resource b = list.getByKey("b");
+        list.add(new Resource("d"));
+        list.add(new Resource("b"));
+        list.add(b);
+        list.removeByKey("a");
+        list.clear();
+
+        Assert.assertEquals(Arrays.asList("[]->[d]", "[b]->[b]", "[b]->[b]", "[a]->[]", "[b, c, d]->[]"), changes);
+    }
+
+    @Test
+    public void testAddAll() {
+        java.util.List<String> changes = new java.util.ArrayList<>();
+        list.removeByKey("a");
+        list.removeByKey("b");
+        list.addChangeListener((removed, added) -> changes.add(keysOf(removed) + "->" + keysOf(added)));
+
+        Resource c = list.getByKey("c");
+        Assert.assertFalse(list.addAll(Arrays.asList(c)));
+        Assert.assertTrue(list.addAll(Arrays.asList(new Resource("d"), new Resource("c"), new Resource("a"))));
+
+        Assert.assertEquals(Arrays.asList("c", "d", "a"), keys());
+        Assert.assertEquals(Arrays.asList("[c]->[d, c, a]"), changes);
+        Assert.assertEquals(2, list.indexOf(list.getByKey("a")));
+    }
+
+    private java.util.List<String> keys() {
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        for (Resource resource : list) {
+            keys.add(resource.getKey());
+        }
+        return keys;
+    }
+
+    private static java.util.List<String> keysOf(java.util.List<? extends Resource> resources) {
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        for (Resource resource : resources) {
+            keys.add(resource.getKey());
+        }
+        return keys;
+    }
+
+    private static class Resource implements Keyed {
+
+        private final String key;
+
+        Resource(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+public class BootSnapshotTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private TestDatasources datasources() {
+        return new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"))
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(20));
+    }
+
+    @Test
+    public void testFingerprint() {
+        Assert.assertArrayEquals(BootSnapshot.fingerprint(datasources()), BootSnapshot.fingerprint(datasources()));
+
+        TestDatasources changed = datasources();
+        changed.subresources().dataSource("ExampleDS").maxPoolSize(30);
+        Assert.assertFalse(java.util.Arrays.equals(BootSnapshot.fingerprint(datasources()), BootSnapshot.fingerprint(changed)));
+
+        Assert.assertFalse(java.util.Arrays.equals(BootSnapshot.fingerprint(datasources()),
+                BootSnapshot.fingerprint(datasources(), Marshaller.Option.ELIDE_DEFAULTS)));
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("boot.dmr");
+        BootSnapshot snapshot = new BootSnapshot(file);
+
+        List<ModelNode> marshalled = snapshot.marshal(datasources());
+        Assert.assertTrue(Files.exists(file));
+
+        byte[] fingerprint = BootSnapshot.fingerprint(datasources());
+        Assert.assertEquals(marshalled, snapshot.load(fingerprint).get());
+        Assert.assertEquals(marshalled, snapshot.marshal(datasources()));
+
+        TestDatasources changed = datasources();
+        changed.subresources().dataSource("ExampleDS").maxPoolSize(30);
+        Assert.assertFalse(snapshot.load(BootSnapshot.fingerprint(changed)).isPresent());
+        Assert.assertEquals(30, snapshot.marshal(changed).get(2).get("max-pool-size").asInt());
+        Assert.assertTrue(snapshot.load(BootSnapshot.fingerprint(changed)).isPresent());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("boot.dmr");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        Assert.assertFalse(new BootSnapshot(file).load(BootSnapshot.fingerprint(datasources())).isPresent());
+        Assert.assertEquals(3, new BootSnapshot(file).marshal(datasources()).size());
+    }
+
+    @Test
+    public void testCorruptLengthsAreIgnored() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("boot.dmr");
+        byte[] fingerprint = BootSnapshot.fingerprint(datasources());
+        BootSnapshot snapshot = new BootSnapshot(file);
+        snapshot.marshal(datasources());
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+        Assert.assertFalse(snapshot.load(fingerprint).isPresent());
+
+        snapshot.marshal(datasources());
+        bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(12 + fingerprint.length, Integer.MAX_VALUE);
+        Files.write(file, bytes);
+        Assert.assertFalse(snapshot.load(fingerprint).isPresent());
+    }
+
+    @Test
+    public void testChangedGraphMissesSnapshot() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("boot.dmr");
+        BootSnapshot snapshot = new BootSnapshot(file);
+        snapshot.marshal(new TestDatasources().dataSource(new TestDataSource("Aa")).dataSource(new TestDataSource("BB")));
+
+        // unset and zero
+        TestDatasources zero = new TestDatasources()
+                .dataSource(new TestDataSource("Aa").maxPoolSize(0))
+                .dataSource(new TestDataSource("BB"));
+        Assert.assertFalse(snapshot.load(BootSnapshot.fingerprint(zero)).isPresent());
+
+        // the order of the children is the order of the operations
+        TestDatasources reordered = new TestDatasources().dataSource(new TestDataSource("BB")).dataSource(new TestDataSource("Aa"));
+        Assert.assertFalse(snapshot.load(BootSnapshot.fingerprint(reordered)).isPresent());
+        Assert.assertEquals(Marshaller.marshal(reordered), snapshot.marshal(reordered));
+    }
+}
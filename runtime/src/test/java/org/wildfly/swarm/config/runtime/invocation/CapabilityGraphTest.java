@@ -0,0 +1,89 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.List;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+
+public class CapabilityGraphTest {
+
+    @Test
+    public void testReferencedCapabilitiesComeFirst() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").jndiName("java:jboss/datasources/ExampleDS"))
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"));
+
+        List<ModelNode> ops = Marshaller.marshal(datasources);
+
+        Assert.assertEquals(3, ops.size());
+        Assert.assertEquals("subsystem", resourceType(ops.get(0)));
+        Assert.assertEquals("jdbc-driver", resourceType(ops.get(1)));
+        Assert.assertEquals("data-source", resourceType(ops.get(2)));
+    }
+
+    @Test
+    public void testUnrelatedOperationsKeepOrder() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("postgres"))
+                .jdbcDriver(new TestJdbcDriver("h2"));
+
+        List<ModelNode> ops = Marshaller.marshal(datasources);
+
+        Assert.assertEquals("data-source", resourceType(ops.get(1)));
+        Assert.assertEquals("jdbc-driver", resourceType(ops.get(2)));
+    }
+
+    @Test
+    public void testLevels() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2"))
+                .dataSource(new TestDataSource("OtherDS"))
+                .jdbcDriver(new TestJdbcDriver("h2"));
+
+        List<List<ModelNode>> levels = Marshaller.marshalLevels(datasources);
+
+        Assert.assertEquals(3, levels.size());
+        Assert.assertEquals(1, levels.get(0).size());
+        Assert.assertEquals(2, levels.get(1).size());
+        Assert.assertEquals("OtherDS", resourceName(levels.get(1).get(0)));
+        Assert.assertEquals("h2", resourceName(levels.get(1).get(1)));
+        Assert.assertEquals("ExampleDS", resourceName(levels.get(2).get(0)));
+    }
+
+    @Test
+    public void testCycleReleasesCycleMember() throws Exception {
+        TestDataSource waiting = new TestDataSource("OtherDS").driverName("h2");
+        TestDataSource cyclic = new TestDataSource("ExampleDS").driverName("h2");
+        TestJdbcDriver driver = new TestJdbcDriver("h2");
+
+        // the driver below the data source referencing it, the other data source waits for the cycle
+        CapabilityGraph graph = new CapabilityGraph();
+        PathAddress subsystem = PathAddress.pathAddress("subsystem", "datasources");
+        graph.add(waiting, subsystem.append("data-source", "OtherDS"), new ModelNode().set("OtherDS"));
+        graph.add(cyclic, subsystem.append("data-source", "ExampleDS"), new ModelNode().set("ExampleDS"));
+        graph.add(driver, subsystem.append("data-source", "ExampleDS").append("jdbc-driver", "h2"), new ModelNode().set("h2"));
+
+        List<ModelNode> ops = graph.sort();
+
+        Assert.assertEquals("ExampleDS", ops.get(0).asString());
+        Assert.assertEquals("h2", ops.get(1).asString());
+        Assert.assertEquals("OtherDS", ops.get(2).asString());
+    }
+
+    private static String resourceType(ModelNode op) {
+        List<ModelNode> address = op.get(OP_ADDR).asList();
+        return address.get(address.size() - 1).asProperty().getName();
+    }
+
+    private static String resourceName(ModelNode op) {
+        List<ModelNode> address = op.get(OP_ADDR).asList();
+        return address.get(address.size() - 1).asProperty().getValue().asString();
+    }
+}
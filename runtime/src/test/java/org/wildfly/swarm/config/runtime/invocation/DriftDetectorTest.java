@@ -0,0 +1,75 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.INCLUDE_DEFAULTS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+
+public class DriftDetectorTest {
+
+    private final OperationChannel server = operation -> {
+        Assert.assertEquals(READ_RESOURCE_OPERATION, operation.get(OP).asString());
+        Assert.assertTrue(operation.get(RECURSIVE).asBoolean());
+        Assert.assertFalse(operation.get(INCLUDE_DEFAULTS).asBoolean());
+        return CompletableFuture.completedFuture(EntityReaderTest.success(EntityReaderTest.datasources()));
+    };
+
+    @Test
+    public void testNoDrift() throws Exception {
+        try (DriftDetector detector = new DriftDetector(server, desired())) {
+            Assert.assertTrue(detector.check().get().isEmpty());
+        }
+    }
+
+    @Test
+    public void testDrift() throws Exception {
+        TestDatasources desired = desired();
+        try (DriftDetector detector = new DriftDetector(server, desired)) {
+            desired.subresources().dataSource("ExampleDS").maxPoolSize(15);
+            desired.dataSource(new TestDataSource("OtherDS").jndiName("java:/OtherDS"));
+
+            List<MerkleTree.Difference> drift = detector.check().get();
+
+            Assert.assertEquals(2, drift.size());
+            MerkleTree.Difference poolSize = drift.get(0);
+            Assert.assertEquals(MerkleTree.Difference.Kind.ATTRIBUTE, poolSize.getKind());
+            Assert.assertTrue(poolSize.getAddress().endsWith("/data-source=ExampleDS"));
+            Assert.assertEquals("max-pool-size", poolSize.getAttribute());
+            Assert.assertEquals(15, poolSize.getExpected());
+            Assert.assertEquals(10, poolSize.getActual());
+            Assert.assertEquals(MerkleTree.Difference.Kind.MISSING, drift.get(1).getKind());
+            Assert.assertTrue(drift.get(1).getAddress().endsWith("/data-source=OtherDS"));
+        }
+    }
+
+    @Test
+    public void testDefaultsAreNoDrift() throws Exception {
+        TestDatasources desired = desired();
+        desired.subresources().dataSource("ExampleDS").maxPoolSize(null);
+        OperationChannel defaults = operation -> {
+            ModelNode payload = EntityReaderTest.datasources();
+            payload.get("data-source", "ExampleDS", "max-pool-size").set(20);
+            return CompletableFuture.completedFuture(EntityReaderTest.success(payload));
+        };
+
+        try (DriftDetector detector = new DriftDetector(defaults, desired)) {
+            Assert.assertTrue(detector.check().get().isEmpty());
+        }
+    }
+
+    private static TestDatasources desired() {
+        return new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").jndiName("java:/ExampleDS").maxPoolSize(10))
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"));
+    }
+}
@@ -0,0 +1,100 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestPooledDataSource;
+import org.wildfly.swarm.config.datasources.TestXaDataSource;
+
+public class EntityAdapterTest {
+
+    @Test
+    public void testSlottedExpressions() throws Exception {
+        TestXaDataSource dataSource = new TestXaDataSource("XaDS")
+                .jndiName("java:/XaDS")
+                .xaDatasourceClass("org.h2.jdbcx.JdbcDataSource");
+        dataSource.put("xaDatasourceClass", "${xa.class:org.h2.jdbcx.JdbcDataSource}");
+
+        ModelNode node = new EntityAdapter<TestXaDataSource>(TestXaDataSource.class).fromEntity(dataSource, new ModelNode());
+
+        Assert.assertEquals("java:/XaDS", node.get("jndi-name").asString());
+        Assert.assertEquals(ModelType.EXPRESSION, node.get("xa-datasource-class").getType());
+        Assert.assertEquals("${xa.class:org.h2.jdbcx.JdbcDataSource}", node.get("xa-datasource-class").asExpression().getExpressionString());
+    }
+
+    @Test
+    public void testExpressionWithoutSlot() throws Exception {
+        TestXaDataSource dataSource = new TestXaDataSource("XaDS");
+        dataSource.put("jndiName", "${jndi.name}");
+
+        ModelNode node = new EntityAdapter<TestXaDataSource>(TestXaDataSource.class).fromEntity(dataSource, new ModelNode());
+
+        Assert.assertEquals(ModelType.EXPRESSION, node.get("jndi-name").getType());
+        Assert.assertFalse(node.has("xa-datasource-class"));
+    }
+
+    @Test
+    public void testPrimitiveRoundTrip() throws Exception {
+        TestPooledDataSource dataSource = new TestPooledDataSource("ExampleDS")
+                .jndiName("java:/ExampleDS")
+                .minPoolSize(5)
+                .blockingTimeoutWaitMillis(30000L)
+                .enabled(true);
+        EntityAdapter<TestPooledDataSource> adapter = new EntityAdapter<>(TestPooledDataSource.class);
+
+        ModelNode node = adapter.fromEntity(dataSource, new ModelNode());
+        Assert.assertEquals(5, node.get("min-pool-size").asInt());
+        Assert.assertEquals(30000L, node.get("blocking-timeout-wait-millis").asLong());
+        Assert.assertTrue(node.get("enabled").asBoolean());
+
+        TestPooledDataSource decoded = adapter.fromDMR("ExampleDS", node);
+        Assert.assertEquals("java:/ExampleDS", decoded.jndiName());
+        Assert.assertEquals(5, decoded.minPoolSizeAsInt());
+        Assert.assertEquals(30000L, decoded.blockingTimeoutWaitMillisAsLong());
+        Assert.assertTrue(decoded.enabledAsBoolean());
+        Assert.assertTrue(decoded.isPrimitiveSet(1));
+        Assert.assertTrue(decoded.isPrimitiveSet(2));
+    }
+
+    @Test
+    public void testPrimitivePresence() throws Exception {
+        TestPooledDataSource dataSource = new TestPooledDataSource("ExampleDS");
+        EntityAdapter<TestPooledDataSource> adapter = new EntityAdapter<>(TestPooledDataSource.class);
+
+        Assert.assertFalse(dataSource.isPrimitiveSet(1));
+        Assert.assertNull(dataSource.minPoolSize());
+        Assert.assertNull(dataSource.enabled());
+        ModelNode unset = adapter.fromEntity(dataSource, new ModelNode());
+        Assert.assertFalse(unset.has("min-pool-size"));
+        Assert.assertFalse(unset.has("enabled"));
+
+        // zero and false are values
+        dataSource.minPoolSize(0).enabled(false);
+        Assert.assertEquals(Integer.valueOf(0), dataSource.minPoolSize());
+        Assert.assertEquals(Boolean.FALSE, dataSource.enabled());
+        ModelNode set = adapter.fromEntity(dataSource, new ModelNode());
+        Assert.assertEquals(0, set.get("min-pool-size").asInt());
+        Assert.assertFalse(set.get("enabled").asBoolean());
+        Assert.assertFalse(set.has("blocking-timeout-wait-millis"));
+
+        TestPooledDataSource decoded = adapter.fromDMR("ExampleDS", set);
+        Assert.assertEquals(Integer.valueOf(0), decoded.minPoolSize());
+        Assert.assertNull(decoded.blockingTimeoutWaitMillis());
+    }
+
+    @Test
+    public void testClearPrimitiveThroughBoxedMutator() throws Exception {
+        TestPooledDataSource dataSource = new TestPooledDataSource("ExampleDS").minPoolSize(5).enabled(true);
+
+        dataSource.minPoolSize((Integer) null).enabled((Boolean) null);
+
+        Assert.assertFalse(dataSource.isPrimitiveSet(1));
+        Assert.assertFalse(dataSource.isPrimitiveSet(3));
+        Assert.assertNull(dataSource.minPoolSize());
+        Assert.assertEquals(0, dataSource.minPoolSizeAsInt());
+        ModelNode node = new EntityAdapter<TestPooledDataSource>(TestPooledDataSource.class).fromEntity(dataSource, new ModelNode());
+        Assert.assertFalse(node.has("min-pool-size"));
+        Assert.assertFalse(node.has("enabled"));
+    }
+}
@@ -0,0 +1,178 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.ResourceType;
+
+public class EntityCodecTest {
+
+    private final EntityCodec codec = new EntityCodec();
+
+    @Test
+    public void testAttributes() {
+        TestDataSource ds = new TestDataSource("ExampleDS")
+                .driverName("h2")
+                .jndiName("java:/ExampleDS")
+                .maxPoolSize(-20);
+
+        ByteBuffer buffer = codec.encode(ds);
+        TestDataSource copy = codec.decode(buffer);
+
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertEquals("ExampleDS", copy.getKey());
+        Assert.assertEquals("h2", copy.driverName());
+        Assert.assertEquals("java:/ExampleDS", copy.jndiName());
+        Assert.assertEquals(Integer.valueOf(-20), copy.maxPoolSize());
+    }
+
+    @Test
+    public void testUnsetAttributes() {
+        TestDataSource copy = codec.decode(codec.encode(new TestDataSource("ExampleDS")));
+
+        Assert.assertNull(copy.driverName());
+        Assert.assertNull(copy.maxPoolSize());
+    }
+
+    @Test
+    public void testDictionary() {
+        TestDataSource ds = new TestDataSource("h2").driverName("h2").jndiName("h2");
+
+        // the type name and the key are written once, further occurrences take a byte
+        int size = codec.encode(ds).remaining();
+        int header = 8;
+        int type = 2 + TestDataSource.class.getName().length();
+        int key = 2 + "h2".length();
+        int attributes = 2 * (1 + 1 + 1) + 1;
+        int children = 1;
+        int expected = header + type + key + attributes + children;
+        Assert.assertEquals(expected, size);
+    }
+
+    @Test
+    public void testGraph() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"))
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(20))
+                .dataSource(new TestDataSource("OtherDS").driverName("h2"));
+
+        Path file = Files.createTempFile("entities", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                codec.encode(datasources, channel);
+            }
+
+            TestDatasources copy;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                copy = codec.decode(channel);
+            }
+
+            Assert.assertEquals(2, copy.subresources().dataSources().size());
+            Assert.assertEquals("OtherDS", copy.subresources().dataSources().get(1).getKey());
+            Assert.assertEquals(Integer.valueOf(20), copy.subresources().dataSource("ExampleDS").maxPoolSize());
+            Assert.assertEquals("com.h2database.h2", copy.subresources().jdbcDriver("h2").driverModuleName());
+            Assert.assertEquals(Marshaller.marshal(datasources), Marshaller.marshal(copy));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        TestDatasources datasources = new TestDatasources();
+        for (int i = 0; i < 500; i++) {
+            datasources.dataSource(new TestDataSource("DS" + i).jndiName("java:/DS" + i).maxPoolSize(i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] largest = new int[1];
+        WritableByteChannel out = Channels.newChannel(bytes);
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                largest[0] = Math.max(largest[0], src.remaining());
+                return out.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        codec.encode(datasources, channel);
+
+        Assert.assertTrue(largest[0] <= 4096);
+        Assert.assertEquals(codec.encode(datasources), ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testFloat() {
+        Weighted copy = codec.decode(codec.encode(new Weighted("w").weight(0.1f)));
+
+        Assert.assertEquals(Float.valueOf(0.1f), copy.weight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonEntityTypes() {
+        codec.decode(codec.encode(new NotAnEntity("x")));
+    }
+
+    @Address("/subsystem=test/weighted=*")
+    @ResourceType("weighted")
+    public static class Weighted implements Keyed {
+
+        private final String key;
+
+        private Float weight;
+
+        public Weighted(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        @ModelNodeBinding(detypedName = "weight")
+        public Float weight() {
+            return weight;
+        }
+
+        public Weighted weight(Float value) {
+            this.weight = value;
+            return this;
+        }
+    }
+
+    public static class NotAnEntity implements Keyed {
+
+        private final String key;
+
+        public NotAnEntity(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+}
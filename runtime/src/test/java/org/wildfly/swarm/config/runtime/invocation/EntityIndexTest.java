@@ -0,0 +1,93 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+public class EntityIndexTest {
+
+    @Test
+    public void testAttributeIndex() {
+        TestDataSource ds = new TestDataSource("ExampleDS").driverName("h2").jndiName("java:/ExampleDS");
+
+        try (EntityIndex index = EntityIndex.of(ds)) {
+            index.addIndex(TestDataSource.class, "driver-name");
+            Assert.assertTrue(index.isIndexed(TestDataSource.class, "driver-name"));
+            Assert.assertFalse(index.isIndexed(TestDataSource.class, "jndi-name"));
+
+            Assert.assertEquals(Collections.singletonList(ds), index.find(TestDataSource.class, "driver-name", "h2"));
+            Assert.assertEquals(Collections.singletonList(ds), index.findByPrefix(TestDataSource.class, "driver-name", "h"));
+            Assert.assertEquals(Collections.singletonList(ds), index.findByPrefix(TestDataSource.class, "jndi-name", "java:/"));
+
+            // the index follows attribute changes
+            ds.driverName("postgresql");
+            Assert.assertTrue(index.find(TestDataSource.class, "driver-name", "h2").isEmpty());
+            Assert.assertEquals(Collections.singletonList(ds), index.find(TestDataSource.class, "driver-name", "postgresql"));
+
+            ds.maxPoolSize(20);
+            Assert.assertEquals(Collections.singletonList(ds), index.find(TestDataSource.class, "max-pool-size", 20));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAttribute() {
+        EntityIndex.of(new TestDataSource("ExampleDS")).addIndex(TestDataSource.class, "unknown");
+    }
+
+    @Test
+    public void testGraph() {
+        TestDataSource exampleDS = new TestDataSource("ExampleDS").driverName("h2");
+        TestDataSource otherDS = new TestDataSource("OtherDS").driverName("h2");
+        TestDatasources root = new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2"))
+                .dataSource(exampleDS);
+
+        try (EntityIndex index = EntityIndex.of(root).addIndex(TestDataSource.class, "driver-name")) {
+            Assert.assertEquals(3, index.size());
+            Assert.assertEquals(1, index.find(TestJdbcDriver.class).size());
+
+            root.dataSource(otherDS);
+            Assert.assertEquals(new HashSet<>(Arrays.asList(exampleDS, otherDS)),
+                    new HashSet<>(index.find(TestDataSource.class, "driver-name", "h2")));
+
+            root.subresources().removeDataSource("ExampleDS");
+            Assert.assertEquals(Collections.singletonList(otherDS), index.find(TestDataSource.class, "driver-name", "h2"));
+            Assert.assertEquals(3, index.size());
+        }
+    }
+
+    @Test
+    public void testChildListChanges() {
+        TestDataSource exampleDS = new TestDataSource("ExampleDS").driverName("h2");
+        TestDatasources root = new TestDatasources().dataSource(exampleDS);
+
+        try (EntityIndex index = EntityIndex.of(root).addIndex(TestDataSource.class, "driver-name")) {
+            // replacing a child by name removes the previous one from the index
+            TestDataSource replacement = new TestDataSource("ExampleDS").driverName("postgresql");
+            root.dataSource(replacement);
+            Assert.assertTrue(index.find(TestDataSource.class, "driver-name", "h2").isEmpty());
+            Assert.assertEquals(Collections.singletonList(replacement), index.find(TestDataSource.class, "driver-name", "postgresql"));
+
+            // removed children are no longer observed
+            exampleDS.driverName("postgresql");
+            Assert.assertEquals(1, index.find(TestDataSource.class, "driver-name", "postgresql").size());
+
+            TestDataSource otherDS = new TestDataSource("OtherDS").driverName("h2");
+            // the fixture doesn't report replaced lists
+            root.dataSources(Arrays.asList(otherDS));
+            index.refresh();
+            Assert.assertEquals(Collections.singletonList(otherDS), index.find(TestDataSource.class));
+            Assert.assertEquals(2, index.size());
+
+            root.subresources().dataSources().clear();
+            Assert.assertTrue(index.find(TestDataSource.class).isEmpty());
+            Assert.assertEquals(1, index.size());
+        }
+    }
+}
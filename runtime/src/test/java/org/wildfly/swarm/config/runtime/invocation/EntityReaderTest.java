@@ -0,0 +1,115 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RECURSIVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+public class EntityReaderTest {
+
+    @Test
+    public void testRead() throws Exception {
+        OperationChannel channel = operation -> {
+            Assert.assertEquals(READ_RESOURCE_OPERATION, operation.get(OP).asString());
+            Assert.assertTrue(operation.get(RECURSIVE).asBoolean());
+            Assert.assertEquals("datasources", operation.get(OP_ADDR).asPropertyList().get(0).getValue().asString());
+            return CompletableFuture.completedFuture(success(datasources()));
+        };
+
+        TestDatasources datasources = new EntityReader(channel).read(TestDatasources.class).get();
+
+        TestDataSource dataSource = datasources.subresources().dataSource("ExampleDS");
+        Assert.assertEquals("h2", dataSource.driverName());
+        Assert.assertEquals(Integer.valueOf(10), dataSource.maxPoolSize());
+        Assert.assertEquals("com.h2database.h2", datasources.subresources().jdbcDriver("h2").driverModuleName());
+    }
+
+    @Test
+    public void testFailuresAreIsolated() throws Exception {
+        CompletableFuture<ModelNode> slow = new CompletableFuture<>();
+        OperationChannel channel = operation -> slow;
+
+        Map<Class<?>, CompletableFuture<?>> futures = new EntityReader(channel, Runnable::run)
+                .readAll(Arrays.asList(TestDatasources.class, TestDataSource.class));
+
+        // the data source address contains a wildcard
+        CompletableFuture<?> unresolved = futures.get(TestDataSource.class);
+        Assert.assertTrue(unresolved.isCompletedExceptionally());
+        Assert.assertFalse(futures.get(TestDatasources.class).isDone());
+
+        ModelNode failure = new ModelNode();
+        failure.get(OUTCOME).set(FAILED);
+        failure.get(FAILURE_DESCRIPTION).set("WFLYCTL0216: Management resource not found");
+        slow.complete(failure);
+        try {
+            futures.get(TestDatasources.class).get();
+            Assert.fail("Failure expected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("WFLYCTL0216"));
+        }
+    }
+
+    @Test
+    public void testChannelFailure() throws Exception {
+        OperationChannel channel = operation -> {
+            throw new IllegalStateException("Channel closed");
+        };
+
+        Map<Class<?>, CompletableFuture<?>> futures = new EntityReader(channel, Runnable::run)
+                .readAll(Collections.singletonList(TestDatasources.class));
+
+        try {
+            futures.get(TestDatasources.class).get();
+            Assert.fail("Failure expected");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("Channel closed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testInterning() throws Exception {
+        ModelNode payload = new ModelNode();
+        payload.get("data-source", "ExampleDS", "driver-name").set(new String("h2"));
+        payload.get("data-source", "OtherDS", "driver-name").set(new String("h2"));
+        OperationChannel channel = operation -> CompletableFuture.completedFuture(success(payload));
+
+        TestDatasources datasources = new EntityReader(channel).read(TestDatasources.class).get();
+
+        Assert.assertSame(datasources.subresources().dataSource("ExampleDS").driverName(),
+                          datasources.subresources().dataSource("OtherDS").driverName());
+    }
+
+    static ModelNode datasources() {
+        ModelNode payload = new ModelNode();
+        ModelNode dataSource = payload.get("data-source", "ExampleDS");
+        dataSource.get("driver-name").set("h2");
+        dataSource.get("jndi-name").set("java:/ExampleDS");
+        dataSource.get("max-pool-size").set(10);
+        payload.get("jdbc-driver", "h2", "driver-module-name").set("com.h2database.h2");
+        return payload;
+    }
+
+    static ModelNode success(ModelNode result) {
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set(SUCCESS);
+        response.get(RESULT).set(result);
+        return response;
+    }
+}
@@ -9,11 +9,13 @@ import org.junit.Test;
 public class LoggingComparatorTest {
 
     @Test
-    public void testFormattersFirst() throws Exception {
+    public void testOthersByName() throws Exception {
         SubresourceFilter.LoggingComparator loggingComparator = new SubresourceFilter.LoggingComparator();
 
-        Assert.assertEquals(-1, loggingComparator.compare(TestClass.class.getMethod("customFormatters"), TestClass.class.getMethod("customHandlers")));
-        Assert.assertEquals(1, loggingComparator.compare(TestClass.class.getMethod("customHandlers"), TestClass.class.getMethod("customFormatters")));
+        // formatters aren't special, the capability graph orders them before the handlers referencing them
+        Assert.assertTrue(loggingComparator.compare(TestClass.class.getMethod("customFormatters"), TestClass.class.getMethod("customHandlers")) < 0);
+        Assert.assertTrue(loggingComparator.compare(TestClass.class.getMethod("customHandlers"), TestClass.class.getMethod("customFormatters")) > 0);
+        Assert.assertEquals(0, loggingComparator.compare(TestClass.class.getMethod("customHandlers"), TestClass.class.getMethod("customHandlers")));
     }
 
     @Test
@@ -0,0 +1,70 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+
+public class MarshallerTest {
+
+    @Test
+    public void testAbsentSubresourcesAreSkipped() throws Exception {
+        TestDatasources datasources = new TestDatasources();
+
+        List<ModelNode> ops = Marshaller.marshal(datasources);
+
+        Assert.assertEquals(1, ops.size());
+        Assert.assertFalse(datasources.hasSubresources());
+        Assert.assertTrue(datasources.subresources().dataSources().isEmpty());
+        Assert.assertFalse(datasources.hasSubresources());
+    }
+
+    @Test
+    public void testLazySubresources() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS"));
+
+        List<ModelNode> ops = Marshaller.marshal(datasources);
+
+        Assert.assertEquals(2, ops.size());
+        Assert.assertEquals("data-source", ops.get(1).get(OP_ADDR).asList().get(1).asProperty().getName());
+        Assert.assertTrue(datasources.subresources().jdbcDrivers().isEmpty());
+        Assert.assertSame(datasources.subresources().dataSources().get(0), datasources.subresources().dataSource("ExampleDS"));
+    }
+
+    @Test
+    public void testAbsentChildListsAreReadOnly() throws Exception {
+        TestDatasources datasources = new TestDatasources();
+        try {
+            datasources.subresources().dataSources().add(new TestDataSource("ExampleDS"));
+            Assert.fail("Absent child lists are shared empty lists");
+        } catch (UnsupportedOperationException e) {
+            // children are added through the parent
+        }
+        Assert.assertFalse(datasources.hasSubresources());
+
+        datasources.dataSource(new TestDataSource("ExampleDS"));
+        datasources.subresources().dataSources().add(new TestDataSource("OtherDS"));
+        Assert.assertEquals(2, datasources.subresources().dataSources().size());
+    }
+
+    @Test
+    public void testElideDefaults() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").jndiName("java:/ExampleDS").maxPoolSize(20))
+                .dataSource(new TestDataSource("OtherDS").jndiName("java:/OtherDS").maxPoolSize(50));
+
+        List<ModelNode> ops = Marshaller.marshal(datasources);
+        Assert.assertTrue(ops.get(1).has("max-pool-size"));
+
+        ops = Marshaller.marshal(datasources, Marshaller.Option.ELIDE_DEFAULTS);
+        Assert.assertFalse(ops.get(1).has("max-pool-size"));
+        Assert.assertEquals("java:/ExampleDS", ops.get(1).get("jndi-name").asString());
+        Assert.assertEquals(50, ops.get(2).get("max-pool-size").asInt());
+    }
+}
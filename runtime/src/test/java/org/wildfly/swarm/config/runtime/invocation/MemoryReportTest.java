@@ -0,0 +1,69 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+public class MemoryReportTest {
+
+    @Test
+    public void testEstimates() {
+        Set<Object> boundaries = Collections.newSetFromMap(new IdentityHashMap<>());
+        TestDataSource child = new TestDataSource("child");
+        boundaries.add(child);
+
+        SizeEstimator estimator = new SizeEstimator(boundaries);
+
+        // header, five references and a boolean, aligned
+        Assert.assertEquals(40, estimator.shallowSize(TestDataSource.class));
+
+        TestDataSource ds = new TestDataSource("ExampleDS");
+        Assert.assertEquals(40 + estimator.shallowSize(String.class) + SizeEstimator.arraySize(2, 9), estimator.retainedSize(ds));
+        Assert.assertEquals(0, estimator.retainedSize(ds.getKey()));
+
+        ArrayList<Object> list = new ArrayList<>();
+        list.add(child);
+        Assert.assertEquals(estimator.shallowSize(ArrayList.class) + SizeEstimator.arraySize(4, 1), estimator.retainedSize(list));
+        Assert.assertEquals(0, estimator.retainedSize(list));
+
+        estimator.retainedSize(new ArrayList<>());
+        estimator.retainedSize(Collections.emptyList());
+        Assert.assertEquals(1, estimator.getEmptyCollections());
+    }
+
+    @Test
+    public void testReport() {
+        TestDatasources datasources = new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"))
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(20))
+                .dataSource(new TestDataSource("OtherDS").driverName("h2"));
+
+        MemoryReport report = MemoryReport.of(datasources);
+
+        Assert.assertEquals(4, report.getCount());
+
+        MemoryReport.TypeStats dataSources = report.getType(TestDataSource.class);
+        Assert.assertEquals(2, dataSources.getCount());
+        Assert.assertEquals(6, dataSources.getAttributes());
+        Assert.assertEquals(3, dataSources.getNullAttributes());
+        Assert.assertEquals(0.5, dataSources.getNullRatio(), 0.001);
+        Assert.assertEquals(80, dataSources.getShallowSize());
+        Assert.assertTrue(dataSources.getDeepSize() > dataSources.getShallowSize());
+
+        // the holder and its lists are retained by the root
+        MemoryReport.TypeStats root = report.getType(TestDatasources.class);
+        Assert.assertTrue(root.getDeepSize() > root.getShallowSize());
+        Assert.assertEquals(report.getDeepSize(),
+                root.getDeepSize() + dataSources.getDeepSize() + report.getType(TestJdbcDriver.class).getDeepSize());
+
+        Assert.assertTrue(report.toText().contains(TestDataSource.class.getName()));
+        Assert.assertTrue(report.toJson().startsWith("{\"count\":4,"));
+    }
+}
@@ -0,0 +1,178 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+import org.wildfly.swarm.config.datasources.TestPooledDataSource;
+import org.wildfly.swarm.config.runtime.Address;
+import org.wildfly.swarm.config.runtime.Keyed;
+import org.wildfly.swarm.config.runtime.ModelNodeBinding;
+import org.wildfly.swarm.config.runtime.ResourceType;
+
+public class MerkleTreeTest {
+
+    @Test
+    public void testAttributeChanges() {
+        TestDataSource ds = new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(20);
+
+        try (MerkleTree tree = MerkleTree.track(ds)) {
+            long initial = tree.hash();
+            Assert.assertEquals(initial, tree.hash());
+
+            ds.maxPoolSize(30);
+            Assert.assertTrue(tree.changedSince(initial));
+
+            ds.maxPoolSize(20);
+            Assert.assertFalse(tree.changedSince(initial));
+        }
+    }
+
+    @Test
+    public void testEqualGraphs() {
+        try (MerkleTree a = MerkleTree.track(new TestDataSource("ExampleDS").driverName("h2"));
+             MerkleTree b = MerkleTree.track(new TestDataSource("ExampleDS").driverName("h2"));
+             MerkleTree c = MerkleTree.track(new TestDataSource("OtherDS").driverName("h2"))) {
+            Assert.assertTrue(a.matches(b));
+            Assert.assertFalse(a.matches(c));
+        }
+    }
+
+    @Test
+    public void testSubtrees() {
+        TestDatasources datasources = new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2"))
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2"));
+        TestDataSource ds = datasources.subresources().dataSource("ExampleDS");
+
+        try (MerkleTree tree = MerkleTree.track(datasources)) {
+            long root = tree.hash();
+            long driver = tree.hashOf(datasources.subresources().jdbcDriver("h2"));
+
+            ds.maxPoolSize(10);
+            Assert.assertTrue(tree.changedSince(root));
+            Assert.assertEquals(driver, tree.hashOf(datasources.subresources().jdbcDriver("h2")));
+
+            datasources.dataSource(new TestDataSource("OtherDS"));
+            long withOther = tree.hash();
+            datasources.subresources().removeDataSource("OtherDS");
+            Assert.assertNotEquals(withOther, tree.hash());
+        }
+    }
+
+    @Test
+    public void testDiff() {
+        TestDatasources expected = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(20))
+                .dataSource(new TestDataSource("OtherDS"));
+        TestDatasources actual = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(30))
+                .dataSource(new TestDataSource("ThirdDS"));
+
+        try (MerkleTree left = MerkleTree.track(expected); MerkleTree right = MerkleTree.track(actual)) {
+            List<MerkleTree.Difference> differences = left.diff(right);
+
+            Assert.assertEquals(3, differences.size());
+            Assert.assertEquals(MerkleTree.Difference.Kind.ATTRIBUTE, differences.get(0).getKind());
+            Assert.assertEquals("subsystem=datasources/data-source=ExampleDS", differences.get(0).getAddress());
+            Assert.assertEquals("max-pool-size", differences.get(0).getAttribute());
+            Assert.assertEquals(MerkleTree.Difference.Kind.MISSING, differences.get(1).getKind());
+            Assert.assertEquals(MerkleTree.Difference.Kind.UNEXPECTED, differences.get(2).getKind());
+        }
+    }
+
+    @Test
+    public void testAppenders() {
+        Pool pool = new Pool("pool").host("a");
+
+        try (MerkleTree tree = MerkleTree.track(pool)) {
+            long initial = tree.hash();
+
+            pool.host("b");
+            Assert.assertTrue(tree.changedSince(initial));
+            try (MerkleTree expected = MerkleTree.track(new Pool("pool").host("a").host("b"))) {
+                Assert.assertTrue(tree.matches(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testValuesWithEqualJavaHashCodes() {
+        // unset and zero
+        assertDiffer(new TestDataSource("ExampleDS"), new TestDataSource("ExampleDS").maxPoolSize(0));
+        // zero and unlimited
+        assertDiffer(new TestPooledDataSource("ExampleDS").blockingTimeoutWaitMillis(0L),
+                     new TestPooledDataSource("ExampleDS").blockingTimeoutWaitMillis(-1L));
+        assertDiffer(new TestPooledDataSource("ExampleDS"),
+                     new TestPooledDataSource("ExampleDS").blockingTimeoutWaitMillis(-1L));
+        // "Aa".hashCode() == "BB".hashCode()
+        assertDiffer(new TestDataSource("ExampleDS").driverName("Aa"), new TestDataSource("ExampleDS").driverName("BB"));
+        assertDiffer(new Pool("pool").host("Aa"), new Pool("pool").host("BB"));
+        try (MerkleTree left = MerkleTree.track(new TestDataSource("Aa")); MerkleTree right = MerkleTree.track(new TestDataSource("BB"))) {
+            Assert.assertFalse(left.matches(right));
+        }
+    }
+
+    private static void assertDiffer(Object expected, Object actual) {
+        try (MerkleTree left = MerkleTree.track(expected); MerkleTree right = MerkleTree.track(actual)) {
+            Assert.assertFalse(left.matches(right));
+            Assert.assertEquals(1, left.diff(right).size());
+        }
+    }
+
+    /**
+     * A resource with a list attribute and the appender the generator creates for it
+     */
+    @Address("/subsystem=test/pool=*")
+    @ResourceType("pool")
+    public static class Pool implements Keyed {
+
+        private final String key;
+
+        private List<String> hosts;
+
+        private PropertyChangeSupport pcs;
+
+        public Pool(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void addPropertyChangeListener(PropertyChangeListener listener) {
+            if (null == this.pcs) this.pcs = new PropertyChangeSupport(this);
+            this.pcs.addPropertyChangeListener(listener);
+        }
+
+        public void removePropertyChangeListener(PropertyChangeListener listener) {
+            if (this.pcs != null) this.pcs.removePropertyChangeListener(listener);
+        }
+
+        @ModelNodeBinding(detypedName = "hosts")
+        public List<String> hosts() {
+            return hosts;
+        }
+
+        public Pool hosts(List<String> value) {
+            Object oldValue = this.hosts;
+            this.hosts = value;
+            if (this.pcs != null) this.pcs.firePropertyChange("hosts", oldValue, value);
+            return this;
+        }
+
+        public Pool host(String value) {
+            if (this.hosts == null) { this.hosts = new ArrayList<>(); }
+            this.hosts.add(value);
+            if (this.pcs != null) this.pcs.firePropertyChange("hosts", null, hosts());
+            return this;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_HEADERS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ROLLBACK_ON_RUNTIME_FAILURE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ROLLED_BACK;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+public class OperationExecutorTest {
+
+    @Test
+    public void testBoundedInFlight() throws Exception {
+        FakeServer server = new FakeServer();
+        CompletableFuture<OperationExecutor.Result> result = new OperationExecutor(server)
+                .batchSize(3)
+                .maxInFlight(2)
+                .executeLevels(Collections.singletonList(adds("a", "b", "c", "d", "e", "f", "g", "h", "i", "j")));
+
+        Assert.assertEquals(2, server.pending.size());
+        while (!server.pending.isEmpty()) {
+            Assert.assertTrue(server.pending.size() <= 2);
+            server.respond();
+        }
+
+        Assert.assertTrue(result.isDone());
+        Assert.assertEquals(4, server.requests.size());
+        Assert.assertEquals(COMPOSITE, server.requests.get(0).get(OP).asString());
+        Assert.assertEquals(3, server.requests.get(0).get(STEPS).asList().size());
+        Assert.assertTrue(result.get().isSuccess());
+        Assert.assertEquals(10, result.get().getOutcomes().size());
+    }
+
+    @Test
+    public void testBatchRollbackSkipsLaterLevels() throws Exception {
+        FakeServer server = new FakeServer();
+        CompletableFuture<OperationExecutor.Result> result = new OperationExecutor(server)
+                .executeLevels(Arrays.asList(adds("a", "broken"), adds("c")));
+        server.respondAll();
+
+        List<OperationExecutor.Outcome> outcomes = result.get().getOutcomes();
+        Assert.assertEquals(1, server.requests.size());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.ROLLED_BACK, outcomes.get(0).getStatus());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.FAILED, outcomes.get(1).getStatus());
+        Assert.assertEquals("broken", outcomes.get(1).getFailureDescription());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.SKIPPED, outcomes.get(2).getStatus());
+        Assert.assertEquals(1, result.get().getFailures().size());
+    }
+
+    @Test
+    public void testNoRollback() throws Exception {
+        FakeServer server = new FakeServer();
+        CompletableFuture<OperationExecutor.Result> result = new OperationExecutor(server)
+                .rollback(OperationExecutor.Rollback.NONE)
+                .executeLevels(Arrays.asList(adds("a", "broken"), adds("c")));
+        server.respondAll();
+
+        List<OperationExecutor.Outcome> outcomes = result.get().getOutcomes();
+        Assert.assertEquals(2, server.requests.size());
+        Assert.assertFalse(server.requests.get(1).get(OPERATION_HEADERS, ROLLBACK_ON_RUNTIME_FAILURE).asBoolean());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.SUCCESS, outcomes.get(0).getStatus());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.FAILED, outcomes.get(1).getStatus());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.SUCCESS, outcomes.get(2).getStatus());
+    }
+
+    @Test
+    public void testRollbackAll() throws Exception {
+        FakeServer server = new FakeServer();
+        CompletableFuture<OperationExecutor.Result> result = new OperationExecutor(server)
+                .batchSize(1)
+                .rollback(OperationExecutor.Rollback.ALL)
+                .executeLevels(Arrays.asList(adds("a", "b"), adds("c")));
+        server.respondAll();
+
+        Assert.assertEquals(1, server.requests.size());
+        Assert.assertEquals(3, server.requests.get(0).get(STEPS).asList().size());
+        Assert.assertTrue(result.get().isSuccess());
+    }
+
+    @Test
+    public void testClientFailure() throws Exception {
+        OperationChannel channel = operation -> {
+            CompletableFuture<ModelNode> response = new CompletableFuture<>();
+            response.completeExceptionally(new java.io.IOException("Connection refused"));
+            return response;
+        };
+        OperationExecutor.Result result = new OperationExecutor(channel).execute(adds("a", "b")).get();
+
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertTrue(result.getOutcomes().get(0).getFailureDescription().contains("Connection refused"));
+    }
+
+    @Test
+    public void testEntityGraph() throws Exception {
+        TestDatasources datasources = new TestDatasources()
+                .jdbcDriver(new TestJdbcDriver("h2"))
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2"))
+                .dataSource(new TestDataSource("broken").driverName("h2"));
+        OperationChannel channel = operation -> CompletableFuture.completedFuture(FakeServer.responseTo(operation));
+
+        OperationExecutor.Result result = new OperationExecutor(channel)
+                .rollback(OperationExecutor.Rollback.NONE)
+                .execute(datasources).get();
+
+        Assert.assertFalse(result.isSuccess());
+        OperationExecutor.Outcome example = result.outcomeOf(datasources.subresources().dataSource("ExampleDS"));
+        Assert.assertEquals(OperationExecutor.Outcome.Status.SUCCESS, example.getStatus());
+        Assert.assertSame(datasources.subresources().dataSource("ExampleDS"), example.getEntity());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.FAILED,
+                            result.outcomeOf(datasources.subresources().dataSource("broken")).getStatus());
+        Assert.assertEquals(OperationExecutor.Outcome.Status.SUCCESS, result.outcomeOf(datasources).getStatus());
+        Assert.assertNull(result.outcomeOf(new TestDataSource("ExampleDS")));
+    }
+
+    @Test
+    public void testSynchronousChannel() throws Exception {
+        String[] names = new String[20000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "r" + i;
+        }
+        OperationChannel channel = operation -> CompletableFuture.completedFuture(FakeServer.responseTo(operation));
+
+        // one batch after the other, each completing before its callback is registered; a stack overflow in the
+        // callback would leave the result incomplete
+        OperationExecutor.Result result = new OperationExecutor(channel)
+                .batchSize(1)
+                .maxInFlight(1)
+                .executeLevels(Collections.singletonList(adds(names))).get(30, TimeUnit.SECONDS);
+
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(names.length, result.getOutcomes().size());
+    }
+
+    private static List<ModelNode> adds(String... names) {
+        List<ModelNode> operations = new ArrayList<>();
+        for (String name : names) {
+            ModelNode operation = new ModelNode();
+            operation.get(OP).set(ADD);
+            operation.get(OP_ADDR).set(PathAddress.pathAddress("subsystem", "test").append("resource", name).toModelNode());
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    /**
+     * Answers requests on demand. Operations addressing a resource named <code>broken</code> fail.
+     */
+    private static class FakeServer implements OperationChannel {
+
+        private final List<ModelNode> requests = new ArrayList<>();
+
+        private final List<CompletableFuture<ModelNode>> pending = new ArrayList<>();
+
+        private final List<ModelNode> responses = new ArrayList<>();
+
+        @Override
+        public synchronized CompletableFuture<ModelNode> execute(ModelNode operation) {
+            requests.add(operation);
+            CompletableFuture<ModelNode> response = new CompletableFuture<>();
+            pending.add(response);
+            responses.add(responseTo(operation));
+            return response;
+        }
+
+        void respond() {
+            CompletableFuture<ModelNode> next;
+            ModelNode response;
+            synchronized (this) {
+                next = pending.remove(0);
+                response = responses.remove(0);
+            }
+            next.complete(response);
+        }
+
+        void respondAll() {
+            while (!pending.isEmpty()) {
+                respond();
+            }
+        }
+
+        private static ModelNode responseTo(ModelNode operation) {
+            if (!COMPOSITE.equals(operation.get(OP).asString())) {
+                return stepResponse(operation);
+            }
+            boolean rollback = operation.get(OPERATION_HEADERS, ROLLBACK_ON_RUNTIME_FAILURE).asBoolean(true);
+            ModelNode response = new ModelNode();
+            boolean failed = false;
+            List<ModelNode> steps = operation.get(STEPS).asList();
+            for (int i = 0; i < steps.size(); i++) {
+                ModelNode step = stepResponse(steps.get(i));
+                response.get(RESULT, "step-" + (i + 1)).set(step);
+                failed |= FAILED.equals(step.get(OUTCOME).asString());
+            }
+            response.get(OUTCOME).set(failed && rollback ? FAILED : SUCCESS);
+            if (failed && rollback) {
+                response.get(ROLLED_BACK).set(true);
+            }
+            return response;
+        }
+
+        private static ModelNode stepResponse(ModelNode operation) {
+            ModelNode response = new ModelNode();
+            String name = PathAddress.pathAddress(operation.get(OP_ADDR)).getLastElement().getValue();
+            if ("broken".equals(name)) {
+                response.get(OUTCOME).set(FAILED);
+                response.get(FAILURE_DESCRIPTION).set("broken");
+            } else {
+                response.get(OUTCOME).set(SUCCESS);
+            }
+            return response;
+        }
+    }
+}
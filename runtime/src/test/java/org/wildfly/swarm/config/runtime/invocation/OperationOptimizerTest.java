@@ -0,0 +1,248 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.as.controller.PathAddress;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.REMOVE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.UNDEFINE_ATTRIBUTE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.VALUE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.WRITE_ATTRIBUTE_OPERATION;
+
+public class OperationOptimizerTest {
+
+    private static final ModelNode SUBSYSTEM = PathAddress.pathAddress("subsystem", "datasources").toModelNode();
+
+    private static final ModelNode DS = PathAddress.pathAddress("subsystem", "datasources")
+            .append("data-source", "ExampleDS").toModelNode();
+
+    private static final ModelNode OTHER_DS = PathAddress.pathAddress("subsystem", "datasources")
+            .append("data-source", "OtherDS").toModelNode();
+
+    @Test
+    public void testMergeWrites() {
+        List<ModelNode> ops = Arrays.asList(
+                add(SUBSYSTEM),
+                add(DS, "jndi-name", "java:/ExampleDS"),
+                write(DS, "max-pool-size", "50"),
+                write(DS, "jndi-name", "java:/OtherDS"),
+                undefine(DS, "min-pool-size"));
+
+        List<ModelNode> optimized = new OperationOptimizer(OperationOptimizer.Pass.MERGE_WRITES).optimize(ops);
+
+        Assert.assertEquals(2, optimized.size());
+        Assert.assertEquals("50", optimized.get(1).get("max-pool-size").asString());
+        Assert.assertEquals("java:/OtherDS", optimized.get(1).get("jndi-name").asString());
+        Assert.assertFalse("input modified", ops.get(1).has("max-pool-size"));
+        assertEquivalent(ops, optimized);
+    }
+
+    @Test
+    public void testBarriers() {
+        List<ModelNode> ops = Arrays.asList(
+                add(SUBSYSTEM),
+                add(DS, "jndi-name", "java:/ExampleDS"),
+                op(DS, REMOVE),
+                add(DS),
+                write(DS, "jndi-name", "java:/OtherDS"),
+                composite(add(OTHER_DS), write(DS, "jndi-name", "java:/ExampleDS")),
+                write(DS, "jndi-name", "java:/OtherDS"));
+
+        List<ModelNode> optimized = new OperationOptimizer().optimize(ops);
+
+        Assert.assertEquals(6, optimized.size());
+        assertEquivalent(ops, optimized);
+    }
+
+    @Test
+    public void testWritesStayAfterLaterAdds() {
+        // the write might refer to a capability of OtherDS, it must not move into the add of ExampleDS
+        List<ModelNode> ops = Arrays.asList(
+                add(DS),
+                add(OTHER_DS),
+                write(DS, "capability-reference", "OtherDS"),
+                write(OTHER_DS, "jndi-name", "java:/OtherDS"));
+
+        List<ModelNode> optimized = new OperationOptimizer(OperationOptimizer.Pass.MERGE_WRITES).optimize(ops);
+
+        Assert.assertEquals(3, optimized.size());
+        Assert.assertFalse(optimized.get(0).has("capability-reference"));
+        Assert.assertEquals("java:/OtherDS", optimized.get(1).get("jndi-name").asString());
+        Assert.assertEquals(WRITE_ATTRIBUTE_OPERATION, optimized.get(2).get(OP).asString());
+        assertEquivalent(ops, optimized);
+    }
+
+    @Test
+    public void testFlattenChangesets() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("jndiName", "java:/OtherDS");
+        changes.put("maxPoolSize", 50);
+        EntityAdapter<TestDataSource> adapter = new EntityAdapter<>(TestDataSource.class);
+        List<ModelNode> ops = Arrays.asList(
+                add(SUBSYSTEM),
+                add(DS, "jndi-name", "java:/ExampleDS"),
+                adapter.fromChangeset(changes, "ExampleDS"),
+                adapter.fromChangeset(changes, "OtherDS"));
+
+        List<ModelNode> optimized = new OperationOptimizer(OperationOptimizer.Pass.MERGE_WRITES).optimize(ops);
+
+        Assert.assertEquals(3, optimized.size());
+        Assert.assertEquals("java:/OtherDS", optimized.get(1).get("jndi-name").asString());
+        Assert.assertEquals(50, optimized.get(1).get("max-pool-size").asInt());
+        Assert.assertSame("no open add", ops.get(3), optimized.get(2));
+        Map<ModelNode, ModelNode> model = new HashMap<>();
+        model.put(OTHER_DS, new ModelNode());
+        Assert.assertEquals(apply(new HashMap<>(model), ops), apply(new HashMap<>(model), optimized));
+    }
+
+    @Test
+    public void testPartiallyFlattenedComposite() {
+        List<ModelNode> ops = Arrays.asList(
+                add(DS),
+                composite(write(DS, "jndi-name", "java:/ExampleDS"), write(OTHER_DS, "jndi-name", "java:/OtherDS")));
+
+        List<ModelNode> optimized = new OperationOptimizer().optimize(ops);
+
+        Assert.assertEquals(2, optimized.size());
+        Assert.assertEquals("java:/ExampleDS", optimized.get(0).get("jndi-name").asString());
+        Assert.assertEquals(1, optimized.get(1).get(STEPS).asList().size());
+        Assert.assertEquals(2, ops.get(1).get(STEPS).asList().size());
+        Map<ModelNode, ModelNode> model = new HashMap<>();
+        model.put(OTHER_DS, new ModelNode());
+        Assert.assertEquals(apply(new HashMap<>(model), ops), apply(new HashMap<>(model), optimized));
+    }
+
+    @Test
+    public void testRepeatedAddsAreKept() {
+        List<ModelNode> ops = Arrays.asList(add(DS), add(DS));
+
+        Assert.assertEquals(2, new OperationOptimizer(OperationOptimizer.Pass.DEDUPLICATE).optimize(ops).size());
+    }
+
+    @Test
+    public void testOperationsWithoutAddress() {
+        ModelNode reload = new ModelNode();
+        reload.get(OP).set("reload");
+
+        List<ModelNode> optimized = new OperationOptimizer().optimize(Arrays.asList(add(DS), reload));
+
+        Assert.assertEquals(2, optimized.size());
+        Assert.assertFalse("input modified", reload.has(OP_ADDR));
+    }
+
+    @Test
+    public void testDeduplicate() {
+        List<ModelNode> ops = Arrays.asList(
+                write(DS, "jndi-name", "java:/ExampleDS"),
+                write(DS, "jndi-name", "java:/ExampleDS"),
+                write(SUBSYSTEM, "default", "true"),
+                write(DS, "jndi-name", "java:/ExampleDS"),
+                write(DS, "jndi-name", "java:/OtherDS"),
+                write(DS, "jndi-name", "java:/ExampleDS"));
+
+        List<ModelNode> optimized = new OperationOptimizer(OperationOptimizer.Pass.DEDUPLICATE).optimize(ops);
+
+        Assert.assertEquals(4, optimized.size());
+        Map<ModelNode, ModelNode> model = new HashMap<>();
+        model.put(DS, new ModelNode());
+        model.put(SUBSYSTEM, new ModelNode());
+        Assert.assertEquals(apply(new HashMap<>(model), ops), apply(new HashMap<>(model), optimized));
+    }
+
+    @Test
+    public void testDropEmptyAdds() {
+        List<ModelNode> ops = Arrays.asList(
+                add(SUBSYSTEM),
+                add(DS));
+
+        List<ModelNode> optimized = new OperationOptimizer(OperationOptimizer.Pass.DROP_EMPTY_ADDS)
+                .existingResources(SUBSYSTEM::equals)
+                .optimize(ops);
+
+        Assert.assertEquals(1, optimized.size());
+        Assert.assertEquals(DS, optimized.get(0).get(OP_ADDR));
+    }
+
+    private static void assertEquivalent(List<ModelNode> ops, List<ModelNode> optimized) {
+        Assert.assertEquals(apply(new HashMap<>(), ops), apply(new HashMap<>(), optimized));
+    }
+
+    /**
+     * Applies operations to a flat in memory model: resource attributes by address
+     */
+    private static Map<ModelNode, ModelNode> apply(Map<ModelNode, ModelNode> model, List<ModelNode> ops) {
+        for (ModelNode op : ops) {
+            ModelNode address = op.get(OP_ADDR);
+            String name = op.get(OP).asString();
+            if (COMPOSITE.equals(name)) {
+                apply(model, op.get(STEPS).asList());
+            } else if (ADD.equals(name)) {
+                Assert.assertFalse("duplicate resource " + address, model.containsKey(address));
+                ModelNode resource = op.clone();
+                resource.remove(OP);
+                resource.remove(OP_ADDR);
+                model.put(address, resource);
+            } else if (REMOVE.equals(name)) {
+                Assert.assertNotNull(model.remove(address));
+            } else if (WRITE_ATTRIBUTE_OPERATION.equals(name)) {
+                model.get(address).get(op.get(NAME).asString()).set(op.get(VALUE));
+            } else if (UNDEFINE_ATTRIBUTE_OPERATION.equals(name)) {
+                ModelNode resource = model.get(address);
+                if (resource.has(op.get(NAME).asString())) {
+                    resource.remove(op.get(NAME).asString());
+                }
+            } else {
+                Assert.fail("Unexpected operation " + op);
+            }
+        }
+        return model;
+    }
+
+    private static ModelNode op(ModelNode address, String name) {
+        ModelNode op = new ModelNode();
+        op.get(OP_ADDR).set(address);
+        op.get(OP).set(name);
+        return op;
+    }
+
+    private static ModelNode add(ModelNode address, String... attributes) {
+        ModelNode op = op(address, ADD);
+        for (int i = 0; i < attributes.length; i += 2) {
+            op.get(attributes[i]).set(attributes[i + 1]);
+        }
+        return op;
+    }
+
+    private static ModelNode write(ModelNode address, String attribute, String value) {
+        ModelNode op = op(address, WRITE_ATTRIBUTE_OPERATION);
+        op.get(NAME).set(attribute);
+        op.get(VALUE).set(value);
+        return op;
+    }
+
+    private static ModelNode undefine(ModelNode address, String attribute) {
+        ModelNode op = op(address, UNDEFINE_ATTRIBUTE_OPERATION);
+        op.get(NAME).set(attribute);
+        return op;
+    }
+
+    private static ModelNode composite(ModelNode... steps) {
+        ModelNode op = op(new ModelNode().setEmptyList(), COMPOSITE);
+        op.get(STEPS).set(new ArrayList<>(Arrays.asList(steps)));
+        return op;
+    }
+}
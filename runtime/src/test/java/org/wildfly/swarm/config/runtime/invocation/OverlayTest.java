@@ -0,0 +1,92 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+import org.wildfly.swarm.config.runtime.invocation.MerkleTree.Difference;
+
+public class OverlayTest {
+
+    private Snapshot<TestDatasources> base;
+
+    @Before
+    public void fixture() {
+        base = Snapshot.freeze(new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(10))
+                .dataSource(new TestDataSource("OtherDS").driverName("h2"))
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2")));
+    }
+
+    @Test
+    public void testStructuralSharing() throws Exception {
+        Overlay<TestDatasources> tenant = Overlay.over(base);
+        Assert.assertSame(base.get(), tenant.get());
+
+        tenant.<TestDataSource>edit("subsystem=datasources/data-source=ExampleDS").maxPoolSize(50);
+
+        TestDatasources view = tenant.get();
+        TestDatasources shared = base.get();
+        Assert.assertEquals(2, tenant.size());
+        Assert.assertNotSame(shared, view);
+        Assert.assertEquals(Integer.valueOf(50), view.subresources().dataSource("ExampleDS").maxPoolSize());
+        Assert.assertEquals(Integer.valueOf(10), shared.subresources().dataSource("ExampleDS").maxPoolSize());
+        Assert.assertSame(shared.subresources().dataSource("OtherDS"), view.subresources().dataSource("OtherDS"));
+        Assert.assertSame(shared.subresources().jdbcDrivers(), view.subresources().jdbcDrivers());
+        Assert.assertTrue(tenant.isEdited("subsystem=datasources/data-source=ExampleDS"));
+        Assert.assertFalse(tenant.isEdited("subsystem=datasources/data-source=OtherDS"));
+
+        Assert.assertEquals(Marshaller.marshal(Snapshot.freeze(view).thaw()), Marshaller.marshal(view));
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        Overlay<TestDatasources> tenant = Overlay.over(base)
+                .add("subsystem=datasources", new TestJdbcDriver("postgres"));
+        Assert.assertTrue(tenant.remove("subsystem=datasources/data-source=OtherDS"));
+        Assert.assertFalse(tenant.remove("subsystem=datasources/data-source=MissingDS"));
+
+        Assert.assertEquals(2, tenant.get().subresources().jdbcDrivers().size());
+        Assert.assertEquals(1, tenant.get().subresources().dataSources().size());
+        Assert.assertEquals(2, base.get().subresources().dataSources().size());
+        Assert.assertEquals(1, base.get().subresources().jdbcDrivers().size());
+    }
+
+    @Test
+    public void testDiff() {
+        Overlay<TestDatasources> tenant = Overlay.over(base);
+        Assert.assertTrue(tenant.diff().isEmpty());
+
+        tenant.<TestDataSource>edit("subsystem=datasources/data-source=ExampleDS").maxPoolSize(50);
+        tenant.remove("subsystem=datasources/data-source=OtherDS");
+
+        List<Difference> differences = tenant.diff();
+        Assert.assertEquals(2, differences.size());
+        Assert.assertEquals(Difference.Kind.ATTRIBUTE, differences.get(0).getKind());
+        Assert.assertEquals("subsystem=datasources/data-source=ExampleDS", differences.get(0).getAddress());
+        Assert.assertEquals(50, differences.get(0).getActual());
+        Assert.assertEquals(Difference.Kind.MISSING, differences.get(1).getKind());
+    }
+
+    @Test
+    public void testCollectionAttributes() {
+        Snapshot<MerkleTreeTest.Pool> pool = Snapshot.freeze(new MerkleTreeTest.Pool("pool").host("db1"));
+        Overlay<MerkleTreeTest.Pool> tenant = Overlay.over(pool);
+
+        tenant.<MerkleTreeTest.Pool>edit("pool=pool").host("db2");
+
+        Assert.assertEquals(Arrays.asList("db1", "db2"), tenant.get().hosts());
+        Assert.assertEquals(Collections.singletonList("db1"), pool.get().hosts());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAddress() {
+        Overlay.over(base).edit("subsystem=logging");
+    }
+}
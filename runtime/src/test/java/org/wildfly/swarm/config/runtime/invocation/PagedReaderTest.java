@@ -0,0 +1,134 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CANCELLED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CHILD_TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_CHILDREN_NAMES_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.STEPS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+public class PagedReaderTest {
+
+    private final List<ModelNode> requests = new ArrayList<>();
+
+    private final Map<String, String> failures = new HashMap<>();
+
+    /**
+     * Serves 25 data sources, DS7 disappears after it has been listed. Like a real server, a failed step fails the
+     * composite and cancels the steps after it.
+     */
+    private final OperationChannel server = operation -> {
+        requests.add(operation);
+        ModelNode response = new ModelNode();
+        response.get(OUTCOME).set(SUCCESS);
+        String op = operation.get(OP).asString();
+        if (READ_CHILDREN_NAMES_OPERATION.equals(op)) {
+            Assert.assertEquals("data-source", operation.get(CHILD_TYPE).asString());
+            ModelNode names = response.get(RESULT).setEmptyList();
+            for (int i = 0; i < 25; i++) {
+                names.add("DS" + i);
+            }
+        } else if (READ_RESOURCE_OPERATION.equals(op)) {
+            read(operation, response);
+        } else {
+            Assert.assertEquals(COMPOSITE, op);
+            List<ModelNode> steps = operation.get(STEPS).asList();
+            for (int i = 0; i < steps.size(); i++) {
+                ModelNode step = response.get(RESULT, "step-" + (i + 1));
+                if (FAILED.equals(response.get(OUTCOME).asString())) {
+                    step.get(OUTCOME).set(CANCELLED);
+                } else if (!read(steps.get(i), step)) {
+                    response.get(OUTCOME).set(FAILED);
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(response);
+    };
+
+    @Before
+    public void removeDS7() {
+        failures.put("DS7", "WFLYCTL0216: Management resource '[(\"subsystem\" => \"datasources\"),(\"data-source\" => \"DS7\")]' not found");
+    }
+
+    @Test
+    public void testPages() {
+        Iterator<TestDataSource> dataSources = new PagedReader(server).pageSize(10).iterator(TestDataSource.class);
+        Assert.assertTrue(requests.isEmpty());
+
+        Assert.assertEquals("DS0", dataSources.next().getKey());
+        // the names, the first page, the cancelled DS8 and DS9 one by one and the next page
+        Assert.assertEquals(5, requests.size());
+        Assert.assertEquals(10, requests.get(1).get(STEPS).asList().size());
+        Assert.assertEquals("DS8", requests.get(2).get(OP_ADDR).asPropertyList().get(1).getValue().asString());
+
+        List<String> names = new ArrayList<>();
+        dataSources.forEachRemaining(dataSource -> names.add(dataSource.getKey()));
+        Assert.assertEquals(23, names.size());
+        Assert.assertFalse(names.contains("DS7"));
+        Assert.assertEquals("DS9", names.get(7));
+        Assert.assertEquals(6, requests.size());
+    }
+
+    @Test
+    public void testFailures() {
+        failures.put("DS3", "WFLYCTL0332: Permission denied");
+        Iterator<TestDataSource> dataSources = new PagedReader(server).pageSize(10).iterator(TestDataSource.class);
+
+        try {
+            dataSources.hasNext();
+            Assert.fail("Failure expected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("WFLYCTL0332"));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        List<String> jndiNames = new PagedReader(server).pageSize(7).stream(TestDataSource.class)
+                .map(TestDataSource::jndiName)
+                .limit(3)
+                .collect(Collectors.toList());
+
+        Assert.assertEquals("java:/DS2", jndiNames.get(2));
+        // the names and two pages, the second one failing at DS7
+        Assert.assertEquals(3 + 6, requests.size());
+    }
+
+    /**
+     * Answers the <code>read-resource</code> of a data source
+     *
+     * @return whether it succeeded
+     */
+    private boolean read(ModelNode operation, ModelNode response) {
+        String name = operation.get(OP_ADDR).asPropertyList().get(1).getValue().asString();
+        if (failures.containsKey(name)) {
+            response.get(OUTCOME).set(FAILED);
+            response.get(FAILURE_DESCRIPTION).set(failures.get(name));
+            return false;
+        }
+        response.get(OUTCOME).set(SUCCESS);
+        response.get(RESULT, "jndi-name").set("java:/" + name);
+        return true;
+    }
+}
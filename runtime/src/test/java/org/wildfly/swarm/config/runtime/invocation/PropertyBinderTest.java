@@ -0,0 +1,85 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+
+public class PropertyBinderTest {
+
+    @Test
+    public void testAttributes() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("ds.driver-name", "h2");
+        properties.put("ds.max-pool-size", "50");
+        properties.put("ds.unknown", "x");
+        properties.put("other.driver-name", "postgresql");
+
+        TestDataSource ds = new TestDataSource("ExampleDS");
+        List<String> unresolved = new PropertyBinder("ds").bind(ds, properties);
+
+        Assert.assertEquals("h2", ds.driverName());
+        Assert.assertEquals(Integer.valueOf(50), ds.maxPoolSize());
+        Assert.assertEquals(Collections.singletonList("ds.unknown"), unresolved);
+    }
+
+    @Test
+    public void testSystemProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("swarm.ds.jndi-name", "java:/ExampleDS");
+
+        TestDataSource ds = new TestDataSource("ExampleDS");
+        Assert.assertTrue(new PropertyBinder("swarm.ds.").bind(ds, properties).isEmpty());
+        Assert.assertEquals("java:/ExampleDS", ds.jndiName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValue() {
+        new PropertyBinder("ds").bind(new TestDataSource("ExampleDS"), Collections.singletonMap("ds.max-pool-size", "many"));
+    }
+
+    @Test
+    public void testChildren() {
+        TestDataSource exampleDS = new TestDataSource("ExampleDS").driverName("h2");
+        TestDatasources root = new TestDatasources().dataSource(exampleDS);
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("ds.data-source.ExampleDS.max-pool-size", "50");
+        properties.put("ds.data-source.my.ds.jndi-name", "java:/my.ds");
+        properties.put("ds.jdbc-driver.h2.driver-module-name", "com.h2database.h2");
+        properties.put("ds.data-source.OtherDS", "incomplete");
+
+        List<String> unresolved = new PropertyBinder("ds").bind(root, properties);
+
+        Assert.assertEquals(Collections.singletonList("ds.data-source.OtherDS"), unresolved);
+        Assert.assertSame(exampleDS, root.subresources().dataSource("ExampleDS"));
+        Assert.assertEquals(Integer.valueOf(50), exampleDS.maxPoolSize());
+        Assert.assertEquals("java:/my.ds", root.subresources().dataSource("my.ds").jndiName());
+        Assert.assertEquals("com.h2database.h2", root.subresources().jdbcDriver("h2").driverModuleName());
+    }
+
+    @Test
+    public void testChildOrder() {
+        Map<String, String> properties = new HashMap<>();
+        for (String name : new String[]{"DS3", "DS1", "DS4", "DS2", "DS0"}) {
+            properties.put("ds.data-source." + name + ".jndi-name", "java:/" + name);
+        }
+        TestDatasources root = new TestDatasources();
+
+        Assert.assertTrue(new PropertyBinder("ds").bind(root, properties).isEmpty());
+
+        List<String> keys = new ArrayList<>();
+        for (TestDataSource ds : root.subresources().dataSources()) {
+            keys.add(ds.getKey());
+        }
+        Assert.assertEquals(Arrays.asList("DS0", "DS1", "DS2", "DS3", "DS4"), keys);
+    }
+}
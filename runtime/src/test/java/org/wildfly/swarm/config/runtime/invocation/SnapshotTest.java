@@ -0,0 +1,71 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+
+public class SnapshotTest {
+
+    private TestDatasources datasources;
+
+    @Before
+    public void fixture() {
+        datasources = new TestDatasources()
+                .dataSource(new TestDataSource("ExampleDS").driverName("h2").maxPoolSize(10))
+                .jdbcDriver(new TestJdbcDriver("h2").driverModuleName("com.h2database.h2"));
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        Snapshot<TestDatasources> snapshot = Snapshot.freeze(datasources);
+        TestDatasources frozen = snapshot.get();
+
+        Assert.assertNotSame(datasources, frozen);
+        Assert.assertEquals(1, frozen.subresources().dataSources().size());
+        Assert.assertNotSame(datasources.subresources().dataSources().get(0), frozen.subresources().dataSources().get(0));
+        Assert.assertEquals("h2", frozen.subresources().dataSources().get(0).driverName());
+        Assert.assertTrue(frozen.subresources().dataSources().get(0).isFrozen());
+        Assert.assertEquals(Marshaller.marshal(datasources), Marshaller.marshal(frozen));
+
+        // the original graph stays mutable
+        datasources.dataSource(new TestDataSource("OtherDS"));
+        Assert.assertEquals(1, frozen.subresources().dataSources().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiableLists() {
+        Snapshot.freeze(datasources).get().subresources().jdbcDrivers().add(new TestJdbcDriver("postgres"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFrozenMutators() {
+        Snapshot.freeze(datasources).get().subresources().dataSources().get(0).maxPoolSize(20);
+    }
+
+    @Test
+    public void testStructuralHash() {
+        Snapshot<TestDatasources> snapshot = Snapshot.freeze(datasources);
+        Assert.assertEquals(snapshot, Snapshot.freeze(datasources));
+        Assert.assertEquals(snapshot.hashCode(), Snapshot.freeze(datasources).hashCode());
+
+        datasources.subresources().dataSources().get(0).maxPoolSize(20);
+        Assert.assertNotEquals(snapshot, Snapshot.freeze(datasources));
+    }
+
+    @Test
+    public void testThaw() {
+        Snapshot<TestDatasources> snapshot = Snapshot.freeze(datasources);
+        TestDatasources thawed = snapshot.thaw();
+
+        TestDataSource dataSource = thawed.subresources().dataSources().get(0);
+        Assert.assertFalse(dataSource.isFrozen());
+        dataSource.maxPoolSize(20);
+        thawed.jdbcDriver(new TestJdbcDriver("postgres"));
+
+        Assert.assertEquals(Integer.valueOf(10), snapshot.get().subresources().dataSources().get(0).maxPoolSize());
+        Assert.assertEquals(1, snapshot.get().subresources().jdbcDrivers().size());
+    }
+}
@@ -21,8 +21,6 @@ public class SubresourceFilterTest {
 
         Assert.assertEquals(TestLogging.class.getDeclaredMethods().length, orderedMethods.size());
 
-        Assert.assertTrue(orderedMethods.get(0).getName().contains("Formatter"));
-        Assert.assertTrue(orderedMethods.get(1).getName().contains("Formatter"));
         Assert.assertTrue(orderedMethods.get(TestLogging.class.getDeclaredMethods().length -2).getName().toLowerCase().contains("logger"));
         Assert.assertTrue(orderedMethods.get(TestLogging.class.getDeclaredMethods().length -1).getName().toLowerCase().contains("logger"));
     }
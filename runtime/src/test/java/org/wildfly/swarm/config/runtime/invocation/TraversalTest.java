@@ -0,0 +1,69 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.config.datasources.TestDataSource;
+import org.wildfly.swarm.config.datasources.TestDatasources;
+import org.wildfly.swarm.config.datasources.TestDatasourcesVisitor;
+import org.wildfly.swarm.config.datasources.TestJdbcDriver;
+import org.wildfly.swarm.config.runtime.Keyed;
+
+public class TraversalTest {
+
+    private final TestDataSource exampleDS = new TestDataSource("ExampleDS");
+
+    private final TestDataSource otherDS = new TestDataSource("OtherDS");
+
+    private final TestJdbcDriver h2 = new TestJdbcDriver("h2");
+
+    private final TestDatasources root = new TestDatasources()
+            .jdbcDriver(h2)
+            .dataSource(exampleDS)
+            .dataSource(otherDS);
+
+    @Test
+    public void testOrder() {
+        Assert.assertEquals(Arrays.asList(root, exampleDS, otherDS, h2), Traversal.preOrder(root));
+        Assert.assertEquals(Arrays.asList(exampleDS, otherDS, h2, root), Traversal.postOrder(root));
+    }
+
+    @Test
+    public void testTypedCallbacks() {
+        List<String> visited = new ArrayList<>();
+        Traversal.walk(root, new TestDatasourcesVisitor() {
+            @Override
+            public boolean visit(TestDataSource resource) {
+                visited.add("data-source=" + resource.getKey());
+                return true;
+            }
+
+            @Override
+            public boolean visitResource(Object resource) {
+                visited.add(((Keyed) resource).getKey());
+                return true;
+            }
+        });
+        Assert.assertEquals(Arrays.asList("datasources", "data-source=ExampleDS", "data-source=OtherDS", "h2"), visited);
+    }
+
+    @Test
+    public void testPruning() {
+        List<Object> left = new ArrayList<>();
+        Traversal.walk(root, new TestDatasourcesVisitor() {
+            @Override
+            public boolean visit(TestDatasources resource) {
+                return false;
+            }
+
+            @Override
+            public void leaveResource(Object resource) {
+                left.add(resource);
+            }
+        });
+        Assert.assertTrue(left.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package org.wildfly.swarm.config.runtime.invocation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValueInternerTest {
+
+    @Test
+    public void testNoSession() {
+        String value = new String("h2");
+        Assert.assertSame(value, ValueInterner.intern(value));
+    }
+
+    @Test
+    public void testSharedWithinSession() {
+        try (ValueInterner session = ValueInterner.open()) {
+            String first = ValueInterner.intern(new String("h2"));
+            String second = ValueInterner.intern(new String("h2"));
+            Assert.assertSame(first, second);
+
+            Long timeout = ValueInterner.intern(new Long(30000L));
+            Assert.assertSame(timeout, ValueInterner.intern(new Long(30000L)));
+
+            Assert.assertEquals(2, session.size());
+            Assert.assertEquals(2, session.hits());
+        }
+
+        String value = new String("h2");
+        Assert.assertSame(value, ValueInterner.intern(value));
+    }
+
+    @Test
+    public void testBounded() {
+        try (ValueInterner session = ValueInterner.open(1)) {
+            ValueInterner.intern("a");
+            String b = new String("b");
+            Assert.assertSame(b, ValueInterner.intern(b));
+            Assert.assertNotSame(b, ValueInterner.intern(new String("b")));
+            Assert.assertEquals(1, session.size());
+        }
+    }
+
+    @Test
+    public void testNestedSessions() {
+        try (ValueInterner outer = ValueInterner.open()) {
+            String value = ValueInterner.intern(new String("DEBUG"));
+            try (ValueInterner inner = ValueInterner.open()) {
+                Assert.assertNotSame(value, ValueInterner.intern(new String("DEBUG")));
+            }
+            Assert.assertSame(value, ValueInterner.intern(new String("DEBUG")));
+        }
+    }
+}